@@ -0,0 +1,199 @@
+package com.spring.ai.plugins;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CRNN / SVTR style text line recognizer with CTC greedy decoding.
+ * Expects an NCHW input of fixed height (PaddleOCR layout: BGR, normalized to [-1, 1]) and an [N, T, C]
+ * probability output where class 0 is the CTC blank and class i is line i of the dictionary.
+ * When the output has one class more than the dictionary, the last class is a space.
+ */
+public class CtcTextRecognizer implements TextRecognizer {
+
+    private static final int DEFAULT_HEIGHT = 48;
+
+    private final InferenceBackend backend;
+    private final List<String> dictionary;
+    private final int channels;
+    private final int height;
+    private final int fixedWidth;       // Model input width, or -1 when the width is dynamic
+    private final boolean batchable;    // Dynamic batch dimension
+    private int maxWidth = 1280;        // Upper bound for dynamic widths
+    private int maxBatchSize = 32;
+
+    public CtcTextRecognizer(String modelPath, String dictionaryPath, String backendName) {
+        try {
+            this.dictionary = loadDictionary(dictionaryPath);
+            this.backend = InferenceBackend.create(backendName);
+            backend.load(modelPath);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load text recognizer: " + e.getMessage(), e);
+        }
+
+        long[] inputShape = backend.getInputShape();
+        this.batchable = inputShape.length != 4 || inputShape[0] <= 0;
+        this.channels = inputShape.length == 4 && inputShape[1] > 0 ? (int) inputShape[1] : 3;
+        this.height = inputShape.length == 4 && inputShape[2] > 0 ? (int) inputShape[2] : DEFAULT_HEIGHT;
+        this.fixedWidth = inputShape.length == 4 && inputShape[3] > 0 ? (int) inputShape[3] : -1;
+
+        System.out.println("Text recognizer loaded on " + backend.getName() + ": " + channels + "x" + height + "x"
+                + (fixedWidth > 0 ? fixedWidth : "dynamic") + ", " + dictionary.size() + " characters"
+                + (batchable ? ", batched" : ""));
+    }
+
+    private static List<String> loadDictionary(String dictionaryPath) throws IOException {
+        if (dictionaryPath == null) {
+            throw new IOException("No character dictionary for the recognition model");
+        }
+        List<String> characters = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(dictionaryPath), StandardCharsets.UTF_8)) {
+            // One character per line; a line holding a single space is a valid entry
+            String character = line.replace("\r", "");
+            if (!character.isEmpty()) {
+                characters.add(character);
+            }
+        }
+        if (characters.isEmpty()) {
+            throw new IOException("Character dictionary is empty");
+        }
+        return characters;
+    }
+
+    @Override
+    public List<Recognition> recognize(List<BufferedImage> lines) throws Exception {
+        List<Recognition> results = new ArrayList<>();
+        int batchSize = batchable ? maxBatchSize : 1;
+        for (int start = 0; start < lines.size(); start += batchSize) {
+            results.addAll(recognizeBatch(lines.subList(start, Math.min(start + batchSize, lines.size()))));
+        }
+        return results;
+    }
+
+    /**
+     * One model run: lines are resized to the model height, right-padded to a common width and stacked
+     */
+    private List<Recognition> recognizeBatch(List<BufferedImage> lines) throws Exception {
+        int[] widths = new int[lines.size()];
+        int batchWidth = fixedWidth;
+        for (int i = 0; i < lines.size(); i++) {
+            BufferedImage line = lines.get(i);
+            int width = (int) Math.ceil(line.getWidth() * (double) height / Math.max(1, line.getHeight()));
+            widths[i] = Math.max(1, Math.min(fixedWidth > 0 ? fixedWidth : maxWidth, width));
+            if (fixedWidth <= 0) {
+                batchWidth = Math.max(batchWidth, widths[i]);
+            }
+        }
+
+        int planeSize = height * batchWidth;
+        int imageSize = channels * planeSize;
+        float[] input = new float[lines.size() * imageSize];
+        int[] pixels = new int[planeSize];
+        for (int i = 0; i < lines.size(); i++) {
+            BufferedImage resized = resize(lines.get(i), widths[i]);
+            resized.getRGB(0, 0, widths[i], height, pixels, 0, widths[i]);
+
+            int offset = i * imageSize;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < widths[i]; x++) {
+                    int rgb = pixels[y * widths[i] + x];
+                    int index = offset + y * batchWidth + x;
+                    float r = ((rgb >> 16) & 0xFF) / 127.5f - 1f;
+                    float g = ((rgb >> 8) & 0xFF) / 127.5f - 1f;
+                    float b = (rgb & 0xFF) / 127.5f - 1f;
+                    if (channels == 1) {
+                        input[index] = 0.299f * r + 0.587f * g + 0.114f * b;
+                    } else {
+                        input[index] = b;
+                        input[index + planeSize] = g;
+                        input[index + 2 * planeSize] = r;
+                    }
+                }
+            }
+            // Padding stays 0, the normalized mid-gray value used by PaddleOCR
+        }
+
+        InferenceBackend.TensorOutput output = backend.run(input, new long[]{lines.size(), channels, height, batchWidth});
+        long[] shape = output.getShape();
+        if (shape.length != 3 || shape[0] != lines.size()) {
+            throw new IllegalStateException("Unexpected recognizer output shape: " + output);
+        }
+        int steps = (int) shape[1];
+        int classes = (int) shape[2];
+
+        List<Recognition> results = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            results.add(decode(output.getData(), i * steps * classes, steps, classes));
+        }
+        return results;
+    }
+
+    /**
+     * CTC greedy decoding: best class per step, repeats collapsed, blanks dropped
+     */
+    private Recognition decode(float[] data, int offset, int steps, int classes) {
+        StringBuilder text = new StringBuilder();
+        float confidenceSum = 0;
+        int emitted = 0;
+        int previous = 0;
+
+        for (int t = 0; t < steps; t++) {
+            int base = offset + t * classes;
+            int best = 0;
+            float bestProb = data[base];
+            for (int c = 1; c < classes; c++) {
+                if (data[base + c] > bestProb) {
+                    bestProb = data[base + c];
+                    best = c;
+                }
+            }
+
+            if (best != 0 && best != previous) {
+                String character = best <= dictionary.size() ? dictionary.get(best - 1)
+                        : best == dictionary.size() + 1 ? " " : "";
+                text.append(character);
+                confidenceSum += bestProb;
+                emitted++;
+            }
+            previous = best;
+        }
+        return new Recognition(text.toString().trim(), emitted > 0 ? confidenceSum / emitted : 0f);
+    }
+
+    private BufferedImage resize(BufferedImage image, int width) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+        return resized;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    public void setMaxWidth(int maxWidth) {
+        this.maxWidth = Math.max(height, maxWidth);
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @Override
+    public void close() {
+        backend.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.spring.ai.plugins;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Image loading with reduced-resolution and region decodes.
+ * Large uploads are probed for their size first, then decoded only at the resolution each consumer needs:
+ * a subsampled copy for detection and full-resolution regions for crops.
+ */
+public class ImageLoader {
+
+    private ImageLoader() {}
+
+    /**
+     * Probe an encoded image without decoding its pixels
+     */
+    public static DecodedImage open(byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            ImageReader reader = findReader(input);
+            try {
+                reader.setInput(input, true, true);
+                return new DecodedImage(data, reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader findReader(ImageInputStream input) throws IOException {
+        if (input == null) {
+            throw new IOException("Could not read image file");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Could not read image file");
+        }
+        return readers.next();
+    }
+
+    /**
+     * Encoded image with lazily decoded variants
+     */
+    public static class DecodedImage {
+        private final byte[] data;
+        private final int width;
+        private final int height;
+
+        // Decoded copies per subsampling factor; 1 is the full-resolution image
+        private final Map<Integer, BufferedImage> decoded = new ConcurrentHashMap<>();
+
+        DecodedImage(byte[] data, int width, int height) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Original image width
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * Original image height
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Smallest integer subsampling whose result still has its longer side at least maxSide
+         */
+        public int subsamplingFor(int maxSide) {
+            if (maxSide <= 0) {
+                return 1;
+            }
+            return Math.max(1, Math.max(width, height) / maxSide);
+        }
+
+        /**
+         * Decode with the longer side reduced towards maxSide (never below it); maxSide &lt;= 0 decodes at full size
+         */
+        public BufferedImage getImage(int maxSide) throws IOException {
+            int subsampling = subsamplingFor(maxSide);
+            BufferedImage image = decoded.get(subsampling);
+            if (image == null) {
+                long startTime = System.currentTimeMillis();
+                image = read(null, subsampling);
+                decoded.put(subsampling, image);
+                System.out.println("Decoded " + width + "x" + height + " at 1/" + subsampling + " -> "
+                        + image.getWidth() + "x" + image.getHeight() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+            }
+            return image;
+        }
+
+        /**
+         * Full-resolution image
+         */
+        public BufferedImage getFullImage() throws IOException {
+            return getImage(0);
+        }
+
+        /**
+         * Full-resolution decode of a region, clamped to the image bounds.
+         * Served from the full image when it has already been decoded.
+         */
+        public BufferedImage readRegion(Rectangle region) throws IOException {
+            Rectangle bounds = region.intersection(new Rectangle(0, 0, width, height));
+            if (bounds.isEmpty()) {
+                throw new IllegalArgumentException("Region " + region + " is outside the image");
+            }
+
+            BufferedImage full = decoded.get(1);
+            if (full != null) {
+                return full.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+            }
+            return read(bounds, 1);
+        }
+
+        private BufferedImage read(Rectangle region, int subsampling) throws IOException {
+            try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+                ImageReader reader = findReader(input);
+                try {
+                    reader.setInput(input, true, true);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    if (region != null) {
+                        param.setSourceRegion(region);
+                    }
+                    if (subsampling > 1) {
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    }
+                    return reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+}
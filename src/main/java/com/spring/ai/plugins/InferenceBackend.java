@@ -0,0 +1,106 @@
+package com.spring.ai.plugins;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Runtime-agnostic inference backend used by the detectors.
+ * A backend loads a single model file and runs float32 tensors through it.
+ */
+public interface InferenceBackend extends AutoCloseable {
+
+    /** ONNX Runtime backend (default) */
+    String ONNX_RUNTIME = "onnxruntime";
+
+    /** OpenCV DNN backend */
+    String OPENCV_DNN = "opencv-dnn";
+
+    /**
+     * Flat float output tensor together with its shape
+     */
+    class TensorOutput {
+        private final float[] data;
+        private final long[] shape;
+
+        public TensorOutput(float[] data, long[] shape) {
+            this.data = data;
+            this.shape = shape;
+        }
+
+        public float[] getData() {
+            return data;
+        }
+
+        public long[] getShape() {
+            return shape;
+        }
+
+        @Override
+        public String toString() {
+            return "TensorOutput[shape=" + Arrays.toString(shape) + ", size=" + data.length + "]";
+        }
+    }
+
+    /**
+     * Backend identifier, one of {@link #ONNX_RUNTIME} or {@link #OPENCV_DNN}
+     */
+    String getName();
+
+    /**
+     * Load the model from disk
+     */
+    void load(String modelPath) throws Exception;
+
+    /**
+     * Run the model on a single NCHW float input and return its first output
+     */
+    TensorOutput run(float[] inputData, long[] inputShape) throws Exception;
+
+    /**
+     * Declared shape of the first model input, dynamic dimensions are reported as -1
+     */
+    long[] getInputShape();
+
+    /**
+     * Declared shape of the first model output, dynamic dimensions are reported as -1
+     */
+    long[] getOutputShape();
+
+    /**
+     * Custom model metadata (class names etc.), empty when the runtime does not expose it
+     */
+    Map<String, String> getMetadata();
+
+    /**
+     * Release native resources
+     */
+    @Override
+    void close();
+
+    /**
+     * Create a backend by name, falling back to ONNX Runtime for unknown or empty names
+     */
+    static InferenceBackend create(String name) {
+        if (name != null && OPENCV_DNN.equalsIgnoreCase(name.trim())) {
+            return new OpenCvDnnBackend();
+        }
+        return new OnnxRuntimeBackend();
+    }
+
+    /**
+     * Normalize a user supplied backend name, returns null for unsupported values
+     */
+    static String normalizeName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return ONNX_RUNTIME;
+        }
+        String trimmed = name.trim().toLowerCase();
+        if (ONNX_RUNTIME.equals(trimmed) || "ort".equals(trimmed)) {
+            return ONNX_RUNTIME;
+        }
+        if (OPENCV_DNN.equals(trimmed) || "opencv".equals(trimmed)) {
+            return OPENCV_DNN;
+        }
+        return null;
+    }
+}
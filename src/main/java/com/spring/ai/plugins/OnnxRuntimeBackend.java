@@ -0,0 +1,100 @@
+package com.spring.ai.plugins;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+/**
+ * Inference backend on top of ONNX Runtime
+ */
+public class OnnxRuntimeBackend implements InferenceBackend {
+
+    private OrtEnvironment env;
+    private OrtSession session;
+    private String inputName;
+    private long[] inputShape = new long[0];
+    private long[] outputShape = new long[0];
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+
+    @Override
+    public String getName() {
+        return ONNX_RUNTIME;
+    }
+
+    @Override
+    public void load(String modelPath) throws Exception {
+        this.env = OrtEnvironment.getEnvironment();
+        this.session = env.createSession(modelPath, new OrtSession.SessionOptions());
+        this.inputName = session.getInputNames().iterator().next();
+
+        System.out.println("Input names: " + session.getInputNames());
+        System.out.println("Output names: " + session.getOutputNames());
+
+        NodeInfo inputInfo = session.getInputInfo().get(inputName);
+        if (inputInfo.getInfo() instanceof TensorInfo) {
+            inputShape = ((TensorInfo) inputInfo.getInfo()).getShape();
+        }
+        NodeInfo outputInfo = session.getOutputInfo().values().iterator().next();
+        if (outputInfo.getInfo() instanceof TensorInfo) {
+            outputShape = ((TensorInfo) outputInfo.getInfo()).getShape();
+        }
+
+        var modelMetadata = session.getMetadata();
+        System.out.println("Model metadata - Producer: " + modelMetadata.getProducerName()
+                + ", Graph: " + modelMetadata.getGraphName()
+                + ", Version: " + modelMetadata.getVersion());
+        metadata.putAll(modelMetadata.getCustomMetadata());
+    }
+
+    @Override
+    public TensorOutput run(float[] inputData, long[] shape) throws Exception {
+        try (OnnxTensor tensor = OnnxTensor.createTensor(env, FloatBuffer.wrap(inputData), shape);
+             OrtSession.Result result = session.run(Collections.singletonMap(inputName, tensor))) {
+
+            OnnxValue outputValue = result.get(0);
+            if (!(outputValue instanceof OnnxTensor)) {
+                throw new IllegalStateException("Unexpected output type: " + outputValue.getClass());
+            }
+
+            OnnxTensor outputTensor = (OnnxTensor) outputValue;
+            FloatBuffer buffer = outputTensor.getFloatBuffer();
+            float[] data = new float[buffer.remaining()];
+            buffer.get(data);
+            return new TensorOutput(data, outputTensor.getInfo().getShape());
+        }
+    }
+
+    @Override
+    public long[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    @Override
+    public long[] getOutputShape() {
+        return outputShape.clone();
+    }
+
+    @Override
+    public Map<String, String> getMetadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (session != null) {
+                session.close();
+            }
+        } catch (Exception e) {
+            System.err.println("Error closing ONNX Runtime session: " + e.getMessage());
+        }
+    }
+}
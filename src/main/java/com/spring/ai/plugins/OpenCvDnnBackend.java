@@ -0,0 +1,98 @@
+package com.spring.ai.plugins;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+
+/**
+ * Inference backend on top of OpenCV DNN (CPU).
+ * Avoids a second native runtime for small models where OpenCV is fast enough.
+ */
+public class OpenCvDnnBackend implements InferenceBackend {
+
+    static {
+        try {
+            nu.pattern.OpenCV.loadLocally();
+        } catch (Exception e) {
+            System.err.println("Error loading OpenCV: " + e.getMessage());
+        }
+    }
+
+    private Net net;
+    // Replaced by a fresh array after each run, read without the run lock
+    private volatile long[] outputShape = new long[0];
+
+    @Override
+    public String getName() {
+        return OPENCV_DNN;
+    }
+
+    @Override
+    public void load(String modelPath) throws Exception {
+        this.net = Dnn.readNetFromONNX(modelPath);
+        if (net.empty()) {
+            throw new IllegalStateException("OpenCV DNN could not read model: " + modelPath);
+        }
+        net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+        net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+        System.out.println("Output layers: " + net.getUnconnectedOutLayersNames());
+    }
+
+    @Override
+    public synchronized TensorOutput run(float[] inputData, long[] shape) throws Exception {
+        int[] dims = new int[shape.length];
+        for (int i = 0; i < shape.length; i++) {
+            dims[i] = (int) shape[i];
+        }
+
+        // Net is stateful (setInput/forward), so calls are serialized per backend instance
+        Mat blob = new Mat(dims, CvType.CV_32F);
+        Mat output = null;
+        try {
+            blob.put(new int[dims.length], inputData);
+            net.setInput(blob);
+            output = net.forward();
+
+            long[] resultShape = new long[output.dims()];
+            for (int i = 0; i < resultShape.length; i++) {
+                resultShape[i] = output.size(i);
+            }
+            float[] data = new float[(int) output.total()];
+            output.get(new int[output.dims()], data);
+
+            outputShape = resultShape.clone();
+            return new TensorOutput(data, resultShape);
+        } finally {
+            blob.release();
+            if (output != null) {
+                output.release();
+            }
+        }
+    }
+
+    @Override
+    public long[] getInputShape() {
+        // OpenCV does not expose the declared input shape; callers treat it as dynamic
+        return new long[0];
+    }
+
+    @Override
+    public long[] getOutputShape() {
+        return outputShape.clone();
+    }
+
+    @Override
+    public Map<String, String> getMetadata() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void close() {
+        // Net has no explicit release; drop the reference so the native object can be finalized
+        net = null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.spring.ai.plugins;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Recognizer for single text line crops.
+ * Implementations take every line of a request at once so they can batch them into one model run.
+ */
+public interface TextRecognizer extends AutoCloseable {
+
+    /**
+     * Text of one line with the mean probability of its characters
+     */
+    class Recognition {
+        private final String text;
+        private final float confidence;
+
+        public Recognition(String text, float confidence) {
+            this.text = text;
+            this.confidence = confidence;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return "Recognition[\"" + text + "\", " + confidence + "]";
+        }
+    }
+
+    /**
+     * Recognize line crops, results are in input order
+     */
+    List<Recognition> recognize(List<BufferedImage> lines) throws Exception;
+
+    /**
+     * Release native resources
+     */
+    @Override
+    void close();
+}
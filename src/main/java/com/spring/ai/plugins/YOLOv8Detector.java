@@ -5,17 +5,13 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
+import java.util.List;
 import javax.imageio.ImageIO;
 
-import ai.onnxruntime.OnnxTensor;
-import ai.onnxruntime.OrtEnvironment;
-import ai.onnxruntime.OrtSession;
-
 /**
  * Abstract base class for YOLOv8 ONNX detection
- * Supports different models and automatic image dimension handling
+ * Supports different models and automatic image dimension handling.
+ * Inference runs through a pluggable {@link InferenceBackend} (ONNX Runtime by default).
  */
 public abstract class YOLOv8Detector {
     
@@ -30,9 +26,9 @@ public abstract class YOLOv8Detector {
     protected float[] mean = {0.0f, 0.0f, 0.0f};
     protected float[] std = {1.0f, 1.0f, 1.0f};
     
-    // ONNX Runtime objects
-    protected OrtEnvironment env;
-    protected OrtSession session;
+    // Inference backend
+    protected InferenceBackend backend;
+    protected String backendName;
     protected String modelPath;
     
     /**
@@ -81,7 +77,15 @@ public abstract class YOLOv8Detector {
      * Constructor
      */
     public YOLOv8Detector(String modelPath) {
+        this(modelPath, InferenceBackend.ONNX_RUNTIME);
+    }
+    
+    /**
+     * Constructor with explicit inference backend
+     */
+    public YOLOv8Detector(String modelPath, String backendName) {
         this.modelPath = modelPath;
+        this.backendName = backendName;
         initializeModel();
     }
     
@@ -89,30 +93,37 @@ public abstract class YOLOv8Detector {
      * Constructor with custom parameters
      */
     public YOLOv8Detector(String modelPath, int targetWidth, int targetHeight, float confThreshold) {
+        this(modelPath, targetWidth, targetHeight, confThreshold, InferenceBackend.ONNX_RUNTIME);
+    }
+    
+    /**
+     * Constructor with custom parameters and explicit inference backend
+     */
+    public YOLOv8Detector(String modelPath, int targetWidth, int targetHeight, float confThreshold, String backendName) {
         this.modelPath = modelPath;
         this.targetWidth = targetWidth;
         this.targetHeight = targetHeight;
         this.confThreshold = confThreshold;
+        this.backendName = backendName;
         initializeModel();
     }
     
     /**
-     * Initialize ONNX model
+     * Initialize model on the configured backend
      */
     private void initializeModel() {
         try {
-            this.env = OrtEnvironment.getEnvironment();
-            this.session = env.createSession(modelPath, new OrtSession.SessionOptions());
+            this.backend = InferenceBackend.create(backendName);
+            this.backendName = backend.getName();
+            backend.load(modelPath);
             
-            System.out.println("Model loaded successfully: " + modelPath);
-            System.out.println("Input names: " + session.getInputNames());
-            System.out.println("Output names: " + session.getOutputNames());
+            System.out.println("Model loaded successfully: " + modelPath + " (backend: " + backendName + ")");
             
             // Allow subclasses to configure model-specific parameters
             configureModel();
             
         } catch (Exception e) {
-            throw new RuntimeException("Failed to load ONNX model: " + modelPath, e);
+            throw new RuntimeException("Failed to load ONNX model: " + modelPath + " with backend " + backendName, e);
         }
     }
     
@@ -148,35 +159,81 @@ public abstract class YOLOv8Detector {
             BufferedImage resizedImage = resizeImage(originalImage, targetWidth, targetHeight);
             float[] inputData = imageToTensorData(resizedImage, mean, std);
             
-            // Create tensor and run inference
+            // Run inference
             long[] shape = new long[]{1, channels, targetHeight, targetWidth};
             
-            try (OnnxTensor tensor = OnnxTensor.createTensor(env, java.nio.FloatBuffer.wrap(inputData), shape)) {
-                
-                String inputName = session.getInputNames().iterator().next();
-                Map<String, OnnxTensor> inputMap = Collections.singletonMap(inputName, tensor);
-                
-                long startTime = System.currentTimeMillis();
-                OrtSession.Result result = session.run(inputMap);
-                long endTime = System.currentTimeMillis();
-                
-                System.out.println("Inference time: " + (endTime - startTime) + "ms");
-                
-                // Process output
-                String outputName = session.getOutputNames().iterator().next();
-                Object outputValue = result.get(outputName);
-                
-                Detection[] detections = processOutput(outputValue, originalImage.getWidth(), originalImage.getHeight());
-                
-                result.close();
-                return detections;
-            }
+            long startTime = System.currentTimeMillis();
+            InferenceBackend.TensorOutput output = backend.run(inputData, shape);
+            long endTime = System.currentTimeMillis();
+            
+            System.out.println("Inference time (" + backendName + "): " + (endTime - startTime) + "ms");
+            
+            // Process output
+            return processOutput(output, originalImage.getWidth(), originalImage.getHeight());
             
         } catch (Exception e) {
             throw new RuntimeException("Detection failed", e);
         }
     }
     
+    /**
+     * Detect objects in several images with one inference call when the model has a dynamic batch dimension.
+     * Images are resized to the current target size; models with a fixed batch of 1 fall back to one call per image.
+     */
+    public Detection[][] detectBatch(List<BufferedImage> images) {
+        Detection[][] results = new Detection[images.size()][];
+        if (images.size() <= 1 || !supportsBatching()) {
+            for (int i = 0; i < images.size(); i++) {
+                results[i] = detect(images.get(i));
+            }
+            return results;
+        }
+        
+        try {
+            int imageSize = channels * targetHeight * targetWidth;
+            float[] inputData = new float[images.size() * imageSize];
+            for (int i = 0; i < images.size(); i++) {
+                BufferedImage resizedImage = resizeImage(images.get(i), targetWidth, targetHeight);
+                System.arraycopy(imageToTensorData(resizedImage, mean, std), 0, inputData, i * imageSize, imageSize);
+            }
+            
+            long[] shape = new long[]{images.size(), channels, targetHeight, targetWidth};
+            
+            long startTime = System.currentTimeMillis();
+            InferenceBackend.TensorOutput output = backend.run(inputData, shape);
+            long endTime = System.currentTimeMillis();
+            
+            System.out.println("Batch inference time (" + backendName + ", " + images.size() + " images): "
+                    + (endTime - startTime) + "ms");
+            
+            long[] outputShape = output.getShape();
+            if (outputShape.length != 3 || outputShape[0] != images.size()) {
+                throw new IllegalStateException("Unexpected batch output shape: " + Arrays.toString(outputShape));
+            }
+            
+            // [batch, classes+coords, num_detections] - process each batch entry separately
+            int rows = (int) outputShape[1];
+            int cols = (int) outputShape[2];
+            for (int i = 0; i < images.size(); i++) {
+                BufferedImage image = images.get(i);
+                results[i] = processDetections(toMatrix(output.getData(), i * rows * cols, rows, cols),
+                        image.getWidth(), image.getHeight());
+            }
+            return results;
+            
+        } catch (Exception e) {
+            throw new RuntimeException("Batch detection failed", e);
+        }
+    }
+    
+    /**
+     * Whether the model input declares a dynamic batch dimension
+     */
+    public boolean supportsBatching() {
+        long[] inputShape = backend.getInputShape();
+        return inputShape.length == 4 && inputShape[0] <= 0;
+    }
+    
     /**
      * Calculate optimal dimensions maintaining aspect ratio
      */
@@ -205,41 +262,27 @@ public abstract class YOLOv8Detector {
       /**
      * Process model output - can be overridden by subclasses
      */
-    protected Detection[] processOutput(Object outputValue, int originalWidth, int originalHeight) {
+    protected Detection[] processOutput(InferenceBackend.TensorOutput output, int originalWidth, int originalHeight) {
         try {
-            System.out.println("Processing output value type: " + outputValue.getClass().getName());
-            
-            OnnxTensor outputTensor = extractTensorFromOutput(outputValue);
-            long[] shape = outputTensor.getInfo().getShape();
+            long[] shape = output.getShape();
+            float[] data = output.getData();
             System.out.println("Output shape: " + Arrays.toString(shape));
             
             if (shape.length == 3) {
                 System.out.println("Processing 3D output tensor");
-                float[][][] output = (float[][][]) outputTensor.getValue();
-                return processDetections(output[0], originalWidth, originalHeight);
+                // [batch, classes+coords, num_detections] - use the first batch entry
+                return processDetections(toMatrix(data, 0, (int) shape[1], (int) shape[2]), originalWidth, originalHeight);
             } else if (shape.length == 2) {
                 System.out.println("Processing 2D output tensor");
-                float[][] output = (float[][]) outputTensor.getValue();
-                return processDetections(output, originalWidth, originalHeight);            } else if (shape.length == 4) {
+                return processDetections(toMatrix(data, 0, (int) shape[0], (int) shape[1]), originalWidth, originalHeight);
+            } else if (shape.length == 4) {
                 System.out.println("Processing 4D output tensor");
-                float[][][][] output = (float[][][][]) outputTensor.getValue();
-                // For 4D output, typically [batch, classes+coords, height, width] or [batch, anchors, coords+classes]
-                if (output.length > 0 && output[0].length > 0) {
-                    // Convert 4D to 2D: [classes+coords, num_detections]
-                    int numClasses = output[0].length;
-                    int numDetections = output[0][0].length * output[0][0][0].length;
-                    float[][] converted = new float[numClasses][numDetections];
-                    
-                    int idx = 0;
-                    for (int h = 0; h < output[0][0].length; h++) {
-                        for (int w = 0; w < output[0][0][0].length; w++) {
-                            for (int c = 0; c < numClasses; c++) {
-                                converted[c][idx] = output[0][c][h][w];
-                            }
-                            idx++;
-                        }
-                    }
-                    return processDetections(converted, originalWidth, originalHeight);
+                // For 4D output, typically [batch, classes+coords, height, width]
+                // Flattening height x width gives the [classes+coords, num_detections] layout
+                int numClasses = (int) shape[1];
+                int numDetections = (int) (shape[2] * shape[3]);
+                if (numClasses > 0 && numDetections > 0) {
+                    return processDetections(toMatrix(data, 0, numClasses, numDetections), originalWidth, originalHeight);
                 }
             } else {
                 System.out.println("Unsupported output shape format: " + Arrays.toString(shape));
@@ -256,20 +299,14 @@ public abstract class YOLOv8Detector {
     }
     
     /**
-     * Extract tensor from various output formats
+     * Copy a row-major [rows x cols] block of a flat output buffer into a matrix
      */
-    private OnnxTensor extractTensorFromOutput(Object outputValue) {
-        if (outputValue instanceof java.util.Optional) {
-            java.util.Optional<?> optional = (java.util.Optional<?>) outputValue;
-            if (optional.isPresent() && optional.get() instanceof OnnxTensor) {
-                return (OnnxTensor) optional.get();
-            }
-            throw new RuntimeException("Optional output is empty or not an OnnxTensor");
-        } else if (outputValue instanceof OnnxTensor) {
-            return (OnnxTensor) outputValue;
-        } else {
-            throw new RuntimeException("Unexpected output type: " + outputValue.getClass());
+    protected static float[][] toMatrix(float[] data, int offset, int rows, int cols) {
+        float[][] matrix = new float[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data, offset + r * cols, matrix[r], 0, cols);
         }
+        return matrix;
     }
       /**
      * Process detections from YOLOv8 output
@@ -351,7 +388,7 @@ public abstract class YOLOv8Detector {
     /**
      * Apply Non-Maximum Suppression to remove overlapping detections
      */
-    private java.util.List<Detection> applyNMS(java.util.List<Detection> detections, float nmsThreshold) {
+    public static java.util.List<Detection> applyNMS(java.util.List<Detection> detections, float nmsThreshold) {
         if (detections.isEmpty()) return detections;
         
         // Sort detections by confidence (highest first)
@@ -385,7 +422,7 @@ public abstract class YOLOv8Detector {
     /**
      * Calculate Intersection over Union (IoU) between two detections
      */
-    private float calculateIoU(Detection a, Detection b) {
+    public static float calculateIoU(Detection a, Detection b) {
         // Calculate intersection
         float intersectionX1 = Math.max(a.x1, b.x1);
         float intersectionY1 = Math.max(a.y1, b.y1);
@@ -460,11 +497,8 @@ public abstract class YOLOv8Detector {
      */
     public void close() {
         try {
-            if (session != null) {
-                session.close();
-            }
-            if (env != null) {
-                env.close();
+            if (backend != null) {
+                backend.close();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -480,6 +514,10 @@ public abstract class YOLOv8Detector {
         this.nmsThreshold = nmsThreshold;
     }
     
+    public float getNmsThreshold() {
+        return nmsThreshold;
+    }
+    
     public void setNormalization(float[] mean, float[] std) {
         this.mean = mean.clone();
         this.std = std.clone();
@@ -493,6 +531,10 @@ public abstract class YOLOv8Detector {
         return targetHeight;
     }
     
+    public String getBackendName() {
+        return backendName;
+    }
+    
     /**
      * Update class names based on actual number of classes detected from model output
      */
@@ -1,5 +1,7 @@
 package com.spring.ai.restai.controller;
 
+import com.spring.ai.restai.service.ResultCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,6 +12,9 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class ApiController {
 
+    @Autowired
+    private ResultCache resultCache;
+
     /**
      * API Documentation endpoint
      */
@@ -59,6 +64,23 @@ public class ApiController {
                 "timestamp", System.currentTimeMillis()));
     }
 
+    /**
+     * Result cache size, hits, coalesced requests and evictions
+     */
+    @GetMapping("/cache/results")
+    public ResponseEntity<?> getResultCacheStats() {
+        return ResponseEntity.ok(resultCache.getStats());
+    }
+
+    /**
+     * Drop all cached detection, OCR and QR results
+     */
+    @DeleteMapping("/cache/results")
+    public ResponseEntity<?> clearResultCache() {
+        resultCache.clear();
+        return ResponseEntity.ok(Map.of("success", true, "message", "Result cache cleared"));
+    }
+
     /**
      * Root endpoint
      */
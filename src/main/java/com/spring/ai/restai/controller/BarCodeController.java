@@ -1,13 +1,20 @@
 package com.spring.ai.restai.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.restai.dto.BenchmarkResult;
 import com.spring.ai.restai.dto.DetailedBarcodeResult;
 import com.spring.ai.restai.service.BarcodeService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,7 +24,9 @@ import java.util.Map;
 public class BarCodeController {
 
     @Autowired
-    private BarcodeService barcodeService;    /**
+    private BarcodeService barcodeService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();    /**
      * Process document (PDF/TIFF/Image) and detect barcodes
      */
     @PostMapping("/process")
@@ -99,7 +108,98 @@ public class BarCodeController {
                     "success", false,
                     "error", "Error processing document: " + e.getMessage()));
         }
-    }    /**
+    }
+
+    /**
+     * Process document and stream one NDJSON line per page as soon as it is done, then a summary line
+     */
+    @PostMapping("/process/stream")
+    public ResponseEntity<?> processDocumentStream(@RequestParam("file") MultipartFile file,
+                                                   @RequestParam(value = "modelId", required = false) String modelId) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "No file uploaded"));
+        }
+
+        StreamingResponseBody body = out -> {
+            long startTime = System.currentTimeMillis();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("summary", true);
+            try {
+                List<DetailedBarcodeResult> pages = barcodeService.processDocument(file, modelId, page -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(page));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                summary.put("success", true);
+                summary.put("totalPages", pages.size());
+                summary.put("detectedPages", pages.stream().filter(page -> !page.getBarcodes().isEmpty()).count());
+                summary.put("totalBarcodes", pages.stream().mapToInt(page -> page.getBarcodes().size()).sum());
+            } catch (UncheckedIOException e) {
+                // Client disconnected
+                throw e.getCause();
+            } catch (Exception e) {
+                System.err.println("Error streaming document: " + e.getMessage());
+                summary.put("success", false);
+                summary.put("error", "Error processing document: " + e.getMessage());
+            }
+            summary.put("elapsedMs", System.currentTimeMillis() - startTime);
+            out.write(objectMapper.writeValueAsBytes(summary));
+            out.write('\n');
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /**
+     * Compare embedded page image extraction with 300 DPI rendering on a (scanned) PDF
+     */
+    @PostMapping("/benchmark/pdf")
+    public ResponseEntity<?> benchmarkPdfPageLoading(@RequestParam("file") MultipartFile file,
+                                                     @RequestParam(value = "iterations", defaultValue = "3") int iterations) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "No file uploaded"));
+            }
+            if (!"application/pdf".equals(file.getContentType())) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Please upload a PDF file"));
+            }
+
+            List<BenchmarkResult> results = barcodeService.benchmarkPdfPageLoading(file, iterations);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "iterations", iterations,
+                    "results", results));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "error", "Benchmark failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Success rates of the barcode enhancement strategies per model and source, in the order they are tried
+     */
+    @GetMapping("/enhancement/stats")
+    public ResponseEntity<?> getEnhancementStats() {
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "stats", barcodeService.getEnhancementStats()));
+    }
+
+    /**
+     * Reset enhancement statistics; strategies go back to their default order
+     */
+    @DeleteMapping("/enhancement/stats")
+    public ResponseEntity<?> resetEnhancementStats() {
+        barcodeService.resetEnhancementStats();
+        return ResponseEntity.ok(Map.of("message", "Enhancement statistics reset"));
+    }
+
+    /**
      * Simple barcode detection endpoint
      */
     @PostMapping("/detect")
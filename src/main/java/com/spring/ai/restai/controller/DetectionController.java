@@ -1,6 +1,9 @@
 package com.spring.ai.restai.controller;
 
+import com.spring.ai.restai.detector.TiledDetector;
 import com.spring.ai.restai.service.DetectionService;
+import com.spring.ai.restai.dto.BenchmarkResult;
+import com.spring.ai.restai.dto.CascadeConfig;
 import com.spring.ai.restai.dto.DetectionResult;
 import com.spring.ai.restai.dto.ModelInfo;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +29,11 @@ public class DetectionController {
             @PathVariable String modelName,
             @RequestParam("image") MultipartFile imageFile,
             @RequestParam(value = "classNames", required = false) String classNames,
-            @RequestParam(value = "confThreshold", required = false) Float confThreshold) {
+            @RequestParam(value = "confThreshold", required = false) Float confThreshold,
+            @RequestParam(value = "tiled", defaultValue = "false") boolean tiled,
+            @RequestParam(value = "tileSize", defaultValue = "640") int tileSize,
+            @RequestParam(value = "tileOverlap", defaultValue = "0.2") float tileOverlap,
+            @RequestParam(value = "tileMinVariance", required = false) Double tileMinVariance) {
 
         try {
             if (imageFile.isEmpty()) {
@@ -40,7 +47,20 @@ public class DetectionController {
                         .body(Map.of("success", false, "message", "Only image files are allowed"));
             }
 
-            DetectionResult result = detectionService.detect(modelName, imageFile, classNames, confThreshold);
+            // Sliced inference for high-resolution scans where small objects vanish at model input size
+            TiledDetector.Config tiling = null;
+            if (tiled) {
+                if (tileSize < 32 || tileOverlap < 0 || tileOverlap >= 0.9f) {
+                    return ResponseEntity.badRequest().body(Map.of("success", false,
+                            "message", "tileSize must be at least 32 and tileOverlap between 0 and 0.9"));
+                }
+                tiling = new TiledDetector.Config(tileSize, tileOverlap);
+                if (tileMinVariance != null) {
+                    tiling.setMinVariance(tileMinVariance);
+                }
+            }
+
+            DetectionResult result = detectionService.detect(modelName, imageFile, classNames, confThreshold, tiling);
 
             // Wrap result with success flag
             return ResponseEntity.ok(Map.of(
@@ -50,6 +70,9 @@ public class DetectionController {
                     "imageWidth", result.getImageWidth(),
                     "imageHeight", result.getImageHeight(),
                     "processingTime", result.getProcessingTime(),
+                    "gated", result.isGated(),
+                    "tileCount", result.getTileCount(),
+                    "skippedTiles", result.getSkippedTiles(),
                     "detections", result.getDetections()));
 
         } catch (IllegalArgumentException e) {
@@ -90,6 +113,90 @@ public class DetectionController {
         }
     }
 
+    /**
+     * Compare inference backends (ONNX Runtime vs OpenCV DNN) for a model on one image
+     */
+    @PostMapping("/benchmark/{modelName}")
+    public ResponseEntity<?> benchmarkBackends(
+            @PathVariable String modelName,
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "iterations", defaultValue = "10") int iterations) {
+        try {
+            if (imageFile.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Image file is required"));
+            }
+
+            List<BenchmarkResult> results = detectionService.benchmarkBackends(modelName, imageFile, iterations);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "modelName", modelName,
+                    "iterations", iterations,
+                    "results", results));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "message", "Benchmark failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Configure a two-stage cascade: gate model (or low-res pass of the same model) before the full model
+     */
+    @PutMapping("/models/{modelName}/cascade")
+    public ResponseEntity<?> updateCascade(
+            @PathVariable String modelName,
+            @RequestBody CascadeConfig cascade) {
+        try {
+            if (!detectionService.updateModelCascade(modelName, cascade)) {
+                return ResponseEntity.status(org.springframework.http.HttpStatus.NOT_FOUND).body(Map.of(
+                        "success", false,
+                        "message", "Model not found: " + modelName));
+            }
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "modelName", modelName,
+                    "cascade", cascade));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Remove cascade gate from a model
+     */
+    @DeleteMapping("/models/{modelName}/cascade")
+    public ResponseEntity<?> removeCascade(@PathVariable String modelName) {
+        if (!detectionService.updateModelCascade(modelName, null)) {
+            return ResponseEntity.status(org.springframework.http.HttpStatus.NOT_FOUND).body(Map.of(
+                    "success", false,
+                    "message", "Model not found: " + modelName));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "Cascade removed for model: " + modelName));
+    }
+
+    /**
+     * Per-stage pass rates for all cascades (models and streams)
+     */
+    @GetMapping("/cascade/stats")
+    public ResponseEntity<?> getCascadeStats() {
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "stats", detectionService.getCascadeStats()));
+    }
+
+    /**
+     * Reset cascade statistics
+     */
+    @DeleteMapping("/cascade/stats")
+    public ResponseEntity<?> resetCascadeStats() {
+        detectionService.resetCascadeStats();
+        return ResponseEntity.ok(Map.of("message", "Cascade statistics reset"));
+    }
+
     /**
      * Get available models for detection
      */
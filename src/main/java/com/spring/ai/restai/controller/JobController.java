@@ -0,0 +1,145 @@
+package com.spring.ai.restai.controller;
+
+import com.spring.ai.restai.dto.Job;
+import com.spring.ai.restai.service.JobService;
+import com.spring.ai.restai.service.ModelService;
+import com.spring.ai.restai.service.OcrOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Asynchronous OCR, detection and barcode jobs: submit, poll or follow with server-sent events
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private ModelService modelService;
+
+    /**
+     * Queue a job and return its id right away (202 Accepted, 429 when the queue is full)
+     */
+    @PostMapping
+    public ResponseEntity<?> submitJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("type") String type,
+            @RequestParam(value = "modelName", required = false) String modelName,
+            @RequestParam(value = "priority", defaultValue = "0") int priority,
+            @RequestParam(value = "tier", required = false) String tier,
+            @RequestParam(value = "qrMode", required = false) String qrMode,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "recognizerModel", required = false) String recognizerModel,
+            @RequestParam(value = "template", required = false) String template,
+            @RequestParam(value = "classNames", required = false) String classNames,
+            @RequestParam(value = "confThreshold", required = false) Float confThreshold) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "File is required"));
+            }
+            boolean needsModel = JobService.TYPE_OCR.equals(type) || JobService.TYPE_DETECTION.equals(type);
+            if (needsModel && (modelName == null || !modelService.modelExists(modelName))) {
+                return ResponseEntity.badRequest().body(Map.of("success", false,
+                        "message", "Model '" + modelName + "' not found"));
+            }
+
+            Map<String, String> params = new LinkedHashMap<>();
+            if (modelName != null) params.put("modelName", modelName);
+            Job job;
+            switch (type) {
+                case JobService.TYPE_OCR:
+                    if (tier != null) params.put("tier", tier);
+                    if (qrMode != null) params.put("qrMode", qrMode);
+                    if (engine != null) params.put("engine", engine);
+                    if (recognizerModel != null) params.put("recognizerModel", recognizerModel);
+                    if (template != null) params.put("template", template);
+                    job = jobService.submitOcr(file, priority, modelName,
+                            OcrOptions.parse(tier, qrMode, engine, recognizerModel, template), params);
+                    break;
+                case JobService.TYPE_DETECTION:
+                    if (classNames != null) params.put("classNames", classNames);
+                    if (confThreshold != null) params.put("confThreshold", confThreshold.toString());
+                    job = jobService.submitDetection(file, priority, modelName, classNames, confThreshold, params);
+                    break;
+                case JobService.TYPE_BARCODE:
+                    job = jobService.submitBarcode(file, priority, modelName, params);
+                    break;
+                default:
+                    return ResponseEntity.badRequest().body(Map.of("success", false,
+                            "message", "Unsupported job type: " + type + " (use ocr, detection or barcode)"));
+            }
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "success", true,
+                    "jobId", job.getId(),
+                    "status", job.getStatus(),
+                    "statusUrl", "/api/jobs/" + job.getId(),
+                    "eventsUrl", "/api/jobs/" + job.getId() + "/events"));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "message", "Failed to queue job: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Job status, and its result once finished
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        Job job = jobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "Job not found or expired: " + jobId));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Follow a job with server-sent events
+     */
+    @GetMapping("/{jobId}/events")
+    public ResponseEntity<?> getJobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = jobService.subscribe(jobId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "Job not found or expired: " + jobId));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Cancel a job that is still queued
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<?> cancelJob(@PathVariable String jobId) {
+        if (jobService.cancel(jobId)) {
+            return ResponseEntity.ok(Map.of("success", true, "message", "Job cancelled"));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("success", false, "message", "Job is unknown, running or already finished"));
+    }
+
+    /**
+     * Queue depth, workers and wait times per job type
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(jobService.getStats());
+    }
+}
@@ -1,6 +1,9 @@
 package com.spring.ai.restai.controller;
 
+import com.spring.ai.restai.service.BarcodeService;
+import com.spring.ai.restai.service.DetectionService;
 import com.spring.ai.restai.service.ModelService;
+import com.spring.ai.restai.service.TextRecognitionService;
 import com.spring.ai.restai.dto.ModelInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -15,7 +18,16 @@ import java.util.Map;
 public class ModelController {
 
     @Autowired
-    private ModelService modelService;    /**
+    private ModelService modelService;
+
+    @Autowired
+    private DetectionService detectionService;
+
+    @Autowired
+    private BarcodeService barcodeService;
+
+    @Autowired
+    private TextRecognitionService textRecognitionService;    /**
      * Upload ONNX model
      */
     @PostMapping("/upload")
@@ -23,7 +35,9 @@ public class ModelController {
             @RequestParam("file") MultipartFile fileUpload,
             @RequestParam("name") String modelName,
             @RequestParam("type") String modelType,
-            @RequestParam(value = "description", required = false) String description) {
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "backend", required = false) String backend,
+            @RequestParam(value = "dictionary", required = false) MultipartFile dictionary) {
 
         try {
             if (fileUpload.isEmpty()) {
@@ -33,7 +47,10 @@ public class ModelController {
             if (!fileUpload.getOriginalFilename().endsWith(".onnx")) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("success", false, "message", "Only ONNX files are allowed"));
-            }            ModelInfo modelInfo = modelService.uploadModel(fileUpload, modelName, modelType, description);
+            }            ModelInfo modelInfo = modelService.uploadModel(fileUpload, modelName, modelType, description, backend);
+            if (dictionary != null && !dictionary.isEmpty()) {
+                modelInfo = modelService.uploadDictionary(modelInfo.getId(), dictionary);
+            }
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Model uploaded successfully",
@@ -41,6 +58,8 @@ public class ModelController {
                     "modelName", modelInfo.getName(),
                     "model", modelInfo));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("success", false, "message", e.getMessage()));
         }
@@ -88,6 +107,7 @@ public class ModelController {
         try {
             boolean deleted = modelService.deleteModel(modelName);
             if (deleted) {
+                textRecognitionService.clearRecognizerCache(modelName);
                 return ResponseEntity.ok(Map.of("message", "Model deleted successfully"));
             } else {
                 return ResponseEntity.notFound().build();
@@ -120,4 +140,64 @@ public class ModelController {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * Select inference backend (onnxruntime or opencv-dnn) for a model
+     */
+    @PutMapping("/{modelId}/backend")
+    public ResponseEntity<?> updateModelBackend(
+            @PathVariable String modelId,
+            @RequestParam("backend") String backend) {
+        try {
+            ModelInfo modelInfo = modelService.updateModelBackend(modelId, backend);
+            if (modelInfo == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            // Cached detectors are keyed by id or name, drop both so the new backend is picked up
+            detectionService.clearDetectorCache(modelInfo.getId());
+            detectionService.clearDetectorCache(modelInfo.getName());
+            barcodeService.clearDetectorCache(modelInfo.getId());
+            barcodeService.clearDetectorCache(modelInfo.getName());
+            textRecognitionService.clearRecognizerCache(modelInfo.getId());
+            textRecognitionService.clearRecognizerCache(modelInfo.getName());
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Model backend updated",
+                    "modelId", modelInfo.getId(),
+                    "backend", modelInfo.getBackend()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Upload or replace the character dictionary of a text recognition model (one character per line)
+     */
+    @PostMapping("/{modelId}/dictionary")
+    public ResponseEntity<?> uploadDictionary(
+            @PathVariable String modelId,
+            @RequestParam("file") MultipartFile file) {
+        try {
+            ModelInfo modelInfo = modelService.uploadDictionary(modelId, file);
+            if (modelInfo == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            textRecognitionService.clearRecognizerCache(modelInfo.getId());
+            textRecognitionService.clearRecognizerCache(modelInfo.getName());
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "Dictionary uploaded",
+                    "modelId", modelInfo.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
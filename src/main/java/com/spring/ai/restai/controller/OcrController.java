@@ -1,13 +1,23 @@
 package com.spring.ai.restai.controller;
 
+import com.spring.ai.restai.dto.BenchmarkResult;
+import com.spring.ai.restai.dto.CardTemplate;
 import com.spring.ai.restai.dto.OcrDetectionResponse;
+import com.spring.ai.restai.service.BulkOcrService;
+import com.spring.ai.restai.service.CardTemplateService;
+import com.spring.ai.restai.service.OcrOptions;
+import com.spring.ai.restai.service.OcrProfile;
 import com.spring.ai.restai.service.OcrService;
+import com.spring.ai.restai.service.TesseractPool;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,13 +32,27 @@ public class OcrController {
     @Autowired
     private OcrService ocrService;
 
+    @Autowired
+    private CardTemplateService cardTemplateService;
+
+    @Autowired
+    private BulkOcrService bulkOcrService;
+
+    @Autowired
+    private TesseractPool tesseractPool;
+
     /**
      * Perform OCR detection - combines object detection with OCR
      */
     @PostMapping("/detect/{modelName}")
     public ResponseEntity<Map<String, Object>> performOcrDetection(
             @PathVariable String modelName,
-            @RequestParam("image") MultipartFile imageFile) {
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "tier", required = false) String tier,
+            @RequestParam(value = "qrMode", required = false) String qrMode,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "recognizerModel", required = false) String recognizerModel,
+            @RequestParam(value = "template", required = false) String template) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -45,7 +69,8 @@ public class OcrController {
                 response.put("error", "Model name is required");
                 return ResponseEntity.badRequest().body(response);
             }            // Perform OCR detection
-            OcrDetectionResponse result = ocrService.performOcrDetection(imageFile, modelName);
+            OcrDetectionResponse result = ocrService.performOcrDetection(imageFile, modelName,
+                    OcrOptions.parse(tier, qrMode, engine, recognizerModel, template));
 
             // Convert OcrResult to format expected by frontend
             List<Map<String, Object>> formattedResults = new ArrayList<>();
@@ -81,7 +106,10 @@ public class OcrController {
                     "results", formattedResults,
                     "processingTimeMs", result.getProcessingTimeMs(),
                     "imageInfo", result.getImageInfo(),
-                    "cccdInfo", result.getCccdInfo()
+                    "cccdInfo", result.getCccdInfo(),
+                    "cccdSource", result.getCccdSource(),
+                    "qrMismatches", result.getQrMismatches(),
+                    "fieldSource", result.getFieldSource()
             ));
             return ResponseEntity.ok(response);
 
@@ -103,13 +131,19 @@ public class OcrController {
      */    @PostMapping("/extract")
     public ResponseEntity<Map<String, Object>> extractText(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "modelId", required = false) String modelId) {
+            @RequestParam(value = "modelId", required = false) String modelId,
+            @RequestParam(value = "tier", required = false) String tier,
+            @RequestParam(value = "qrMode", required = false) String qrMode,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "recognizerModel", required = false) String recognizerModel,
+            @RequestParam(value = "template", required = false) String template) {
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("success", false, "message", "File is required"));
             }            // Use provided model ID or default model for simple extraction
             String modelToUse = (modelId != null && !modelId.trim().isEmpty()) ? modelId : "DetectCCCD";
-            OcrDetectionResponse result = ocrService.performOcrDetection(file, modelToUse);
+            OcrDetectionResponse result = ocrService.performOcrDetection(file, modelToUse,
+                    OcrOptions.parse(tier, qrMode, engine, recognizerModel, template));
 
             // Extract text from all OCR results
             StringBuilder allText = new StringBuilder();
@@ -153,7 +187,9 @@ public class OcrController {
                     "results", formattedResults,
                     "processingTime", result.getProcessingTimeMs(),
                     "fileName", file.getOriginalFilename(),
-                    "cccdInfo", result.getCccdInfo()
+                    "cccdInfo", result.getCccdInfo(),
+                    "cccdSource", result.getCccdSource(),
+                    "fieldSource", result.getFieldSource()
             ));
 
         } catch (Exception e) {
@@ -163,4 +199,153 @@ public class OcrController {
             ));
         }
     }
+
+    /**
+     * Benchmark per-field OCR latency at several target text heights
+     */
+    @PostMapping("/benchmark/{modelName}")
+    public ResponseEntity<?> benchmarkOcr(
+            @PathVariable String modelName,
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "targetHeights", defaultValue = "32,48,64,200") String targetHeights,
+            @RequestParam(value = "iterations", defaultValue = "5") int iterations,
+            @RequestParam(value = "tier", required = false) String tier) {
+        try {
+            if (imageFile.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Image file is required"));
+            }
+            if (iterations < 1 || iterations > 100) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "iterations must be between 1 and 100"));
+            }
+
+            int[] heights = Arrays.stream(targetHeights.split(","))
+                    .map(String::trim)
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+            for (int height : heights) {
+                if (height < 8 || height > 400) {
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "message", "targetHeights must be between 8 and 400"));
+                }
+            }
+
+            List<BenchmarkResult> results = ocrService.benchmarkOcr(imageFile, modelName, heights, iterations,
+                    OcrProfile.Tier.parse(tier));
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "modelName", modelName,
+                    "iterations", iterations,
+                    "results", results));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", String.valueOf(e.getMessage())));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "message", "OCR benchmark failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Compare line-by-line and stitched OCR of multi-line address fields
+     */
+    @PostMapping("/benchmark/{modelName}/address")
+    public ResponseEntity<?> benchmarkAddressStitching(
+            @PathVariable String modelName,
+            @RequestParam("image") MultipartFile imageFile,
+            @RequestParam(value = "iterations", defaultValue = "5") int iterations,
+            @RequestParam(value = "tier", required = false) String tier,
+            @RequestParam(value = "expectedPlaceOfOrigin", required = false) String expectedPlaceOfOrigin,
+            @RequestParam(value = "expectedPlaceOfResidence", required = false) String expectedPlaceOfResidence) {
+        try {
+            if (imageFile.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Image file is required"));
+            }
+            if (iterations < 1 || iterations > 100) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "iterations must be between 1 and 100"));
+            }
+
+            Map<String, String> expected = new HashMap<>();
+            if (expectedPlaceOfOrigin != null) {
+                expected.put("place_of_origin", expectedPlaceOfOrigin);
+            }
+            if (expectedPlaceOfResidence != null) {
+                expected.put("place_of_residence", expectedPlaceOfResidence);
+            }
+
+            List<BenchmarkResult> results = ocrService.benchmarkAddressStitching(imageFile, modelName, iterations,
+                    OcrProfile.Tier.parse(tier), expected);
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "modelName", modelName,
+                    "iterations", iterations,
+                    "results", results));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", String.valueOf(e.getMessage())));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "message", "Address OCR benchmark failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Bulk OCR of many card images (files and/or a zip), streamed as one NDJSON line per document
+     */
+    @PostMapping("/bulk/{modelName}")
+    public ResponseEntity<?> performBulkOcr(
+            @PathVariable String modelName,
+            @RequestParam(value = "images", required = false) List<MultipartFile> images,
+            @RequestParam(value = "archive", required = false) MultipartFile archive,
+            @RequestParam(value = "tier", required = false) String tier,
+            @RequestParam(value = "qrMode", required = false) String qrMode,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestParam(value = "recognizerModel", required = false) String recognizerModel,
+            @RequestParam(value = "template", required = false) String template) {
+        try {
+            boolean hasImages = images != null && images.stream().anyMatch(image -> !image.isEmpty());
+            if (!hasImages && (archive == null || archive.isEmpty())) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("success", false, "message", "Provide images and/or a zip archive"));
+            }
+            OcrOptions options = OcrOptions.parse(tier, qrMode, engine, recognizerModel, template);
+            bulkOcrService.validate(modelName, options);
+
+            StreamingResponseBody body = out -> bulkOcrService.process(modelName, options, images, archive, out);
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Tesseract engine pool size, availability and borrow wait times
+     */
+    @GetMapping("/pool/stats")
+    public ResponseEntity<Map<String, Object>> getPoolStats() {
+        return ResponseEntity.ok(tesseractPool.getStats());
+    }
+
+    /**
+     * Card templates available for the template fast path
+     */
+    @GetMapping("/templates")
+    public ResponseEntity<Map<String, Object>> listTemplates() {
+        List<CardTemplate> templates = cardTemplateService.listTemplates();
+        return ResponseEntity.ok(Map.of("success", true, "templates", templates, "total", templates.size()));
+    }
+
+    /**
+     * Register or replace a card template (field rectangles normalized to 0..1)
+     */
+    @PutMapping("/templates")
+    public ResponseEntity<Map<String, Object>> registerTemplate(@RequestBody CardTemplate template) {
+        try {
+            CardTemplate saved = cardTemplateService.registerTemplate(template);
+            return ResponseEntity.ok(Map.of("success", true, "message", "Template registered", "template", saved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("success", false, "message", "Failed to save template: " + e.getMessage()));
+        }
+    }
 }
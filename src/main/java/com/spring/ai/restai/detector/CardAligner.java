@@ -0,0 +1,168 @@
+package com.spring.ai.restai.detector;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Locates a card in a photo or scan and warps it to a canonical size with a homography.
+ * Corners come from the largest card-shaped contour; a QR code at a known template position can serve as anchor
+ * instead (upright images only, since the QR box is axis aligned).
+ */
+public class CardAligner {
+
+    private static final double MIN_CARD_AREA = 0.2;        // Fraction of the image the card must cover
+    private static final double ASPECT_TOLERANCE = 0.2;
+
+    private CardAligner() {}
+
+    /**
+     * Card corners (top-left, top-right, bottom-right, bottom-left) or null when no card-shaped quad is found
+     */
+    public static Point[] findCardCorners(BufferedImage image, double expectedAspect) {
+        Mat source = toMat(image);
+        Mat gray = new Mat();
+        Mat edges = new Mat();
+        List<MatOfPoint> contours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        try {
+            Imgproc.cvtColor(source, gray, Imgproc.COLOR_BGR2GRAY);
+            Imgproc.GaussianBlur(gray, gray, new Size(5, 5), 0);
+            Imgproc.Canny(gray, edges, 50, 150);
+            Imgproc.dilate(edges, edges, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+            Imgproc.findContours(edges, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+            double imageArea = (double) image.getWidth() * image.getHeight();
+            contours.sort(Comparator.comparingDouble((MatOfPoint c) -> Imgproc.contourArea(c)).reversed());
+            for (MatOfPoint contour : contours) {
+                if (Imgproc.contourArea(contour) < MIN_CARD_AREA * imageArea) {
+                    break;
+                }
+                MatOfPoint2f curve = new MatOfPoint2f(contour.toArray());
+                MatOfPoint2f approx = new MatOfPoint2f();
+                Imgproc.approxPolyDP(curve, approx, 0.02 * Imgproc.arcLength(curve, true), true);
+                Point[] points = approx.toArray();
+                if (points.length == 4 && Imgproc.isContourConvex(new MatOfPoint(points))) {
+                    Point[] corners = orderCorners(points);
+                    if (matchesAspect(corners, expectedAspect)) {
+                        return corners;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            source.release();
+            gray.release();
+            edges.release();
+            hierarchy.release();
+            contours.forEach(Mat::release);
+        }
+    }
+
+    /**
+     * Card corners implied by a QR box, given where the QR sits on the canonical card
+     */
+    public static Point[] cornersFromAnchor(Rectangle anchorInImage, Rectangle anchorInTemplate, int templateWidth,
+                                            int templateHeight) {
+        Mat transform = Imgproc.getPerspectiveTransform(rectCorners(anchorInTemplate), rectCorners(anchorInImage));
+        MatOfPoint2f cardCorners = new MatOfPoint2f(new Point(0, 0), new Point(templateWidth, 0),
+                new Point(templateWidth, templateHeight), new Point(0, templateHeight));
+        MatOfPoint2f projected = new MatOfPoint2f();
+        try {
+            Core.perspectiveTransform(cardCorners, projected, transform);
+            return projected.toArray();
+        } finally {
+            transform.release();
+        }
+    }
+
+    /**
+     * Warp the quad spanned by corners to a width x height image
+     */
+    public static BufferedImage warp(BufferedImage image, Point[] corners, int width, int height) {
+        Mat source = toMat(image);
+        Mat warped = new Mat();
+        Mat transform = Imgproc.getPerspectiveTransform(new MatOfPoint2f(corners), new MatOfPoint2f(
+                new Point(0, 0), new Point(width, 0), new Point(width, height), new Point(0, height)));
+        try {
+            Imgproc.warpPerspective(source, warped, transform, new Size(width, height), Imgproc.INTER_LINEAR);
+            BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            warped.get(0, 0, ((DataBufferByte) result.getRaster().getDataBuffer()).getData());
+            return result;
+        } finally {
+            source.release();
+            warped.release();
+            transform.release();
+        }
+    }
+
+    /**
+     * Scale corners found on a reduced image back to full resolution
+     */
+    public static Point[] scale(Point[] corners, double factor) {
+        Point[] scaled = new Point[corners.length];
+        for (int i = 0; i < corners.length; i++) {
+            scaled[i] = new Point(corners[i].x * factor, corners[i].y * factor);
+        }
+        return scaled;
+    }
+
+    /**
+     * Order by the usual sum/difference rule: top-left has the smallest x+y, bottom-right the largest,
+     * top-right the smallest y-x and bottom-left the largest
+     */
+    private static Point[] orderCorners(Point[] points) {
+        Point topLeft = points[0], topRight = points[0], bottomRight = points[0], bottomLeft = points[0];
+        for (Point p : points) {
+            if (p.x + p.y < topLeft.x + topLeft.y) topLeft = p;
+            if (p.x + p.y > bottomRight.x + bottomRight.y) bottomRight = p;
+            if (p.y - p.x < topRight.y - topRight.x) topRight = p;
+            if (p.y - p.x > bottomLeft.y - bottomLeft.x) bottomLeft = p;
+        }
+        return new Point[]{topLeft, topRight, bottomRight, bottomLeft};
+    }
+
+    private static boolean matchesAspect(Point[] corners, double expectedAspect) {
+        double top = distance(corners[0], corners[1]);
+        double bottom = distance(corners[3], corners[2]);
+        double left = distance(corners[0], corners[3]);
+        double right = distance(corners[1], corners[2]);
+        double aspect = (top + bottom) / Math.max(1.0, left + right);
+        return Math.abs(aspect - expectedAspect) <= ASPECT_TOLERANCE * expectedAspect;
+    }
+
+    private static double distance(Point a, Point b) {
+        return Math.hypot(a.x - b.x, a.y - b.y);
+    }
+
+    private static MatOfPoint2f rectCorners(Rectangle r) {
+        return new MatOfPoint2f(new Point(r.x, r.y), new Point(r.x + r.width, r.y),
+                new Point(r.x + r.width, r.y + r.height), new Point(r.x, r.y + r.height));
+    }
+
+    private static Mat toMat(BufferedImage image) {
+        BufferedImage bgr = image;
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR || image.getRaster().getParent() != null) {
+            bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g2d = bgr.createGraphics();
+            g2d.drawImage(image, 0, 0, null);
+            g2d.dispose();
+        }
+        Mat mat = new Mat(bgr.getHeight(), bgr.getWidth(), CvType.CV_8UC3);
+        mat.put(0, 0, ((DataBufferByte) bgr.getRaster().getDataBuffer()).getData());
+        return mat;
+    }
+}
@@ -1,7 +1,8 @@
 package com.spring.ai.restai.detector;
 
 import com.spring.ai.plugins.YOLOv8Detector;
-import ai.onnxruntime.OrtException;
+
+import java.util.Map;
 
 /**
  * Generic YOLO detector implementation that can work with any YOLO model
@@ -27,14 +28,26 @@ public class GenericYOLODetector extends YOLOv8Detector {
     public GenericYOLODetector(String modelPath, int targetWidth, int targetHeight, float confThreshold, String[] classNames) {
         super(modelPath, targetWidth, targetHeight, confThreshold);
         this.classNames = classNames;
+    }
+    
+    public GenericYOLODetector(String modelPath, int targetWidth, int targetHeight, float confThreshold, String backendName) {
+        super(modelPath, targetWidth, targetHeight, confThreshold, backendName);
     }    @Override
     protected void configureModel() {
         // Default configuration - can be customized per model
         System.out.println("Configuring generic YOLO model with default settings");
         
-        // Force fixed target dimensions to match model requirements
-        targetWidth = 640;
-        targetHeight = 640;
+        // Models exported with a fixed input size must run at that size;
+        // dynamic-shape models keep the size passed to the constructor
+        long[] inputShape = backend.getInputShape();
+        if (inputShape.length == 4 && inputShape[2] > 0 && inputShape[3] > 0) {
+            if (inputShape[3] != targetWidth || inputShape[2] != targetHeight) {
+                System.out.println("Model has fixed input " + inputShape[3] + "x" + inputShape[2]
+                        + ", ignoring requested " + targetWidth + "x" + targetHeight);
+            }
+            targetWidth = (int) inputShape[3];
+            targetHeight = (int) inputShape[2];
+        }
         
         // Log model metadata for debugging
         logModelMetadata();
@@ -59,9 +72,7 @@ public class GenericYOLODetector extends YOLOv8Detector {
     @Override
     protected void calculateOptimalDimensions(int originalWidth, int originalHeight) {
         // Override to use fixed dimensions instead of maintaining aspect ratio
-        // Most YOLO models expect square input (640x640)
-        targetWidth = 640;
-        targetHeight = 640;
+        // Most YOLO models expect square input (640x640), set once in configureModel
         
         System.out.println("Using fixed target dimensions: " + targetWidth + "x" + targetHeight);
     }
@@ -133,26 +144,20 @@ public class GenericYOLODetector extends YOLOv8Detector {
      */
     private String[] readClassNamesFromModel() {
         try {
-            if (session == null) {
-                System.out.println("Session not initialized - cannot read metadata");
+            if (backend == null) {
+                System.out.println("Backend not initialized - cannot read metadata");
                 return null;
             }
             
-            // Get model metadata
-            var metadata = session.getMetadata();
-            System.out.println("Model metadata - Producer: " + metadata.getProducerName());
-            System.out.println("Model metadata - Description: " + metadata.getDescription());
-            
             // Check custom metadata for class names
-            var customMetadata = metadata.getCustomMetadata();
+            Map<String, String> customMetadata = backend.getMetadata();
             System.out.println("Custom metadata keys: " + customMetadata.keySet());
             
             // Try common keys for class names
             String[] possibleKeys = {"names", "class_names", "classes", "labels"};
             for (String key : possibleKeys) {
-                var classNamesValue = metadata.getCustomMetadataValue(key);
-                if (classNamesValue.isPresent()) {
-                    String classNamesStr = classNamesValue.get();
+                String classNamesStr = customMetadata.get(key);
+                if (classNamesStr != null) {
                     System.out.println("Found class names in metadata[" + key + "]: " + classNamesStr);
                     
                     // Parse class names - could be JSON array, comma-separated, etc.
@@ -166,9 +171,6 @@ public class GenericYOLODetector extends YOLOv8Detector {
             System.out.println("No class names found in model metadata");
             return null;
             
-        } catch (OrtException e) {
-            System.err.println("ONNX Runtime error reading model metadata: " + e.getMessage());
-            return null;
         } catch (Exception e) {
             System.err.println("Error reading model metadata: " + e.getMessage());
             return null;
@@ -307,20 +309,17 @@ public class GenericYOLODetector extends YOLOv8Detector {
      */
     private void logModelMetadata() {
         try {
-            if (session == null) {
-                System.out.println("Session not available for metadata logging");
+            if (backend == null) {
+                System.out.println("Backend not available for metadata logging");
                 return;
             }
             
-            var metadata = session.getMetadata();
             System.out.println("=== Model Metadata ===");
-            System.out.println("Producer: " + metadata.getProducerName());
-            System.out.println("Graph Name: " + metadata.getGraphName());
-            System.out.println("Description: " + metadata.getDescription());
-            System.out.println("Domain: " + metadata.getDomain());
-            System.out.println("Version: " + metadata.getVersion());
+            System.out.println("Backend: " + backend.getName());
+            System.out.println("Input shape: " + java.util.Arrays.toString(backend.getInputShape()));
+            System.out.println("Output shape: " + java.util.Arrays.toString(backend.getOutputShape()));
             
-            var customMetadata = metadata.getCustomMetadata();
+            Map<String, String> customMetadata = backend.getMetadata();
             if (!customMetadata.isEmpty()) {
                 System.out.println("Custom metadata:");
                 for (var entry : customMetadata.entrySet()) {
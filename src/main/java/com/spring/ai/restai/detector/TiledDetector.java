@@ -0,0 +1,203 @@
+package com.spring.ai.restai.detector;
+
+import com.spring.ai.plugins.YOLOv8Detector;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Sliced inference for high-resolution inputs.
+ * The image is cut into overlapping tiles, flat tiles are skipped, the remaining tiles run in batches
+ * in parallel and all boxes are mapped back to image coordinates before one global NMS.
+ */
+public class TiledDetector {
+
+    /**
+     * Tiling parameters
+     */
+    public static class Config {
+        private int tileSize = 640;
+        private float overlap = 0.2f;         // Fraction of the tile shared with its neighbour
+        private double minVariance = 25.0;    // Tiles with lower luminance variance are treated as empty
+        private int batchSize = 4;            // Tiles per inference call (dynamic-batch models only)
+        private boolean includeFullImage = true; // Extra downscaled pass so objects larger than a tile are kept
+
+        public Config() {}
+
+        public Config(int tileSize, float overlap) {
+            this.tileSize = tileSize;
+            this.overlap = overlap;
+        }
+
+        public int getTileSize() { return tileSize; }
+        public void setTileSize(int tileSize) { this.tileSize = tileSize; }
+
+        public float getOverlap() { return overlap; }
+        public void setOverlap(float overlap) { this.overlap = overlap; }
+
+        public double getMinVariance() { return minVariance; }
+        public void setMinVariance(double minVariance) { this.minVariance = minVariance; }
+
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+        public boolean isIncludeFullImage() { return includeFullImage; }
+        public void setIncludeFullImage(boolean includeFullImage) { this.includeFullImage = includeFullImage; }
+    }
+
+    /**
+     * Merged detections plus tiling statistics
+     */
+    public static class Result {
+        private final YOLOv8Detector.Detection[] detections;
+        private final int tileCount;
+        private final int skippedTiles;
+
+        public Result(YOLOv8Detector.Detection[] detections, int tileCount, int skippedTiles) {
+            this.detections = detections;
+            this.tileCount = tileCount;
+            this.skippedTiles = skippedTiles;
+        }
+
+        public YOLOv8Detector.Detection[] getDetections() { return detections; }
+        public int getTileCount() { return tileCount; }
+        public int getSkippedTiles() { return skippedTiles; }
+    }
+
+    private static class Tile {
+        final int x, y;
+        final BufferedImage image;
+
+        Tile(int x, int y, BufferedImage image) {
+            this.x = x;
+            this.y = y;
+            this.image = image;
+        }
+    }
+
+    private final YOLOv8Detector detector;
+    private final ExecutorService executor;
+
+    public TiledDetector(YOLOv8Detector detector, ExecutorService executor) {
+        this.detector = detector;
+        this.executor = executor;
+    }
+
+    /**
+     * Run tiled detection and return globally merged detections
+     */
+    public Result detect(BufferedImage image, Config config) throws Exception {
+        if (config.tileSize <= 0 || config.overlap < 0 || config.overlap >= 1) {
+            throw new IllegalArgumentException("Invalid tiling parameters: tileSize must be > 0 and overlap in [0, 1)");
+        }
+
+        List<Tile> tiles = createTiles(image, config.tileSize, config.overlap);
+        List<Tile> activeTiles = new ArrayList<>();
+        for (Tile tile : tiles) {
+            if (luminanceVariance(tile.image) >= config.minVariance) {
+                activeTiles.add(tile);
+            }
+        }
+        int skipped = tiles.size() - activeTiles.size();
+        System.out.println("Tiling " + image.getWidth() + "x" + image.getHeight() + " into " + tiles.size()
+                + " tiles of " + config.tileSize + "px, " + skipped + " skipped as empty");
+
+        // Submit tile batches in parallel; the detector's backend is safe for concurrent runs
+        int batchSize = Math.max(1, config.batchSize);
+        List<List<Tile>> batches = new ArrayList<>();
+        List<Future<YOLOv8Detector.Detection[][]>> futures = new ArrayList<>();
+        for (int start = 0; start < activeTiles.size(); start += batchSize) {
+            List<Tile> batch = activeTiles.subList(start, Math.min(start + batchSize, activeTiles.size()));
+            List<BufferedImage> batchImages = new ArrayList<>();
+            for (Tile tile : batch) {
+                batchImages.add(tile.image);
+            }
+            batches.add(batch);
+            futures.add(executor.submit(() -> detector.detectBatch(batchImages)));
+        }
+
+        List<YOLOv8Detector.Detection> merged = new ArrayList<>();
+        if (config.includeFullImage && tiles.size() > 1) {
+            for (YOLOv8Detector.Detection det : detector.detect(image)) {
+                merged.add(det);
+            }
+        }
+
+        for (int b = 0; b < batches.size(); b++) {
+            YOLOv8Detector.Detection[][] batchResults = futures.get(b).get();
+            List<Tile> batch = batches.get(b);
+            for (int i = 0; i < batch.size(); i++) {
+                Tile tile = batch.get(i);
+                for (YOLOv8Detector.Detection det : batchResults[i]) {
+                    merged.add(new YOLOv8Detector.Detection(det.x1 + tile.x, det.y1 + tile.y,
+                            det.x2 + tile.x, det.y2 + tile.y, det.confidence, det.classId, det.className));
+                }
+            }
+        }
+
+        List<YOLOv8Detector.Detection> result = YOLOv8Detector.applyNMS(merged, detector.getNmsThreshold());
+        System.out.println("Tiled detection merged " + merged.size() + " boxes into " + result.size());
+        return new Result(result.toArray(new YOLOv8Detector.Detection[0]), tiles.size(), skipped);
+    }
+
+    /**
+     * Cut the image into overlapping tiles; the last row and column are aligned to the image edge
+     */
+    private List<Tile> createTiles(BufferedImage image, int tileSize, float overlap) {
+        List<Tile> tiles = new ArrayList<>();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, Math.round(tileSize * (1 - overlap)));
+
+        for (int y : tileOffsets(height, tileSize, step)) {
+            for (int x : tileOffsets(width, tileSize, step)) {
+                int w = Math.min(tileSize, width - x);
+                int h = Math.min(tileSize, height - y);
+                tiles.add(new Tile(x, y, image.getSubimage(x, y, w, h)));
+            }
+        }
+        return tiles;
+    }
+
+    private List<Integer> tileOffsets(int length, int tileSize, int step) {
+        List<Integer> offsets = new ArrayList<>();
+        if (length <= tileSize) {
+            offsets.add(0);
+            return offsets;
+        }
+        for (int pos = 0; pos + tileSize < length; pos += step) {
+            offsets.add(pos);
+        }
+        offsets.add(length - tileSize);
+        return offsets;
+    }
+
+    /**
+     * Luminance variance on a sparse grid, cheap enough to run on every tile
+     */
+    private double luminanceVariance(BufferedImage tile) {
+        int stride = Math.max(1, Math.min(tile.getWidth(), tile.getHeight()) / 64);
+        double sum = 0;
+        double sumSq = 0;
+        int count = 0;
+
+        for (int y = 0; y < tile.getHeight(); y += stride) {
+            for (int x = 0; x < tile.getWidth(); x += stride) {
+                int rgb = tile.getRGB(x, y);
+                double luma = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                sum += luma;
+                sumSq += luma * luma;
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+        double mean = sum / count;
+        return sumSq / count - mean * mean;
+    }
+}
@@ -0,0 +1,96 @@
+package com.spring.ai.restai.dto;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency statistics for one benchmark variant
+ */
+public class BenchmarkResult {
+    private String name;
+    private int iterations;
+    private double avgMs;
+    private double minMs;
+    private double maxMs;
+    private double p50Ms;
+    private double p95Ms;
+    private Map<String, Object> details = new LinkedHashMap<>();
+
+    public BenchmarkResult() {}
+
+    public BenchmarkResult(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Build a result from raw per-iteration timings in nanoseconds
+     */
+    public static BenchmarkResult fromNanos(String name, long[] timingsNanos) {
+        BenchmarkResult result = new BenchmarkResult(name);
+        result.iterations = timingsNanos.length;
+        if (timingsNanos.length == 0) {
+            return result;
+        }
+
+        long[] sorted = timingsNanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long t : sorted) {
+            total += t;
+        }
+
+        result.avgMs = toMs(total / (double) sorted.length);
+        result.minMs = toMs(sorted[0]);
+        result.maxMs = toMs(sorted[sorted.length - 1]);
+        result.p50Ms = toMs(sorted[(int) Math.floor((sorted.length - 1) * 0.50)]);
+        result.p95Ms = toMs(sorted[(int) Math.floor((sorted.length - 1) * 0.95)]);
+        return result;
+    }
+
+    private static double toMs(double nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    public BenchmarkResult detail(String key, Object value) {
+        details.put(key, value);
+        return this;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public int getIterations() { return iterations; }
+    public void setIterations(int iterations) { this.iterations = iterations; }
+
+    public double getAvgMs() { return avgMs; }
+    public void setAvgMs(double avgMs) { this.avgMs = avgMs; }
+
+    public double getMinMs() { return minMs; }
+    public void setMinMs(double minMs) { this.minMs = minMs; }
+
+    public double getMaxMs() { return maxMs; }
+    public void setMaxMs(double maxMs) { this.maxMs = maxMs; }
+
+    public double getP50Ms() { return p50Ms; }
+    public void setP50Ms(double p50Ms) { this.p50Ms = p50Ms; }
+
+    public double getP95Ms() { return p95Ms; }
+    public void setP95Ms(double p95Ms) { this.p95Ms = p95Ms; }
+
+    public Map<String, Object> getDetails() { return details; }
+    public void setDetails(Map<String, Object> details) { this.details = details; }
+
+    @Override
+    public String toString() {
+        return "BenchmarkResult{" +
+                "name='" + name + '\'' +
+                ", iterations=" + iterations +
+                ", avgMs=" + avgMs +
+                ", p50Ms=" + p50Ms +
+                ", p95Ms=" + p95Ms +
+                ", details=" + details +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+package com.spring.ai.restai.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed card layout: canonical size the card is warped to and field rectangles
+ * in normalized coordinates (0..1 of the card width/height)
+ */
+public class CardTemplate {
+    private String name;
+    private int width = 1712;       // Canonical card size in pixels after warping
+    private int height = 1080;
+    private List<Field> fields = new ArrayList<>();
+
+    public CardTemplate() {}
+
+    public CardTemplate(String name, int width, int height) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Normalized rectangle of one field; classes with several lines use one entry per line
+     */
+    public static class Field {
+        private String className;
+        private float x1;
+        private float y1;
+        private float x2;
+        private float y2;
+
+        public Field() {}
+
+        public Field(String className, float x1, float y1, float x2, float y2) {
+            this.className = className;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        public String getClassName() { return className; }
+        public void setClassName(String className) { this.className = className; }
+
+        public float getX1() { return x1; }
+        public void setX1(float x1) { this.x1 = x1; }
+
+        public float getY1() { return y1; }
+        public void setY1(float y1) { this.y1 = y1; }
+
+        public float getX2() { return x2; }
+        public void setX2(float x2) { this.x2 = x2; }
+
+        public float getY2() { return y2; }
+        public void setY2(float y2) { this.y2 = y2; }
+    }
+
+    public CardTemplate field(String className, float x1, float y1, float x2, float y2) {
+        fields.add(new Field(className, x1, y1, x2, y2));
+        return this;
+    }
+
+    /**
+     * Field with the given class, or null
+     */
+    public Field findField(String className) {
+        return fields.stream().filter(f -> className.equals(f.getClassName())).findFirst().orElse(null);
+    }
+
+    public double aspectRatio() {
+        return (double) width / height;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
+
+    public List<Field> getFields() { return fields; }
+    public void setFields(List<Field> fields) { this.fields = fields; }
+
+    @Override
+    public String toString() {
+        return "CardTemplate{name='" + name + "', " + width + "x" + height + ", fields=" + fields.size() + "}";
+    }
+}
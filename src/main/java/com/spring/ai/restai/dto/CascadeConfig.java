@@ -0,0 +1,43 @@
+package com.spring.ai.restai.dto;
+
+/**
+ * Two-stage cascade settings for a detection model.
+ * A cheap gate runs first and the full model only runs when the gate score passes the threshold.
+ */
+public class CascadeConfig {
+    private boolean enabled = true;
+    private String gateModel;       // Registered gate model, null = low-res pass of the same model
+    private int gateInputSize = 320; // Input size for the gate pass (dynamic-shape models only)
+    private float threshold = 0.3f; // Minimum gate score (max detection confidence) to run the full stage
+
+    public CascadeConfig() {}
+
+    public CascadeConfig(String gateModel, int gateInputSize, float threshold) {
+        this.gateModel = gateModel;
+        this.gateInputSize = gateInputSize;
+        this.threshold = threshold;
+    }
+
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getGateModel() { return gateModel; }
+    public void setGateModel(String gateModel) { this.gateModel = gateModel; }
+
+    public int getGateInputSize() { return gateInputSize; }
+    public void setGateInputSize(int gateInputSize) { this.gateInputSize = gateInputSize; }
+
+    public float getThreshold() { return threshold; }
+    public void setThreshold(float threshold) { this.threshold = threshold; }
+
+    @Override
+    public String toString() {
+        return "CascadeConfig{" +
+                "enabled=" + enabled +
+                ", gateModel='" + gateModel + '\'' +
+                ", gateInputSize=" + gateInputSize +
+                ", threshold=" + threshold +
+                '}';
+    }
+}
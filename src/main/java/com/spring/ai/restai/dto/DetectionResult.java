@@ -12,6 +12,10 @@ public class DetectionResult {
     private int imageHeight;
     private long processingTime;
     private List<DetectionItem> detections;
+    private boolean gated;  // True when a cascade gate rejected the image and the full model was skipped
+    private Float gateScore;
+    private int tileCount;  // Tiles processed by sliced inference, 0 for a single full-image pass
+    private int skippedTiles;
 
     public DetectionResult() {}
 
@@ -89,4 +93,16 @@ public class DetectionResult {
 
     public List<DetectionItem> getDetections() { return detections; }
     public void setDetections(List<DetectionItem> detections) { this.detections = detections; }
+
+    public boolean isGated() { return gated; }
+    public void setGated(boolean gated) { this.gated = gated; }
+
+    public Float getGateScore() { return gateScore; }
+    public void setGateScore(Float gateScore) { this.gateScore = gateScore; }
+
+    public int getTileCount() { return tileCount; }
+    public void setTileCount(int tileCount) { this.tileCount = tileCount; }
+
+    public int getSkippedTiles() { return skippedTiles; }
+    public void setSkippedTiles(int skippedTiles) { this.skippedTiles = skippedTiles; }
 }
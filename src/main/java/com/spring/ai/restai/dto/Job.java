@@ -0,0 +1,90 @@
+package com.spring.ai.restai.dto;
+
+import java.util.Map;
+
+/**
+ * Asynchronous OCR, detection or barcode job
+ */
+public class Job {
+    private String id;
+    private String type;            // "ocr", "detection" or "barcode"
+    private String status;          // "QUEUED", "RUNNING", "SUCCEEDED", "FAILED", "CANCELLED"
+    private int priority;           // Higher runs first
+    private String fileName;
+    private Map<String, String> params;
+    private long submittedAt;       // Epoch millis
+    private long startedAt;
+    private long finishedAt;
+    private Object result;
+    private String error;
+
+    public Job() {}
+
+    public Job(String id, String type, int priority, String fileName, Map<String, String> params) {
+        this.id = id;
+        this.type = type;
+        this.priority = priority;
+        this.fileName = fileName;
+        this.params = params;
+        this.status = "QUEUED";
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "CANCELLED".equals(status);
+    }
+
+    /**
+     * Time spent in the queue so far, or until a worker picked the job up
+     */
+    public long getWaitTimeMs() {
+        long end = startedAt > 0 ? startedAt : (finishedAt > 0 ? finishedAt : System.currentTimeMillis());
+        return end - submittedAt;
+    }
+
+    public long getRunTimeMs() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { this.priority = priority; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Map<String, String> getParams() { return params; }
+    public void setParams(Map<String, String> params) { this.params = params; }
+
+    public long getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(long submittedAt) { this.submittedAt = submittedAt; }
+
+    public long getStartedAt() { return startedAt; }
+    public void setStartedAt(long startedAt) { this.startedAt = startedAt; }
+
+    public long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(long finishedAt) { this.finishedAt = finishedAt; }
+
+    public Object getResult() { return result; }
+    public void setResult(Object result) { this.result = result; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    @Override
+    public String toString() {
+        return "Job{id='" + id + "', type='" + type + "', status='" + status + "', priority=" + priority + "}";
+    }
+}
@@ -14,7 +14,12 @@ public class ModelInfo {
     private long fileSize;
     private LocalDateTime uploadTime;
     private String status;
-    private String type;    public ModelInfo() {}
+    private String type;
+    private String backend; // Inference backend: onnxruntime (default) or opencv-dnn
+    private CascadeConfig cascade; // Optional gate model run before this model
+    private String dictionaryPath; // Character dictionary of a text recognition model
+
+    public ModelInfo() {}
 
     public ModelInfo(String id, String name, String fileName, String description, String filePath, long fileSize, String type) {
         this.id = id;
@@ -95,6 +100,30 @@ public class ModelInfo {
 
     public void setType(String type) {
         this.type = type;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public CascadeConfig getCascade() {
+        return cascade;
+    }
+
+    public void setCascade(CascadeConfig cascade) {
+        this.cascade = cascade;
+    }
+
+    public String getDictionaryPath() {
+        return dictionaryPath;
+    }
+
+    public void setDictionaryPath(String dictionaryPath) {
+        this.dictionaryPath = dictionaryPath;
     }    @Override
     public String toString() {
         return "ModelInfo{" +
@@ -106,6 +135,7 @@ public class ModelInfo {
                 ", uploadTime=" + uploadTime +
                 ", status='" + status + '\'' +
                 ", type='" + type + '\'' +
+                ", backend='" + backend + '\'' +
                 '}';
     }
 }
@@ -1,5 +1,6 @@
 package com.spring.ai.restai.dto;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,6 +13,9 @@ public class OcrDetectionResponse {
     private long processingTimeMs;
     private String imageInfo;
     private CccdInfo cccdInfo; // Parsed CCCD information if available
+    private String cccdSource = "ocr"; // Where cccdInfo came from: "qr", "qr+ocr" or "ocr"
+    private List<String> qrMismatches = new ArrayList<>(); // Fields where OCR disagrees with the QR (cross-check mode)
+    private String fieldSource = "detector"; // How fields were located: "detector" or "template:<name>"
     
     public OcrDetectionResponse() {}
     
@@ -82,4 +86,28 @@ public class OcrDetectionResponse {
     public void setCccdInfo(CccdInfo cccdInfo) {
         this.cccdInfo = cccdInfo;
     }
+    
+    public String getCccdSource() {
+        return cccdSource;
+    }
+    
+    public void setCccdSource(String cccdSource) {
+        this.cccdSource = cccdSource;
+    }
+    
+    public List<String> getQrMismatches() {
+        return qrMismatches;
+    }
+    
+    public void setQrMismatches(List<String> qrMismatches) {
+        this.qrMismatches = qrMismatches;
+    }
+    
+    public String getFieldSource() {
+        return fieldSource;
+    }
+    
+    public void setFieldSource(String fieldSource) {
+        this.fieldSource = fieldSource;
+    }
 }
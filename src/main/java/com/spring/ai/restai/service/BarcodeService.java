@@ -1,59 +1,149 @@
 package com.spring.ai.restai.service;
 
+import boofcv.io.image.ConvertBufferedImage;
+import boofcv.struct.image.GrayU8;
 import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.common.HybridBinarizer;
 import com.spring.ai.plugins.YOLOv8Detector;
 import com.spring.ai.restai.detector.GenericYOLODetector;
+import com.spring.ai.restai.dto.BenchmarkResult;
 import com.spring.ai.restai.dto.DetailedBarcodeResult;
 import com.spring.ai.restai.dto.DetailedBarcodeResult.BoundingBox;
 import com.spring.ai.restai.dto.ModelInfo;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.imgproc.Imgproc;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.multipart.MultipartFile;
 import org.opencv.core.Core;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 @Service
 public class BarcodeService {
-    private final Map<String, YOLOv8Detector> detectorCache = new ConcurrentHashMap<>();
+    private final Map<String, SharedModel<YOLOv8Detector>> detectorCache = new ConcurrentHashMap<>();
     private static final float CONFIDENCE_THRESHOLD = 0.25f;
     private static final float NMS_THRESHOLD = 0.6f;
     private static final int PADDING = 15;
     private static final float OVERLAP_RATIO = 0.2f;
+    private static final int MAX_DETECTIONS_PER_REGION = 10000;
+    private static final int RENDER_DPI = 300;
+
+    private static final Set<BarcodeFormat> DEFAULT_FORMATS = Collections.unmodifiableSet(EnumSet.of(
+            BarcodeFormat.CODE_128, BarcodeFormat.CODE_39, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.ITF, BarcodeFormat.QR_CODE));
+
+    // MultiFormatReader is not thread-safe: each decode thread keeps one configured reader per format set
+    private static final ThreadLocal<Map<Set<BarcodeFormat>, MultiFormatReader>> DECODE_READERS =
+            ThreadLocal.withInitial(HashMap::new);
+
+    // Formats implied by detector class names
+    private final Map<String, Set<BarcodeFormat>> classFormats = new ConcurrentHashMap<>();
 
     @Autowired
     private ModelService modelService;
 
+    // Threads for region inference and crop decoding; 0 = half the CPU cores
+    @Value("${barcode.region-threads:0}")
+    private int regionThreads;
+
+    // Shared by all pages so concurrent requests do not multiply threads
+    private ExecutorService regionExecutor;
+
+    // Pages of multi-page documents processed at the same time
+    @Value("${barcode.page-parallelism:2}")
+    private int pageParallelism;
+
+    // Decoded page images a document may hold in memory while waiting for or being processed
+    @Value("${barcode.pipeline.max-inflight-mb:512}")
+    private int maxInflightMb;
+
+    private ExecutorService pageExecutor;
+
+    // Use the embedded scan of single-image PDF pages instead of rendering them
+    @Value("${barcode.pdf.extract-images:true}")
+    private boolean extractEmbeddedImages;
+
+    // With a detection model, pages of PDF/TIFF documents are detected at low resolution first and only the
+    // detected areas are read at full resolution for decoding
+    @Value("${barcode.coarse-to-fine.enabled:true}")
+    private boolean coarseToFineEnabled;
+
+    @Value("${barcode.coarse-to-fine.dpi:100}")
+    private int coarseDpi;
+
     public BarcodeService() {
         System.out.println("BarcodeService initialized (detectors will be loaded on demand)");
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = regionThreads > 0 ? regionThreads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        regionExecutor = Executors.newFixedThreadPool(threads);
+        pageExecutor = Executors.newFixedThreadPool(Math.max(1, pageParallelism));
+        System.out.println("Barcode region workers: " + threads + ", page workers: " + Math.max(1, pageParallelism));
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        regionExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
+        System.out.println("Barcode ExecutorServices shutdown");
     }    /**
-     * Get or initialize detector for specific model
+     * Leased detector for the model, or null (ZXing only) when no model is given or it cannot be loaded.
+     * Callers release the lease when done with it.
      */
-    private YOLOv8Detector getDetector(String modelId) throws Exception {
-        // Check cache first
-        if (detectorCache.containsKey(modelId)) {
-            return detectorCache.get(modelId);
+    private SharedModel<YOLOv8Detector> loadDetector(String modelId) {
+        if (modelId == null || modelId.trim().isEmpty()) {
+            return null;
         }
-        
+        try {
+            SharedModel<YOLOv8Detector> detector = getDetector(modelId);
+            System.out.println("Using YOLO detector with model: " + modelId);
+            return detector;
+        } catch (Exception e) {
+            System.err.println("Failed to load detector for model " + modelId + ": " + e.getMessage());
+            System.out.println("Falling back to ZXing only");
+            return null;
+        }
+    }
+
+    /**
+     * Lease the detector for a model, loading it once when concurrent requests miss the cache together
+     */
+    private SharedModel<YOLOv8Detector> getDetector(String modelId) throws Exception {
         // Get model path from ModelService
         String modelPath = modelService.getModelPath(modelId);
         if (modelPath == null) {
@@ -61,22 +151,36 @@ public class BarcodeService {
         }
         
         try {
-            YOLOv8Detector detector = new GenericYOLODetector(
-                    modelPath,
-                    640, 640,
-                    CONFIDENCE_THRESHOLD
-            );
-            detector.setNmsThreshold(NMS_THRESHOLD);
-            
-            // Cache the detector
-            detectorCache.put(modelId, detector);
-            System.out.println("Loaded and cached detector for model: " + modelId + " (path: " + modelPath + ")");
-            return detector;
-            
+            return SharedModel.lease(detectorCache, modelId, k -> {
+                String backend = modelService.getModelBackend(modelId);
+                YOLOv8Detector detector = new GenericYOLODetector(
+                        modelPath,
+                        640, 640,
+                        CONFIDENCE_THRESHOLD,
+                        backend
+                );
+                detector.setNmsThreshold(NMS_THRESHOLD);
+                System.out.println("Loaded and cached detector for model: " + modelId + " (path: " + modelPath
+                        + ", backend: " + backend + ")");
+                return new SharedModel<>(detector, YOLOv8Detector::close);
+            });
         } catch (Exception e) {
             System.err.println("Failed to load model: " + modelPath + " - " + e.getMessage());
             throw new Exception("Model not found or invalid: " + modelId, e);
         }
+    }
+    /**
+     * Drop cached detector for a model so the next request reloads it
+     */
+    public void clearDetectorCache(String modelId) {
+        SharedModel<YOLOv8Detector> detector = detectorCache.remove(modelId);
+        if (detector != null) {
+            // Closed once the pages and regions still using it finish
+            detector.retire();
+            System.out.println("Cleared barcode detector cache for model: " + modelId);
+        }
+        // The strategy order learned for the old model no longer applies
+        enhancementStats.keySet().removeIf(key -> key.startsWith(modelId + "/"));
     }
       /**
      * Check if model is available
@@ -89,7 +193,7 @@ public class BarcodeService {
         
         // Then try to load detector
         try {
-            getDetector(modelId);
+            getDetector(modelId).release();
             return true;
         } catch (Exception e) {
             return false;
@@ -118,6 +222,15 @@ public class BarcodeService {
      * Process document with specific model
      */
     public List<DetailedBarcodeResult> processDocument(MultipartFile file, String modelId) throws IOException {
+        return processDocument(file, modelId, null);
+    }
+
+    /**
+     * Process document, handing each page result to onPage as soon as it is done (pages may finish out of order).
+     * The returned list is in page order.
+     */
+    public List<DetailedBarcodeResult> processDocument(MultipartFile file, String modelId,
+                                                       Consumer<DetailedBarcodeResult> onPage) throws IOException {
         String fileName = file.getOriginalFilename().toLowerCase();
         System.out.println("Processing document: " + fileName + ", size: " + file.getSize() + " bytes");
         if (modelId != null) {
@@ -130,44 +243,148 @@ public class BarcodeService {
 
         if (fileName.endsWith(".pdf")) {
             System.out.println("Processing as PDF document");
-            results.addAll(processPdf(file, modelId));
+            results.addAll(processPdf(file, modelId, onPage));
         } else if (fileName.endsWith(".tiff") || fileName.endsWith(".tif")) {
             System.out.println("Processing as TIFF document");
-            results.addAll(processTiff(file, modelId));
+            results.addAll(processTiff(file, modelId, onPage));
         } else {
             System.out.println("Processing as single image");
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(file.getBytes()));
+            BufferedImage image = ImageIO.read(file.getInputStream());
             System.out.println("Image dimensions: " + image.getWidth() + "x" + image.getHeight());
-            results.add(processPage(image, 1, modelId));
+            DetailedBarcodeResult result = processPage(image, 1, modelId);
+            if (onPage != null) {
+                onPage.accept(result);
+            }
+            results.add(result);
         }
 
         System.out.println("Document processing completed. Total results: " + results.size());
         return results;
-    }    /**
+    }
+
+    /**
+     * Process an already decoded single image (e.g. a streaming frame)
+     */
+    public DetailedBarcodeResult processImage(BufferedImage image, String modelId) {
+        return processPage(image, 1, modelId);
+    }
+
+    /**
      * Process PDF document
      */
-    private List<DetailedBarcodeResult> processPdf(MultipartFile file, String modelId) throws IOException {
-        List<DetailedBarcodeResult> results = new ArrayList<>();
-        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(file.getBytes()))) {
+    private List<DetailedBarcodeResult> processPdf(MultipartFile file, String modelId,
+                                                   Consumer<DetailedBarcodeResult> onPage) throws IOException {
+        // Parse from a temp file with PDFBox scratch data on disk instead of holding the upload in the heap
+        Path spooled = spoolToTempFile(file, ".pdf");
+        try (PDDocument document = PDDocument.load(spooled.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
             int totalPages = document.getNumberOfPages();
             System.out.println("PDF loaded successfully. Total pages: " + totalPages);
 
+            // PDFBox renders one page at a time per document; rendering overlaps with processing of earlier pages
             PDFRenderer pdfRenderer = new PDFRenderer(document);
-            for (int page = 0; page < totalPages; ++page) {
-                System.out.println("Processing PDF page " + (page + 1) + "/" + totalPages);
-                BufferedImage image = pdfRenderer.renderImageWithDPI(page, 300);
-                System.out.println(
-                        "Page " + (page + 1) + " rendered. Dimensions: " + image.getWidth() + "x" + image.getHeight());
-                results.add(processPage(image, page + 1, modelId));
+            return processPages(totalPages, page -> openPdfPage(document, pdfRenderer, page, extractEmbeddedImages), modelId, onPage);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Page of a PDF: the embedded scan when the page is a single full-page image, otherwise rendered on demand
+     */
+    private PageRaster openPdfPage(PDDocument document, PDFRenderer renderer, int pageIndex, boolean extractImages) {
+        if (extractImages) {
+            BufferedImage embedded;
+            float displayWidth;
+            synchronized (document) {
+                PDPage page = document.getPage(pageIndex);
+                embedded = PdfPageImageExtractor.extract(page);
+                int rotation = page.getRotation();
+                displayWidth = rotation == 90 || rotation == 270
+                        ? page.getCropBox().getHeight() : page.getCropBox().getWidth();
+            }
+            if (embedded != null) {
+                // Scan resolution: image pixels across the displayed page width in inches
+                double dpi = embedded.getWidth() / (displayWidth / 72.0);
+                System.out.println("Page " + (pageIndex + 1) + ": using embedded image ("
+                        + Math.round(dpi) + " DPI)");
+                return PageRaster.ofImage(embedded, dpi);
             }
         }
-        return results;
-    }    /**
-     * Process TIFF document
+        return PageRaster.ofPdf(document, renderer, pageIndex, RENDER_DPI);
+    }
+
+    /**
+     * Compare loading every page of a PDF through embedded image extraction and through 300 DPI rendering,
+     * using the same page loading as document processing
      */
-    private List<DetailedBarcodeResult> processTiff(MultipartFile file, String modelId) throws IOException {
-        List<DetailedBarcodeResult> results = new ArrayList<>();
+    public List<BenchmarkResult> benchmarkPdfPageLoading(MultipartFile file, int iterations) throws IOException {
+        int runs = Math.max(1, iterations);
+        Path spooled = spoolToTempFile(file, ".pdf");
+        try (PDDocument document = PDDocument.load(spooled.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            int totalPages = document.getNumberOfPages();
+            int extractablePages = 0;
+
+            List<BenchmarkResult> results = new ArrayList<>();
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (boolean extractImages : new boolean[]{true, false}) {
+                String name = extractImages ? "embedded-image" : "render-300dpi";
+                long[] timings = new long[runs];
+                long pixels = 0;
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    pixels = 0;
+                    int extracted = 0;
+                    for (int page = 0; page < totalPages; page++) {
+                        PageRaster raster = openPdfPage(document, renderer, page, extractImages);
+                        BufferedImage image = raster.readFull();
+                        pixels += (long) image.getWidth() * image.getHeight();
+                        if (raster.getHeldImage() != null) {
+                            extracted++;
+                        }
+                    }
+                    if (extractImages) {
+                        extractablePages = extracted;
+                    }
+                    timings[i] = System.nanoTime() - start;
+                }
+
+                BenchmarkResult result = BenchmarkResult.fromNanos(name, timings)
+                        .detail("pages", totalPages)
+                        .detail("avgMsPerPage", totalPages > 0
+                                ? Math.round(Arrays.stream(timings).average().orElse(0) / totalPages / 10_000.0) / 100.0 : 0)
+                        .detail("avgMegapixelsPerPage", totalPages > 0
+                                ? Math.round(pixels / (double) totalPages / 10_000.0) / 100.0 : 0);
+                if (extractImages) {
+                    result.detail("extractedPages", extractablePages);
+                }
+                results.add(result);
+                System.out.println("PDF page loading benchmark: " + result);
+            }
+            return results;
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Stream an upload to a temp file so large documents can be read from disk
+     */
+    private Path spoolToTempFile(MultipartFile file, String suffix) throws IOException {
+        Path tempFile = Files.createTempFile("barcode-", suffix);
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return tempFile;
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
 
+    /**
+     * Process TIFF document
+     */
+    private List<DetailedBarcodeResult> processTiff(MultipartFile file, String modelId,
+                                                    Consumer<DetailedBarcodeResult> onPage) throws IOException {
         // Use ImageIO to get image reader for TIFF format
         ImageIO.scanForPlugins();
         Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("tiff");
@@ -176,31 +393,134 @@ public class BarcodeService {
             throw new IOException("No TIFF image reader found");
         }
 
+        // Read pages through a file-backed stream instead of an in-memory copy of the upload
         ImageReader reader = readers.next();
-        try {
-            // Create input stream from file
-            ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(file.getBytes()));
+        Path spooled = spoolToTempFile(file, ".tiff");
+        try (ImageInputStream iis = ImageIO.createImageInputStream(spooled.toFile())) {
             reader.setInput(iis, false);
 
             // Get number of pages/images in TIFF
             int numPages = reader.getNumImages(true);
             System.out.println("Processing TIFF file with " + numPages + " pages");
 
-            // Process each page
-            for (int page = 0; page < numPages; page++) {
-                System.out.println("Processing TIFF page " + (page + 1) + "/" + numPages);
-                BufferedImage image = reader.read(page);
-                System.out.println("Page " + (page + 1) + " dimensions: " + image.getWidth() + "x" + image.getHeight());
-                results.add(processPage(image, page + 1, modelId));
+            return processPages(numPages, page -> PageRaster.ofTiff(reader, page), modelId, onPage);
+        } finally {
+            reader.dispose();
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    /**
+     * Source of document pages, opened sequentially by the pipeline producer
+     */
+    @FunctionalInterface
+    private interface PageSource {
+        PageRaster open(int pageIndex) throws IOException;
+    }
+
+    /**
+     * Bounded producer/consumer pipeline over the pages of a document: the calling thread decodes pages one by one
+     * while up to barcode.page-parallelism pages are processed. Each page reserves its full-resolution size from
+     * barcode.pipeline.max-inflight-mb before it is decoded, so decoding waits while pages in flight fill it. With a
+     * detection model and coarse-to-fine enabled, the producer only decodes the low-resolution page used for detection.
+     */
+    private List<DetailedBarcodeResult> processPages(int pageCount, PageSource source, String modelId,
+                                                     Consumer<DetailedBarcodeResult> onPage) throws IOException {
+        int budgetKb = Math.max(1, maxInflightMb) * 1024;
+        Semaphore memoryBudget = new Semaphore(budgetKb);
+        Object listenerLock = new Object();
+        List<Future<DetailedBarcodeResult>> pages = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+        SharedModel<YOLOv8Detector> coarseDetector = coarseToFineEnabled ? loadDetector(modelId) : null;
+        // Set by a failed page (or listener) so decoding stops and queued pages are skipped
+        AtomicBoolean failed = new AtomicBoolean();
+
+        try {
+            for (int page = 0; page < pageCount && !failed.get(); page++) {
+                PageRaster raster = source.open(page);
+                int pageNumber = page + 1;
+                // Reserved before decoding: full-resolution RGB, which the held page, a full read or the
+                // escalation to it may reach. A page larger than the whole budget still runs, alone
+                int imageKb = (int) Math.min(budgetKb, (long) raster.getWidth() * raster.getHeight() * 4 / 1024 + 1);
+                memoryBudget.acquire(imageKb);
+                BufferedImage image;
+                try {
+                    // Coarse read relative to the page's own resolution: scans and TIFFs are not always 300 DPI
+                    image = coarseDetector != null
+                            ? raster.readCoarse(Math.max(1.0, raster.getDpi() / Math.max(1, coarseDpi)))
+                            : raster.readFull();
+                } catch (Throwable e) {
+                    memoryBudget.release(imageKb);
+                    throw e;
+                }
+                System.out.println("Page " + pageNumber + "/" + pageCount + " decoded: "
+                        + image.getWidth() + "x" + image.getHeight());
+
+                pages.add(pageExecutor.submit(() -> {
+                    try {
+                        if (failed.get()) {
+                            return null;
+                        }
+                        DetailedBarcodeResult result = coarseDetector != null
+                                ? processPageCoarseToFine(raster, image, pageNumber, coarseDetector.get(), modelId)
+                                : processPage(image, pageNumber, modelId);
+                        if (onPage != null) {
+                            synchronized (listenerLock) {
+                                onPage.accept(result);
+                            }
+                        }
+                        return result;
+                    } catch (Throwable e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        memoryBudget.release(imageKb);
+                    }
+                }));
             }
 
-            iis.close();
+            List<DetailedBarcodeResult> results = new ArrayList<>();
+            for (Future<DetailedBarcodeResult> page : pages) {
+                results.add(await(page));
+            }
+            System.out.println("Processed " + pageCount + " pages in " + (System.currentTimeMillis() - startTime) + "ms");
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Document processing interrupted", e);
         } finally {
-            reader.dispose();
+            // Queued pages skip their work; running ones still read the document, which the caller closes next
+            failed.set(true);
+            awaitQuietly(pages);
+            if (coarseDetector != null) {
+                coarseDetector.release();
+            }
         }
+    }
 
-        return results;
-    }    /**
+    /**
+     * Wait until every task has finished, ignoring their outcome
+     */
+    private void awaitQuietly(List<? extends Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
      * Process a single page/image for barcode detection
      */
     private DetailedBarcodeResult processPage(BufferedImage image, int pageNumber, String modelId) {
@@ -213,58 +533,116 @@ public class BarcodeService {
 
         DetailedBarcodeResult result = new DetailedBarcodeResult();
         result.setPageNumber(pageNumber);
-
-        // Keep track of detected barcodes to avoid duplicates
-        Set<String> processedBarcodes = new HashSet<>();
         
         // Try to get detector if model ID is provided
-        YOLOv8Detector detector = null;
-        if (modelId != null && !modelId.trim().isEmpty()) {
-            try {
-                detector = getDetector(modelId);
-                System.out.println("Using YOLO detector with model: " + modelId);
-            } catch (Exception e) {
-                System.err.println("Failed to load detector for model " + modelId + ": " + e.getMessage());
-                System.out.println("Falling back to ZXing only");
+        SharedModel<YOLOv8Detector> detector = loadDetector(modelId);
+
+        // Inference for all regions at once, then enhancement and decoding of every crop in parallel
+        List<YOLOv8Detector.Detection[]> regionDetections;
+        try {
+            regionDetections = detector != null ? detectRegions(detector.get(), regions) : null;
+        } finally {
+            if (detector != null) {
+                detector.release();
             }
         }
+        if (detector == null) {
+            System.out.println("YOLO detector not available, using ZXing scan on entire regions");
+        }
 
-        for (ImageRegion region : regions) {
-            System.out.println("Processing region " + region.regionNumber);
-            System.out.println("Region dimensions: " + region.width + "x" + region.height + " at position (" + region.x
-                    + "," + region.y + ")");
+        // Same content found in several regions: keep the hit that sequential processing would have kept first
+        Map<String, DecodedCandidate> uniqueBarcodes = new ConcurrentHashMap<>();
+        List<Future<?>> decodeTasks = new ArrayList<>();
+        for (int r = 0; r < regions.size(); r++) {
+            ImageRegion region = regions.get(r);
+            if (regionDetections == null) {
+                int order = r * MAX_DETECTIONS_PER_REGION;
+                decodeTasks.add(regionExecutor.submit(
+                        () -> keepFirst(uniqueBarcodes, decodeEntireRegion(region, order))));
+                continue;
+            }
 
-            // Run YOLOv8 detection on each region if detector is available
-            if (detector != null) {
-                YOLOv8Detector.Detection[] detections = detector.detect(region.image);
-                System.out.println("Found " + detections.length + " potential barcodes in region " + region.regionNumber);
-
-                for (YOLOv8Detector.Detection detection : detections) {
-                    System.out.println("Processing detection with confidence: " + detection.confidence);
-                    System.out.println("Detection bbox: [" + detection.x1 + "," + detection.y1 + "," + detection.x2 + ", "
-                            + detection.y2 + "]");
-
-                    if (detection.confidence >= CONFIDENCE_THRESHOLD) {
-                        System.out.println("Detection passed confidence threshold");
-
-                        // Crop and process detected barcode area
-                        BufferedImage barcodeArea = cropDetectedRegion(region.image, detection);
-                        System.out
-                                .println("Cropped barcode area: " + barcodeArea.getWidth() + "x" + barcodeArea.getHeight());
-                        
-                        // Process detected barcode area with ZXing
-                        processDetectedBarcodeArea(barcodeArea, region, detection, result, processedBarcodes);
-                    } else {
-                        System.out.println("Detection rejected due to low confidence: " + detection.confidence);
-                    }
+            YOLOv8Detector.Detection[] detections = regionDetections.get(r);
+            System.out.println("Found " + detections.length + " potential barcodes in region " + region.regionNumber);
+            for (int d = 0; d < detections.length && d < MAX_DETECTIONS_PER_REGION; d++) {
+                YOLOv8Detector.Detection detection = detections[d];
+                if (detection.confidence < CONFIDENCE_THRESHOLD) {
+                    System.out.println("Detection rejected due to low confidence: " + detection.confidence);
+                    continue;
                 }
-            } else {
-                System.out.println("YOLO detector not available, using ZXing scan on entire region");
-                // Fallback to ZXing scanning of entire region
-                processEntireRegionWithZXing(region.image, region, result, processedBarcodes);
+                int order = r * MAX_DETECTIONS_PER_REGION + d;
+                decodeTasks.add(regionExecutor.submit(
+                        () -> keepFirst(uniqueBarcodes, decodeDetection(region, detection, order, modelId + "/region"))));
+            }
+        }
+        awaitAll(decodeTasks);
+
+        return collectPageResult(result, uniqueBarcodes);
+    }
+
+    /**
+     * Detect on the low-resolution page, then read and decode only the detected areas at full resolution.
+     * Falls back to the full-resolution region scan when nothing is decoded that way.
+     */
+    private DetailedBarcodeResult processPageCoarseToFine(PageRaster raster, BufferedImage coarse, int pageNumber,
+                                                          YOLOv8Detector detector, String modelId) throws IOException {
+        System.out.println("Processing page " + pageNumber + " coarse-to-fine: detection at " + coarse.getWidth()
+                + "x" + coarse.getHeight() + ", decoding at " + raster.getWidth() + "x" + raster.getHeight());
+        float scaleX = (float) raster.getWidth() / coarse.getWidth();
+        float scaleY = (float) raster.getHeight() / coarse.getHeight();
+
+        YOLOv8Detector.Detection[] detections = detector.detect(coarse);
+        System.out.println("Coarse pass found " + detections.length + " potential barcodes on page " + pageNumber);
+
+        Map<String, DecodedCandidate> uniqueBarcodes = new ConcurrentHashMap<>();
+        List<Future<?>> decodeTasks = new ArrayList<>();
+        for (int d = 0; d < detections.length && d < MAX_DETECTIONS_PER_REGION; d++) {
+            YOLOv8Detector.Detection detection = detections[d];
+            if (detection.confidence < CONFIDENCE_THRESHOLD) {
+                continue;
             }
+            // Detected box in full-resolution page pixels, read with the same padding the crop would use
+            YOLOv8Detector.Detection scaled = new YOLOv8Detector.Detection(detection.x1 * scaleX, detection.y1 * scaleY,
+                    detection.x2 * scaleX, detection.y2 * scaleY, detection.confidence, detection.classId,
+                    detection.className);
+            Rectangle bounds = paddedCropBounds(raster.getWidth(), raster.getHeight(), scaled);
+            int order = d;
+            decodeTasks.add(regionExecutor.submit(() -> {
+                ImageRegion region = new ImageRegion(raster.readRegion(bounds), 1,
+                        bounds.x, bounds.y, bounds.width, bounds.height);
+                YOLOv8Detector.Detection local = new YOLOv8Detector.Detection(scaled.x1 - bounds.x,
+                        scaled.y1 - bounds.y, scaled.x2 - bounds.x, scaled.y2 - bounds.y, scaled.confidence,
+                        scaled.classId, scaled.className);
+                keepFirst(uniqueBarcodes, decodeDetection(region, local, order, modelId + "/coarse-to-fine"));
+                return null;
+            }));
+        }
+        awaitAll(decodeTasks);
+
+        if (uniqueBarcodes.isEmpty()) {
+            System.out.println("Nothing decoded from the coarse pass on page " + pageNumber
+                    + ", escalating to the full page at " + Math.round(raster.getDpi()) + " DPI");
+            return processPage(raster.readFull(), pageNumber, modelId);
         }
 
+        DetailedBarcodeResult result = new DetailedBarcodeResult();
+        result.setPageNumber(pageNumber);
+        return collectPageResult(result, uniqueBarcodes);
+    }
+
+    /**
+     * Add de-duplicated barcodes to the page result in sequential processing order
+     */
+    private DetailedBarcodeResult collectPageResult(DetailedBarcodeResult result,
+                                                    Map<String, DecodedCandidate> uniqueBarcodes) {
+        int pageNumber = result.getPageNumber();
+        uniqueBarcodes.values().stream()
+                .sorted(Comparator.comparingInt(candidate -> candidate.order))
+                .forEach(candidate -> {
+                    result.setRegionNumber(candidate.regionNumber);
+                    result.addBarcode(candidate.info);
+                });
+
         System.out.println("Page " + pageNumber + " processing completed");
         if (!result.getBarcodes().isEmpty()) {
             System.out.println("Found " + result.getBarcodes().size() + " unique barcodes on page " + pageNumber);
@@ -329,204 +707,335 @@ public class BarcodeService {
     }
 
     /**
-     * Enhance barcode image using OpenCV preprocessing techniques
+     * One way of preparing a barcode crop for ZXing
      */
-    private BufferedImage enhanceBarcodeImage(BufferedImage image) {
-        System.out.println("Enhancing barcode image: " + image.getWidth() + "x" + image.getHeight());
+    private static class EnhancementStrategy {
+        final String name;
+        final boolean cheap;                // Tried on a downscaled copy of large crops first
+        final Function<Mat, Mat> transform; // Applied to the grayscale crop; null decodes the crop as is
+
+        EnhancementStrategy(String name, boolean cheap, Function<Mat, Mat> transform) {
+            this.name = name;
+            this.cheap = cheap;
+            this.transform = transform;
+        }
+    }
 
-        // Convert to OpenCV Mat
-        Mat source = bufferedImageToMat(image);
-        Mat enhanced = new Mat();
-        Mat temp = new Mat();
+    // Default order, used until statistics for a model/source say otherwise
+    private static final List<EnhancementStrategy> ENHANCEMENT_STRATEGIES = List.of(
+            new EnhancementStrategy("grayscale", true, null),
+            new EnhancementStrategy("otsu-0.8", true, gray -> otsu(gray, 0.8)),
+            new EnhancementStrategy("otsu-1.0", true, gray -> otsu(gray, 1.0)),
+            new EnhancementStrategy("otsu-1.2", true, gray -> otsu(gray, 1.2)),
+            new EnhancementStrategy("adaptive-11", false, gray -> adaptive(gray, 11)),
+            new EnhancementStrategy("adaptive-15", false, gray -> adaptive(gray, 15)),
+            new EnhancementStrategy("adaptive-21", false, gray -> adaptive(gray, 21)),
+            new EnhancementStrategy("sharpen-otsu", false, BarcodeService::sharpenOtsu),
+            new EnhancementStrategy("stretch-otsu", true, BarcodeService::stretchOtsu));
 
-        try {
-            // Convert to grayscale
-            Imgproc.cvtColor(source, enhanced, Imgproc.COLOR_BGR2GRAY);
-            Mat originalGray = enhanced.clone();
-
-            List<BufferedImage> attempts = new ArrayList<>();
-
-            // Attempt 1: Original grayscale
-            attempts.add(matToBufferedImage(originalGray));
-
-            // Attempt 2-4: Multiple Otsu thresholds
-            double[] thresholdMultipliers = { 0.8, 1.0, 1.2 }; // Try different threshold levels
-            for (double multiplier : thresholdMultipliers) {
-                Mat adjusted = originalGray.clone();
-                adjusted.convertTo(adjusted, -1, 1.0, multiplier * 10); // Điều chỉnh độ sáng
-                Imgproc.threshold(adjusted, temp, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
-                attempts.add(matToBufferedImage(temp));
-                adjusted.release();
-            }
+    // Crops whose longer side exceeds this are first tried downscaled by half with the cheap strategies
+    @Value("${barcode.enhance.downscale-above:800}")
+    private int enhanceDownscaleAbove;
+
+    private final Map<String, EnhancementStats> enhancementStats = new ConcurrentHashMap<>();
 
-            // Attempt 5-7: Adaptive thresholding with different block sizes
-            int[] blockSizes = { 11, 15, 21 };
-            for (int blockSize : blockSizes) {
-                Imgproc.adaptiveThreshold(originalGray, temp, 255,
-                        Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
-                        Imgproc.THRESH_BINARY, blockSize, 2);
-                attempts.add(matToBufferedImage(temp));
+    /**
+     * Attempts and decodes per enhancement strategy for one model/source
+     */
+    public static class EnhancementStats {
+        private final Map<String, AtomicLong[]> strategies = new ConcurrentHashMap<>();
+        private final AtomicLong crops = new AtomicLong();
+        private final AtomicLong decodedCrops = new AtomicLong();
+        private final AtomicLong attempts = new AtomicLong();
+
+        void record(String strategy, boolean decoded) {
+            AtomicLong[] counters = strategies.computeIfAbsent(strategy, k -> new AtomicLong[]{new AtomicLong(), new AtomicLong()});
+            counters[0].incrementAndGet();
+            attempts.incrementAndGet();
+            if (decoded) {
+                counters[1].incrementAndGet();
             }
+        }
 
-            // Attempt 8: Sharpening + Otsu
-            Mat kernel = new Mat(3, 3, CvType.CV_32F);
-            float[] kernelData = new float[] {
-                    -1, -1, -1,
-                    -1, 9, -1,
-                    -1, -1, -1
-            };
-            kernel.put(0, 0, kernelData);
-            Imgproc.filter2D(originalGray, temp, -1, kernel);
-            Imgproc.threshold(temp, temp, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
-            attempts.add(matToBufferedImage(temp));
-            kernel.release();
-
-            // Attempt 9: Contrast stretching + Otsu
-            Mat stretched = new Mat();
-            Core.normalize(originalGray, stretched, 0, 255, Core.NORM_MINMAX);
-            Imgproc.threshold(stretched, temp, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
-            attempts.add(matToBufferedImage(temp));
-            stretched.release();
-
-            // Try decoding each attempt
-            for (int i = 0; i < attempts.size(); i++) {
-                BufferedImage attempt = attempts.get(i);
-                Result result = attemptDecode(attempt);
-                if (result != null) {
-                    System.out.println("Successfully decoded barcode with attempt " + (i + 1));
-                    return attempt;
-                }
+        void recordCrop(boolean decoded) {
+            crops.incrementAndGet();
+            if (decoded) {
+                decodedCrops.incrementAndGet();
             }
+        }
 
-            System.out.println("No successful decode, returning original grayscale");
-            return attempts.get(0);
+        // Laplace-smoothed success rate: untried strategies start at 0.5
+        double successRate(String strategy) {
+            AtomicLong[] counters = strategies.get(strategy);
+            return counters == null ? 0.5 : (counters[1].get() + 1.0) / (counters[0].get() + 2.0);
+        }
 
-        } finally {
-            // Release OpenCV resources
-            source.release();
-            enhanced.release();
-            temp.release();
+        /**
+         * Strategies by observed success rate, ties in default order
+         */
+        List<EnhancementStrategy> order(List<EnhancementStrategy> candidates, String suffix) {
+            // Rates are snapshotted: counters keep changing while other crops are decoded
+            Map<String, Double> rates = new HashMap<>();
+            candidates.forEach(strategy -> rates.put(strategy.name, successRate(strategy.name + suffix)));
+            List<EnhancementStrategy> ordered = new ArrayList<>(candidates);
+            ordered.sort(Comparator.comparingDouble(strategy -> -rates.get(strategy.name)));
+            return ordered;
         }
-    }
 
-    private Result decodeBarcode(BufferedImage barcodeImage) {
-        try {
-            // Try multiple hints
-            Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-
-            // Try to decode in both directions
-            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-            hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
-
-            // Allow various barcode formats
-            Vector<BarcodeFormat> formats = new Vector<>();
-            formats.add(BarcodeFormat.CODE_128);
-            formats.add(BarcodeFormat.CODE_39);
-            formats.add(BarcodeFormat.EAN_13);
-            formats.add(BarcodeFormat.EAN_8);
-            formats.add(BarcodeFormat.UPC_A);
-            formats.add(BarcodeFormat.UPC_E);
-            formats.add(BarcodeFormat.ITF);
-            formats.add(BarcodeFormat.QR_CODE);
-            hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
-
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
-                    new BufferedImageLuminanceSource(barcodeImage)));
-
-            MultiFormatReader reader = new MultiFormatReader();
-            return reader.decode(bitmap, hints);
-        } catch (ReaderException e) {
-            return null;
+        public Map<String, Object> toMap() {
+            long total = crops.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("crops", total);
+            map.put("decodedCrops", decodedCrops.get());
+            map.put("avgAttemptsPerCrop", total > 0 ? (double) attempts.get() / total : 0.0);
+
+            List<Map<String, Object>> perStrategy = new ArrayList<>();
+            strategies.forEach((strategy, counters) -> {
+                long tried = counters[0].get();
+                long decoded = counters[1].get();
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("strategy", strategy);
+                entry.put("attempts", tried);
+                entry.put("decoded", decoded);
+                entry.put("successRate", tried > 0 ? (double) decoded / tried : 0.0);
+                perStrategy.add(entry);
+            });
+            perStrategy.sort(Comparator.comparingDouble(entry -> -(double) entry.get("successRate")));
+            map.put("strategies", perStrategy);
+            return map;
         }
     }
 
     /**
-     * Convert BufferedImage to OpenCV Mat
+     * Enhance a barcode crop and decode it, producing variants lazily and stopping at the first decode.
+     * Strategies are tried in order of their success rate for statsKey (model and source of the crop);
+     * large crops first get the cheap strategies on a half-size copy.
      */
-    private Mat bufferedImageToMat(BufferedImage image) {
-        // Convert image to TYPE_3BYTE_BGR if it's not already
-        BufferedImage convertedImage = image;
-        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
-            convertedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-            Graphics2D g2d = convertedImage.createGraphics();
-            g2d.drawImage(image, 0, 0, null);
-            g2d.dispose();
+    private Result enhanceAndDecode(BufferedImage image, String statsKey, Set<BarcodeFormat> formats) {
+        System.out.println("Enhancing barcode image: " + image.getWidth() + "x" + image.getHeight());
+        EnhancementStats stats = enhancementStats.computeIfAbsent(statsKey, k -> new EnhancementStats());
+
+        Result result = null;
+        if (Math.max(image.getWidth(), image.getHeight()) > enhanceDownscaleAbove) {
+            List<EnhancementStrategy> cheap = new ArrayList<>();
+            for (EnhancementStrategy strategy : ENHANCEMENT_STRATEGIES) {
+                if (strategy.cheap) {
+                    cheap.add(strategy);
+                }
+            }
+            result = runEnhancementCascade(scaleImage(image, 0.5), stats.order(cheap, "@half"), "@half", stats, formats);
+        }
+        if (result == null) {
+            result = runEnhancementCascade(image, stats.order(ENHANCEMENT_STRATEGIES, ""), "", stats, formats);
         }
 
-        byte[] pixels = ((DataBufferByte) convertedImage.getRaster().getDataBuffer()).getData();
-        Mat mat = new Mat(convertedImage.getHeight(), convertedImage.getWidth(), CvType.CV_8UC3);
-        mat.put(0, 0, pixels);
-        System.out.println("Converting image to Mat: " + convertedImage.getWidth() + "x" +
-                convertedImage.getHeight() + " type: " + convertedImage.getType() +
-                " data length: " + pixels.length + " mat channels: " + mat.channels());
-        return mat;
+        stats.recordCrop(result != null);
+        if (result == null) {
+            System.out.println("No successful decode after all enhancement strategies");
+        }
+        return result;
     }
 
-    /**
-     * Convert OpenCV Mat to BufferedImage
-     */
-    private BufferedImage matToBufferedImage(Mat mat) {
-        // First ensure we're working with a single channel (grayscale) image
-        Mat grayMat = new Mat();
-        if (mat.channels() > 1) {
-            Imgproc.cvtColor(mat, grayMat, Imgproc.COLOR_BGR2GRAY);
+    private Result runEnhancementCascade(BufferedImage image, List<EnhancementStrategy> strategies, String suffix,
+                                         EnhancementStats stats, Set<BarcodeFormat> formats) {
+        // One grayscale conversion per crop, read by ZXing in place; copied into OpenCV only once a strategy needs it
+        GrayU8 gray = ConvertBufferedImage.convertFrom(image, (GrayU8) null);
+        Mat grayMat = null;
+        try {
+            for (EnhancementStrategy strategy : strategies) {
+                LuminanceSource attempt;
+                if (strategy.transform == null) {
+                    attempt = GrayLuminanceSource.of(gray);
+                } else {
+                    if (grayMat == null) {
+                        grayMat = toMat(gray);
+                    }
+                    Mat enhanced = strategy.transform.apply(grayMat);
+                    try {
+                        attempt = GrayLuminanceSource.fromMat(enhanced);
+                    } finally {
+                        enhanced.release();
+                    }
+                }
+
+                Result result = attemptDecode(attempt, formats);
+                stats.record(strategy.name + suffix, result != null);
+                if (result != null) {
+                    System.out.println("Successfully decoded barcode with " + strategy.name + suffix);
+                    return result;
+                }
+            }
+            return null;
+        } finally {
+            if (grayMat != null) {
+                grayMat.release();
+            }
+        }
+    }
+
+    private Mat toMat(GrayU8 gray) {
+        Mat mat = new Mat(gray.height, gray.width, CvType.CV_8UC1);
+        if (gray.stride == gray.width && gray.startIndex == 0) {
+            mat.put(0, 0, gray.data);
         } else {
-            mat.copyTo(grayMat);
+            for (int y = 0; y < gray.height; y++) {
+                mat.put(y, 0, Arrays.copyOfRange(gray.data, gray.startIndex + y * gray.stride,
+                        gray.startIndex + y * gray.stride + gray.width));
+            }
         }
+        return mat;
+    }
+
+    private BufferedImage scaleImage(BufferedImage image, double factor) {
+        int width = Math.max(1, (int) (image.getWidth() * factor));
+        int height = Math.max(1, (int) (image.getHeight() * factor));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    // Brightness-shifted Otsu threshold
+    private static Mat otsu(Mat gray, double multiplier) {
+        Mat adjusted = new Mat();
+        Mat binary = new Mat();
+        gray.convertTo(adjusted, -1, 1.0, multiplier * 10);
+        Imgproc.threshold(adjusted, binary, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        adjusted.release();
+        return binary;
+    }
+
+    private static Mat adaptive(Mat gray, int blockSize) {
+        Mat binary = new Mat();
+        Imgproc.adaptiveThreshold(gray, binary, 255,
+                Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
+                Imgproc.THRESH_BINARY, blockSize, 2);
+        return binary;
+    }
 
-        byte[] pixels = new byte[(int) (grayMat.total())];
-        grayMat.get(0, 0, pixels);
+    private static Mat sharpenOtsu(Mat gray) {
+        Mat kernel = new Mat(3, 3, CvType.CV_32F);
+        kernel.put(0, 0, new float[] {
+                -1, -1, -1,
+                -1, 9, -1,
+                -1, -1, -1
+        });
+        Mat binary = new Mat();
+        Imgproc.filter2D(gray, binary, -1, kernel);
+        Imgproc.threshold(binary, binary, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        kernel.release();
+        return binary;
+    }
 
-        BufferedImage image = new BufferedImage(grayMat.cols(), grayMat.rows(), BufferedImage.TYPE_BYTE_GRAY);
-        byte[] imageData = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        System.arraycopy(pixels, 0, imageData, 0, pixels.length);
+    // Contrast stretching + Otsu
+    private static Mat stretchOtsu(Mat gray) {
+        Mat stretched = new Mat();
+        Mat binary = new Mat();
+        Core.normalize(gray, stretched, 0, 255, Core.NORM_MINMAX);
+        Imgproc.threshold(stretched, binary, 0, 255, Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        stretched.release();
+        return binary;
+    }
 
-        System.out.println("Converting Mat to image: " + grayMat.cols() + "x" +
-                grayMat.rows() + " channels: " + grayMat.channels() +
-                " data length: " + pixels.length);
+    /**
+     * Enhancement strategy statistics per model/source
+     */
+    public Map<String, Map<String, Object>> getEnhancementStats() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        enhancementStats.forEach((key, stats) -> snapshot.put(key, stats.toMap()));
+        return snapshot;
+    }
 
-        grayMat.release(); // Free OpenCV resources
-        return image;
+    /**
+     * Forget learned strategy order, e.g. after retraining a model
+     */
+    public void resetEnhancementStats() {
+        enhancementStats.clear();
     }
 
     /**
-     * Decode barcode using ZXing library
+     * Decode barcode using ZXing library, with this thread's reader for the format set
      */
-    private Result attemptDecode(BufferedImage barcodeImage) {
+    private Result attemptDecode(LuminanceSource luminance, Set<BarcodeFormat> formats) {
+        MultiFormatReader reader = DECODE_READERS.get().computeIfAbsent(formats, BarcodeService::createReader);
         try {
-            // Try multiple hints
-            Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-
-            // Try to decode in both directions
-            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-            hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
-
-            // Allow various barcode formats
-            Vector<BarcodeFormat> formats = new Vector<>();
-            formats.add(BarcodeFormat.CODE_128);
-            formats.add(BarcodeFormat.CODE_39);
-            formats.add(BarcodeFormat.EAN_13);
-            formats.add(BarcodeFormat.EAN_8);
-            formats.add(BarcodeFormat.UPC_A);
-            formats.add(BarcodeFormat.UPC_E);
-            formats.add(BarcodeFormat.ITF);
-            formats.add(BarcodeFormat.QR_CODE);
-            hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
-
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
-                    new BufferedImageLuminanceSource(barcodeImage)));
-
-            MultiFormatReader reader = new MultiFormatReader();
-            return reader.decode(bitmap, hints);
+            return reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(luminance)));
         } catch (ReaderException e) {
             return null;
+        } finally {
+            reader.reset();
         }
     }
 
+    private static MultiFormatReader createReader(Set<BarcodeFormat> formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        // Try to decode in both directions
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(formats));
+
+        MultiFormatReader reader = new MultiFormatReader();
+        reader.setHints(hints);
+        return reader;
+    }
+
+    /**
+     * Formats worth trying for a detection, narrowed by its class name when it names a symbology
+     * (e.g. "ean13", "code_128", "qr"); generic classes such as "barcode" get every supported format
+     */
+    private Set<BarcodeFormat> formatsForClass(String className) {
+        if (className == null) {
+            return DEFAULT_FORMATS;
+        }
+        return classFormats.computeIfAbsent(className, name -> {
+            String key = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+            Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+            if (key.contains("qr")) {
+                formats.add(BarcodeFormat.QR_CODE);
+            }
+            if (key.contains("ean13")) {
+                formats.add(BarcodeFormat.EAN_13);
+            } else if (key.contains("ean8")) {
+                formats.add(BarcodeFormat.EAN_8);
+            } else if (key.contains("ean") && !key.contains("ean128")) { // GS1-128 is Code 128
+                formats.addAll(EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.EAN_8));
+            }
+            if (key.contains("upca")) {
+                formats.add(BarcodeFormat.UPC_A);
+            } else if (key.contains("upce")) {
+                formats.add(BarcodeFormat.UPC_E);
+            } else if (key.contains("upc")) {
+                formats.addAll(EnumSet.of(BarcodeFormat.UPC_A, BarcodeFormat.UPC_E));
+            }
+            if (key.contains("128")) {
+                formats.add(BarcodeFormat.CODE_128);
+            }
+            if (key.contains("39")) {
+                formats.add(BarcodeFormat.CODE_39);
+            }
+            if (key.contains("itf") || key.contains("interleaved")) {
+                formats.add(BarcodeFormat.ITF);
+            }
+            Set<BarcodeFormat> narrowed = formats.isEmpty() ? DEFAULT_FORMATS : Collections.unmodifiableSet(formats);
+            System.out.println("Barcode class '" + name + "' decodes as " + narrowed);
+            return narrowed;
+        });
+    }
+
     /**
      * Crop detected region from image
      */
     private BufferedImage cropDetectedRegion(BufferedImage image, YOLOv8Detector.Detection detection) {
+        Rectangle bounds = paddedCropBounds(image.getWidth(), image.getHeight(), detection);
+        return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Area around a detection that is cropped for decoding, within an image of the given size
+     */
+    private Rectangle paddedCropBounds(int imageWidth, int imageHeight, YOLOv8Detector.Detection detection) {
         // Tính toán kích thước padding dựa trên kích thước barcode
         int width = (int) detection.getWidth();
         int height = (int) detection.getHeight();
@@ -538,8 +1047,8 @@ public class BarcodeService {
         // Thêm padding
         x = Math.max(0, x - dynamicPadding);
         y = Math.max(0, y - dynamicPadding);
-        width = Math.min(width + 2 * dynamicPadding, image.getWidth() - x);
-        height = Math.min(height + 2 * dynamicPadding, image.getHeight() - y);
+        width = Math.min(width + 2 * dynamicPadding, imageWidth - x);
+        height = Math.min(height + 2 * dynamicPadding, imageHeight - y);
 
         // Đảm bảo tỷ lệ khung hình phù hợp cho barcode
         float aspectRatio = (float) width / height;
@@ -547,10 +1056,10 @@ public class BarcodeService {
             int newWidth = (int) (height * 2.5f); // Mở rộng chiều rộng
             int widthPadding = (newWidth - width) / 2;
             x = Math.max(0, x - widthPadding);
-            width = Math.min(newWidth, image.getWidth() - x);
+            width = Math.min(newWidth, imageWidth - x);
         }
 
-        return image.getSubimage(x, y, width, height);
+        return new Rectangle(x, y, Math.max(1, width), Math.max(1, height));
     }
 
     /**
@@ -575,98 +1084,142 @@ public class BarcodeService {
     }
 
     /**
-     * Process detected barcode area with ZXing
-     */
-    private void processDetectedBarcodeArea(BufferedImage barcodeArea, ImageRegion region, 
-                                          YOLOv8Detector.Detection detection, DetailedBarcodeResult result, 
-                                          Set<String> processedBarcodes) {
-        // Enhance barcode image
-        BufferedImage enhancedBarcode = enhanceBarcodeImage(barcodeArea);
-        System.out.println("Barcode image enhanced");
-
-        // Decode barcode using ZXing
-        Result decodedResult = decodeBarcode(enhancedBarcode);
-
-        if (decodedResult != null && !processedBarcodes.contains(decodedResult.getText())) {
-            System.out.println("Barcode decoded successfully: " + decodedResult.getText());
-            System.out.println("Barcode format: " + decodedResult.getBarcodeFormat());
-
-            result.setRegionNumber(region.regionNumber);
-
-            DetailedBarcodeResult.BarcodeInfo barcodeInfo = new DetailedBarcodeResult.BarcodeInfo();
-            barcodeInfo.setContent(decodedResult.getText());
-            barcodeInfo.setFormat(decodedResult.getBarcodeFormat().toString());
-            barcodeInfo.setConfidence(detection.confidence);
-
-            // Set original location (in full image coordinates)
-            DetailedBarcodeResult.BoundingBox originalLocation = new DetailedBarcodeResult.BoundingBox();
-            originalLocation.setX(region.x + detection.x1);
-            originalLocation.setY(region.y + detection.y1);
-            originalLocation.setWidth(detection.getWidth() * region.width);
-            originalLocation.setHeight(detection.getHeight() * region.height);
-            barcodeInfo.setOriginalLocation(originalLocation);
-            System.out.println(
-                    "Original location: " + originalLocation.getX() + "," + originalLocation.getY() +
-                            " (" + originalLocation.getWidth() + "x" + originalLocation.getHeight() + ")");
-
-            // Set region location (relative to region)
-            DetailedBarcodeResult.BoundingBox regionLocation = new DetailedBarcodeResult.BoundingBox();
-            regionLocation.setX(detection.x1);
-            regionLocation.setY(detection.y1);
-            regionLocation.setWidth(detection.getWidth() * region.width);
-            regionLocation.setHeight(detection.getHeight() * region.height);
-            barcodeInfo.setRegionLocation(regionLocation);
-            System.out.println("Region location: " + regionLocation.getX() + "," + regionLocation.getY() +
-                    " (" + regionLocation.getWidth() + "x" + regionLocation.getHeight() + ")");
-
-            result.addBarcode(barcodeInfo);
-            processedBarcodes.add(decodedResult.getText());
-        } else if (decodedResult != null) {
-            System.out.println("Duplicate barcode detected, skipping: " + decodedResult.getText());
-        } else {
-            System.out.println("Failed to decode barcode from detected region");
+     * Barcode decoded from one crop; order is its position in sequential region/detection order
+     */
+    private static class DecodedCandidate {
+        final int order;
+        final int regionNumber;
+        final DetailedBarcodeResult.BarcodeInfo info;
+
+        DecodedCandidate(int order, int regionNumber, DetailedBarcodeResult.BarcodeInfo info) {
+            this.order = order;
+            this.regionNumber = regionNumber;
+            this.info = info;
         }
     }
 
     /**
-     * Process entire region with ZXing when YOLO detector is not available
+     * Run the detector on all regions: one batched call when the model has a dynamic batch dimension,
+     * otherwise the regions concurrently on the region pool
      */
-    private void processEntireRegionWithZXing(BufferedImage regionImage, ImageRegion region, 
-                                            DetailedBarcodeResult result, Set<String> processedBarcodes) {
-        // Enhance the entire region image
-        BufferedImage enhanced = enhanceBarcodeImage(regionImage);
-        
-        // Try to decode barcode from the enhanced region
-        Result decodedResult = decodeBarcode(enhanced);
-        
-        if (decodedResult != null && !processedBarcodes.contains(decodedResult.getText())) {
-            System.out.println("Barcode decoded from region " + region.regionNumber + ": " + decodedResult.getText());
-            
-            result.setRegionNumber(region.regionNumber);
-            
-            DetailedBarcodeResult.BarcodeInfo barcodeInfo = new DetailedBarcodeResult.BarcodeInfo();
-            barcodeInfo.setContent(decodedResult.getText());
-            barcodeInfo.setFormat(decodedResult.getBarcodeFormat().toString());
-            barcodeInfo.setConfidence(1.0f); // Set default confidence for ZXing-only detection
-            
-            // Set original location (approximate - entire region)
-            DetailedBarcodeResult.BoundingBox originalLocation = new DetailedBarcodeResult.BoundingBox();
-            originalLocation.setX(region.x);
-            originalLocation.setY(region.y);
-            originalLocation.setWidth(region.width);
-            originalLocation.setHeight(region.height);
-            barcodeInfo.setOriginalLocation(originalLocation);
-            
-            // Set region location (entire region)
-            DetailedBarcodeResult.BoundingBox regionLocation = new DetailedBarcodeResult.BoundingBox();
-            regionLocation.setX(0);
-            regionLocation.setY(0);
-            regionLocation.setWidth(region.width);
-            regionLocation.setHeight(region.height);
-            barcodeInfo.setRegionLocation(regionLocation);
-            
-            result.addBarcode(barcodeInfo);
-            processedBarcodes.add(decodedResult.getText());
+    private List<YOLOv8Detector.Detection[]> detectRegions(YOLOv8Detector detector, List<ImageRegion> regions) {
+        List<BufferedImage> images = new ArrayList<>();
+        for (ImageRegion region : regions) {
+            images.add(region.image);
+        }
+        if (detector.supportsBatching()) {
+            return Arrays.asList(detector.detectBatch(images));
+        }
+
+        List<Future<YOLOv8Detector.Detection[]>> futures = new ArrayList<>();
+        for (BufferedImage image : images) {
+            futures.add(regionExecutor.submit(() -> detector.detect(image)));
+        }
+        List<YOLOv8Detector.Detection[]> detections = new ArrayList<>();
+        for (Future<YOLOv8Detector.Detection[]> future : futures) {
+            detections.add(await(future));
+        }
+        return detections;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            await(future);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Barcode processing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException("Barcode processing failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Thread-safe de-duplication by content; the candidate with the lowest order wins
+     */
+    private void keepFirst(Map<String, DecodedCandidate> uniqueBarcodes, DecodedCandidate candidate) {
+        if (candidate != null) {
+            uniqueBarcodes.merge(candidate.info.getContent(), candidate,
+                    (existing, added) -> existing.order <= added.order ? existing : added);
+        }
+    }
+
+    /**
+     * Crop, enhance and decode one detected barcode area with ZXing
+     */
+    private DecodedCandidate decodeDetection(ImageRegion region, YOLOv8Detector.Detection detection, int order,
+                                             String statsKey) {
+        BufferedImage barcodeArea = cropDetectedRegion(region.image, detection);
+        Result decodedResult = enhanceAndDecode(barcodeArea, statsKey, formatsForClass(detection.className));
+        if (decodedResult == null) {
+            System.out.println("Failed to decode barcode from detected region in region " + region.regionNumber);
+            return null;
+        }
+        System.out.println("Barcode decoded in region " + region.regionNumber + ": " + decodedResult.getText()
+                + " (" + decodedResult.getBarcodeFormat() + ")");
+
+        DetailedBarcodeResult.BarcodeInfo barcodeInfo = new DetailedBarcodeResult.BarcodeInfo();
+        barcodeInfo.setContent(decodedResult.getText());
+        barcodeInfo.setFormat(decodedResult.getBarcodeFormat().toString());
+        barcodeInfo.setConfidence(detection.confidence);
+
+        // Set original location (in full image coordinates)
+        DetailedBarcodeResult.BoundingBox originalLocation = new DetailedBarcodeResult.BoundingBox();
+        originalLocation.setX(region.x + detection.x1);
+        originalLocation.setY(region.y + detection.y1);
+        originalLocation.setWidth(detection.getWidth() * region.width);
+        originalLocation.setHeight(detection.getHeight() * region.height);
+        barcodeInfo.setOriginalLocation(originalLocation);
+
+        // Set region location (relative to region)
+        DetailedBarcodeResult.BoundingBox regionLocation = new DetailedBarcodeResult.BoundingBox();
+        regionLocation.setX(detection.x1);
+        regionLocation.setY(detection.y1);
+        regionLocation.setWidth(detection.getWidth() * region.width);
+        regionLocation.setHeight(detection.getHeight() * region.height);
+        barcodeInfo.setRegionLocation(regionLocation);
+
+        return new DecodedCandidate(order, region.regionNumber, barcodeInfo);
+    }
+
+    /**
+     * Enhance and decode an entire region when YOLO detector is not available
+     */
+    private DecodedCandidate decodeEntireRegion(ImageRegion region, int order) {
+        Result decodedResult = enhanceAndDecode(region.image, "zxing-only/region", DEFAULT_FORMATS);
+        if (decodedResult == null) {
+            return null;
         }
+        System.out.println("Barcode decoded from region " + region.regionNumber + ": " + decodedResult.getText());
+
+        DetailedBarcodeResult.BarcodeInfo barcodeInfo = new DetailedBarcodeResult.BarcodeInfo();
+        barcodeInfo.setContent(decodedResult.getText());
+        barcodeInfo.setFormat(decodedResult.getBarcodeFormat().toString());
+        barcodeInfo.setConfidence(1.0f); // Set default confidence for ZXing-only detection
+
+        // Set original location (approximate - entire region)
+        DetailedBarcodeResult.BoundingBox originalLocation = new DetailedBarcodeResult.BoundingBox();
+        originalLocation.setX(region.x);
+        originalLocation.setY(region.y);
+        originalLocation.setWidth(region.width);
+        originalLocation.setHeight(region.height);
+        barcodeInfo.setOriginalLocation(originalLocation);
+
+        // Set region location (entire region)
+        DetailedBarcodeResult.BoundingBox regionLocation = new DetailedBarcodeResult.BoundingBox();
+        regionLocation.setX(0);
+        regionLocation.setY(0);
+        regionLocation.setWidth(region.width);
+        regionLocation.setHeight(region.height);
+        barcodeInfo.setRegionLocation(regionLocation);
+
+        return new DecodedCandidate(order, region.regionNumber, barcodeInfo);
     }
 }
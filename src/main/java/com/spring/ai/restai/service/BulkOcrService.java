@@ -0,0 +1,450 @@
+package com.spring.ai.restai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.plugins.ImageLoader;
+import com.spring.ai.restai.dto.DetectionResult;
+import com.spring.ai.restai.dto.OcrDetectionResponse;
+import com.spring.ai.restai.dto.OcrResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk CCCD OCR: uploads (files or a zip) flow through decode -> batched detection -> OCR stages and every
+ * document is written as one NDJSON line as soon as it completes, in completion order.
+ * At most ocr.bulk.max-in-flight documents are held in memory at a time.
+ */
+@Service
+public class BulkOcrService {
+
+    @Autowired
+    private DetectionService detectionService;
+
+    @Autowired
+    private OcrService ocrService;
+
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private CardTemplateService cardTemplateService;
+
+    // Images per detector run; a batch is closed early when no image arrives within batch-wait-ms
+    @Value("${ocr.bulk.batch-size:8}")
+    private int batchSize;
+
+    @Value("${ocr.bulk.batch-wait-ms:50}")
+    private long batchWaitMs;
+
+    @Value("${ocr.bulk.max-in-flight:32}")
+    private int maxInFlight;
+
+    // Documents OCRed concurrently; each one fans its fields out to the OCR engine pool
+    @Value("${ocr.bulk.ocr-parallelism:4}")
+    private int ocrParallelism;
+
+    // Zip entries larger than this are rejected instead of being inflated into memory
+    @Value("${ocr.bulk.max-entry-bytes:52428800}")
+    private long maxEntryBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService decodeExecutor;
+    private ExecutorService ocrExecutor;
+    private ExecutorService batchExecutor;
+
+    @PostConstruct
+    public void init() {
+        decodeExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        ocrExecutor = Executors.newFixedThreadPool(Math.max(1, ocrParallelism));
+        batchExecutor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Reject requests that would fail for every document before the response starts streaming
+     */
+    public void validate(String modelName, OcrOptions options) {
+        if (!modelService.modelExists(modelName)) {
+            throw new IllegalArgumentException("Model '" + modelName + "' not found");
+        }
+        cardTemplateService.resolve(options.getTemplate());
+    }
+
+    /**
+     * OCR all images and zip entries, writing one JSON line per document and a final summary line
+     */
+    public void process(String modelName, OcrOptions options, List<MultipartFile> images, MultipartFile archive,
+                        OutputStream out) throws IOException {
+        Run run = new Run(modelName, options, out);
+        Future<?> batcher = run.useTemplate ? null : batchExecutor.submit(run::detectLoop);
+        try {
+            submitUploads(run, images, archive);
+        } catch (IOException | RuntimeException e) {
+            // A broken zip or unreadable upload ends the input; documents already read are still completed
+            System.err.println("Bulk OCR input failed: " + e.getMessage());
+            run.error("Reading uploads failed: " + e.getMessage());
+        } finally {
+            run.finishSubmitting(batcher);
+        }
+        run.writeSummary();
+    }
+
+    private void submitUploads(Run run, List<MultipartFile> images, MultipartFile archive) throws IOException {
+        if (images != null) {
+            for (MultipartFile image : images) {
+                if (run.aborted) {
+                    break;
+                }
+                if (!image.isEmpty()) {
+                    run.submit(image.getOriginalFilename(), image.getBytes());
+                }
+            }
+        }
+        if (archive != null && !archive.isEmpty() && !run.aborted) {
+            try (ZipInputStream zip = new ZipInputStream(archive.getInputStream())) {
+                ZipEntry entry;
+                while (!run.aborted && (entry = zip.getNextEntry()) != null) {
+                    if (entry.isDirectory() || isHiddenEntry(entry.getName())) {
+                        continue;
+                    }
+                    byte[] data = zip.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxEntryBytes + 1));
+                    if (data.length > maxEntryBytes) {
+                        run.fail(run.nextIndex(), entry.getName(), "Entry larger than " + maxEntryBytes + " bytes");
+                    } else {
+                        run.submit(entry.getName(), data);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isHiddenEntry(String name) {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        return name.startsWith("__MACOSX/") || fileName.startsWith(".");
+    }
+
+    /**
+     * One document moving through the pipeline
+     */
+    private static class Document {
+        final int index;
+        final String name;
+        final long submittedAt = System.currentTimeMillis();
+        byte[] data;
+        ImageLoader.DecodedImage decoded;
+
+        Document(int index, String name, byte[] data) {
+            this.index = index;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final Document END = new Document(-1, null, null);
+
+    /**
+     * State of one bulk request
+     */
+    private class Run {
+        final String modelName;
+        final OcrOptions options;
+        final boolean useTemplate;
+        final OutputStream out;
+        final long startTime = System.currentTimeMillis();
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final BlockingQueue<Document> detectQueue = new LinkedBlockingQueue<>();
+        final List<Future<?>> decodes = new ArrayList<>();
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        volatile boolean aborted;
+
+        Run(String modelName, OcrOptions options, OutputStream out) {
+            this.modelName = modelName;
+            this.options = options;
+            // Template requests OCR per document and only fall back to detection when the card is not found
+            this.useTemplate = cardTemplateService.resolve(options.getTemplate()) != null;
+            this.out = out;
+        }
+
+        int nextIndex() {
+            return submitted.getAndIncrement();
+        }
+
+        /**
+         * Queue a document for decoding, waiting while max-in-flight documents are still being processed
+         */
+        void submit(String name, byte[] data) throws IOException {
+            acquire(1);
+            Document document = new Document(nextIndex(), name, data);
+            decodes.add(decodeExecutor.submit(() -> decode(document)));
+        }
+
+        /**
+         * Decode, then hand the document to the OCR or detection stage; any failure completes it here
+         */
+        void decode(Document document) {
+            try {
+                document.decoded = ImageLoader.open(document.data);
+                document.data = null;
+                if (useTemplate) {
+                    submitOcr(document, null);
+                } else {
+                    detectionService.decodeForDetection(document.decoded);
+                    detectQueue.add(document);
+                }
+            } catch (Throwable e) {
+                complete(document, null, e);
+            }
+        }
+
+        void submitOcr(Document document, DetectionResult detectionResult) {
+            try {
+                ocrExecutor.submit(() -> ocr(document, detectionResult));
+            } catch (RejectedExecutionException e) {
+                complete(document, null, e);
+            }
+        }
+
+        /**
+         * Collect decoded documents into batches for the detector until the end marker arrives
+         */
+        void detectLoop() {
+            try {
+                boolean done = false;
+                while (!done) {
+                    Document first = detectQueue.take();
+                    if (first == END) {
+                        return;
+                    }
+                    List<Document> batch = new ArrayList<>();
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + batchWaitMs;
+                    while (batch.size() < batchSize) {
+                        Document next = detectQueue.poll(Math.max(0, deadline - System.currentTimeMillis()),
+                                TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == END) {
+                            done = true;
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    detect(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void detect(List<Document> batch) {
+            List<ImageLoader.DecodedImage> decoded = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (Document document : batch) {
+                decoded.add(document.decoded);
+                names.add(document.name);
+            }
+            int handedOff = 0;
+            try {
+                List<DetectionResult> results = detectionService.detectBatch(modelName, decoded, names);
+                for (; handedOff < batch.size(); handedOff++) {
+                    submitOcr(batch.get(handedOff), results.get(handedOff));
+                }
+            } catch (Throwable e) {
+                // Let each remaining document detect on its own so one bad image does not fail the batch
+                System.err.println("Batch detection failed, detecting documents separately: " + e.getMessage());
+                for (Document document : batch.subList(handedOff, batch.size())) {
+                    submitOcr(document, null);
+                }
+            }
+        }
+
+        void ocr(Document document, DetectionResult detectionResult) {
+            OcrDetectionResponse response = null;
+            Throwable error = null;
+            try {
+                response = detectionResult != null
+                        ? ocrService.performOcrDetection(document.decoded, detectionResult, modelName, options)
+                        : ocrService.performOcrDetection(document.decoded, document.name, modelName, options);
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                // Frees the document's in-flight slot whatever happened
+                complete(document, response, error);
+            }
+        }
+
+        void fail(int index, String name, String message) {
+            failed.incrementAndGet();
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            line.put("fileName", name);
+            line.put("success", false);
+            line.put("error", message);
+            write(line);
+        }
+
+        /**
+         * Error line for a failure that is not tied to one document
+         */
+        void error(String message) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("success", false);
+            line.put("error", message);
+            write(line);
+        }
+
+        /**
+         * Write the document's line and free its slot
+         */
+        void complete(Document document, OcrDetectionResponse response, Throwable error) {
+            try {
+                if (error != null) {
+                    fail(document.index, document.name, String.valueOf(error.getMessage()));
+                    return;
+                }
+                succeeded.incrementAndGet();
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("index", document.index);
+                line.put("fileName", document.name);
+                line.put("success", true);
+                line.put("elapsedMs", System.currentTimeMillis() - document.submittedAt);
+                line.put("processingTimeMs", response.getProcessingTimeMs());
+                line.put("imageInfo", response.getImageInfo());
+                line.put("totalDetections", response.getTotalDetections());
+                line.put("cccdInfo", response.getCccdInfo());
+                line.put("cccdSource", response.getCccdSource());
+                line.put("fieldSource", response.getFieldSource());
+                line.put("results", formatResults(response.getResults()));
+                write(line);
+            } finally {
+                document.decoded = null;
+                inFlight.release();
+            }
+        }
+
+        void write(Map<String, Object> line) {
+            synchronized (out) {
+                if (aborted) {
+                    return;
+                }
+                try {
+                    out.write(objectMapper.writeValueAsBytes(line));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    // Client went away; stop reading further documents
+                    System.err.println("Bulk OCR client disconnected: " + e.getMessage());
+                    aborted = true;
+                }
+            }
+        }
+
+        /**
+         * Wait for all decodes, end the detection loop and wait until every document has been written
+         */
+        void finishSubmitting(Future<?> batcher) throws IOException {
+            try {
+                for (Future<?> decode : decodes) {
+                    decode.get();
+                }
+                if (batcher != null) {
+                    detectQueue.add(END);
+                    batcher.get();
+                }
+                acquire(maxInFlight);
+                inFlight.release(maxInFlight);
+            } catch (ExecutionException e) {
+                throw new IOException("Bulk OCR pipeline failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Bulk OCR interrupted", e);
+            }
+        }
+
+        void writeSummary() {
+            long elapsed = System.currentTimeMillis() - startTime;
+            int total = submitted.get();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("summary", true);
+            summary.put("documents", total);
+            summary.put("succeeded", succeeded.get());
+            summary.put("failed", failed.get());
+            summary.put("elapsedMs", elapsed);
+            summary.put("documentsPerSecond", elapsed > 0 ? total * 1000.0 / elapsed : 0.0);
+            write(summary);
+            System.out.println("Bulk OCR with " + modelName + ": " + total + " documents ("
+                    + failed.get() + " failed) in " + elapsed + "ms");
+        }
+
+        private void acquire(int permits) throws IOException {
+            try {
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Bulk OCR interrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Same result layout as /api/ocr/detect
+     */
+    private static List<Map<String, Object>> formatResults(List<OcrResult> results) {
+        List<Map<String, Object>> formatted = new ArrayList<>();
+        if (results == null) {
+            return formatted;
+        }
+        for (OcrResult result : results) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("text", result.getText());
+            item.put("confidence", result.getConfidence());
+            item.put("className", result.getClassName());
+            item.put("classId", result.getClassId());
+            if (result.getBoundingBox() != null) {
+                OcrResult.BoundingBox bbox = result.getBoundingBox();
+                Map<String, Object> boundingBox = new LinkedHashMap<>();
+                boundingBox.put("x1", bbox.getX1());
+                boundingBox.put("y1", bbox.getY1());
+                boundingBox.put("x2", bbox.getX2());
+                boundingBox.put("y2", bbox.getY2());
+                boundingBox.put("width", bbox.getWidth());
+                boundingBox.put("height", bbox.getHeight());
+                item.put("boundingBox", boundingBox);
+            }
+            formatted.add(item);
+        }
+        return formatted;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        decodeExecutor.shutdownNow();
+        ocrExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+        System.out.println("Bulk OCR executors shutdown");
+    }
+}
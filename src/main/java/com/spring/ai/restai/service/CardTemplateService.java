@@ -0,0 +1,150 @@
+package com.spring.ai.restai.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.restai.dto.CardTemplate;
+import com.spring.ai.restai.dto.DetectionResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of card layouts for the template OCR fast path.
+ * A built-in CCCD (chip card, front side) layout is always available; registered templates are saved
+ * next to the model registry.
+ */
+@Service
+public class CardTemplateService {
+
+    public static final String CCCD_TEMPLATE = "cccd";
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Value("${app.model.upload.dir:models}")
+    private String uploadDir;
+
+    // Template applied when a request does not choose one; empty disables the fast path
+    @Value("${ocr.template:}")
+    private String defaultTemplate;
+
+    private final String TEMPLATE_FILE = "card-templates.json";
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CardTemplate> templates = new ConcurrentHashMap<>();
+    private final CardTemplate builtInCccd = cccdTemplate();
+
+    @PostConstruct
+    public void init() {
+        templates.put(CCCD_TEMPLATE, builtInCccd);
+        try {
+            Path templatePath = Paths.get(uploadDir, TEMPLATE_FILE);
+            if (Files.exists(templatePath)) {
+                Map<String, CardTemplate> loaded = objectMapper.readValue(templatePath.toFile(),
+                        new TypeReference<Map<String, CardTemplate>>() {});
+                templates.putAll(loaded);
+                System.out.println("Loaded " + loaded.size() + " card templates");
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading card templates: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Approximate layout of the chip CCCD front at 1712x1080; register a calibrated "cccd" template to override it
+     */
+    private CardTemplate cccdTemplate() {
+        return new CardTemplate(CCCD_TEMPLATE, 1712, 1080)
+                .field("qr_code", 0.800f, 0.040f, 0.970f, 0.310f)
+                .field("portrait", 0.030f, 0.300f, 0.260f, 0.780f)
+                .field("id", 0.400f, 0.365f, 0.760f, 0.450f)
+                .field("name", 0.280f, 0.505f, 0.880f, 0.570f)
+                .field("birth", 0.540f, 0.570f, 0.760f, 0.630f)
+                .field("sex", 0.420f, 0.630f, 0.520f, 0.690f)
+                .field("nationality", 0.720f, 0.630f, 0.920f, 0.690f)
+                .field("place_of_origin", 0.280f, 0.720f, 0.970f, 0.785f)
+                .field("place_of_residence", 0.610f, 0.790f, 0.970f, 0.855f)
+                .field("place_of_residence", 0.280f, 0.855f, 0.970f, 0.925f)
+                .field("expiry", 0.030f, 0.830f, 0.260f, 0.890f);
+    }
+
+    /**
+     * Template for a request value; null or blank selects ocr.template, which may itself be empty (fast path off)
+     */
+    public CardTemplate resolve(String name) {
+        String templateName = name != null && !name.trim().isEmpty() ? name.trim() : defaultTemplate;
+        if (templateName == null || templateName.trim().isEmpty() || "none".equalsIgnoreCase(templateName.trim())) {
+            return null;
+        }
+        CardTemplate template = templates.get(templateName.trim());
+        if (template == null) {
+            throw new IllegalArgumentException("Card template '" + templateName + "' not found");
+        }
+        return template;
+    }
+
+    public List<CardTemplate> listTemplates() {
+        return new ArrayList<>(templates.values());
+    }
+
+    /**
+     * Add or replace a template and persist the registry
+     */
+    public CardTemplate registerTemplate(CardTemplate template) throws IOException {
+        if (template.getName() == null || template.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Template name cannot be empty");
+        }
+        if (template.getWidth() <= 0 || template.getHeight() <= 0) {
+            throw new IllegalArgumentException("Template width and height must be positive");
+        }
+        if (template.getFields() == null || template.getFields().isEmpty()) {
+            throw new IllegalArgumentException("Template must define at least one field");
+        }
+        for (CardTemplate.Field field : template.getFields()) {
+            if (field.getClassName() == null || field.getX1() < 0 || field.getY1() < 0 || field.getX2() > 1
+                    || field.getY2() > 1 || field.getX1() >= field.getX2() || field.getY1() >= field.getY2()) {
+                throw new IllegalArgumentException("Invalid field rectangle for " + field.getClassName()
+                        + ": coordinates must be normalized with x1 < x2 and y1 < y2");
+            }
+        }
+
+        template.setName(template.getName().trim());
+        templates.put(template.getName(), template);
+        resultCache.invalidateEndpoint("ocr");
+
+        Path uploadPath = Paths.get(uploadDir);
+        if (!Files.exists(uploadPath)) {
+            Files.createDirectories(uploadPath);
+        }
+        // Only registered templates are saved, the built-in layout is recreated at startup
+        Map<String, CardTemplate> registered = new ConcurrentHashMap<>(templates);
+        registered.remove(CCCD_TEMPLATE, builtInCccd);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(uploadPath.resolve(TEMPLATE_FILE).toFile(), registered);
+
+        System.out.println("Registered card template: " + template);
+        return template;
+    }
+
+    /**
+     * Template fields as detections on the warped card, so they can go through the regular OCR pipeline
+     */
+    public DetectionResult toDetectionResult(CardTemplate template, String modelName, String imageName) {
+        List<DetectionResult.DetectionItem> detections = new ArrayList<>();
+        for (CardTemplate.Field field : template.getFields()) {
+            detections.add(new DetectionResult.DetectionItem(
+                    field.getX1() * template.getWidth(), field.getY1() * template.getHeight(),
+                    field.getX2() * template.getWidth(), field.getY2() * template.getHeight(),
+                    1.0f, -1, field.getClassName()));
+        }
+        return new DetectionResult(modelName, imageName, template.getWidth(), template.getHeight(), 0, detections);
+    }
+}
@@ -1,13 +1,20 @@
 package com.spring.ai.restai.service;
 
+import com.spring.ai.plugins.ImageLoader;
+import com.spring.ai.plugins.InferenceBackend;
 import com.spring.ai.plugins.YOLOv8Detector;
 import com.spring.ai.restai.detector.GenericYOLODetector;
+import com.spring.ai.restai.detector.TiledDetector;
+import com.spring.ai.restai.dto.BenchmarkResult;
+import com.spring.ai.restai.dto.CascadeConfig;
 import com.spring.ai.restai.dto.DetectionResult;
 import com.spring.ai.restai.dto.ModelInfo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PreDestroy;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -16,6 +23,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class DetectionService {
@@ -23,13 +33,225 @@ public class DetectionService {
     @Autowired
     private ModelService modelService;
     
-    // Cache for loaded detectors to avoid reloading
-    private final Map<String, GenericYOLODetector> detectorCache = new ConcurrentHashMap<>();
+    @Autowired
+    private ResultCache resultCache;
+    
+    // Longer side detection decodes are subsampled towards; boxes are scaled back to the original
+    @Value("${detection.decode.max-size:1280}")
+    private int detectionDecodeSize;
+    
+    // Cache for loaded detectors to avoid reloading; evicted detectors close once in-flight calls finish
+    private final Map<String, SharedModel<GenericYOLODetector>> detectorCache = new ConcurrentHashMap<>();
+    
+    // Gate detectors for cascades, keyed by gate model and input size
+    private final Map<String, SharedModel<GenericYOLODetector>> gateDetectorCache = new ConcurrentHashMap<>();
+    
+    // Per-pipeline cascade counters (model name or stream endpoint)
+    private final Map<String, CascadeStats> cascadeStats = new ConcurrentHashMap<>();
+    
+    // Low floor for gate detectors so the gate score reflects the best candidate, not the NMS output
+    private static final float GATE_DETECTOR_CONF = 0.05f;
+
+    // Workers for tile batches of sliced inference
+    private final ExecutorService tilingExecutor =
+            Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    
+    /**
+     * Outcome of a cascade gate evaluation
+     */
+    public static class GateDecision {
+        private final boolean passed;
+        private final float score;
+        private final long timeMs;
+        
+        public GateDecision(boolean passed, float score, long timeMs) {
+            this.passed = passed;
+            this.score = score;
+            this.timeMs = timeMs;
+        }
+        
+        public boolean isPassed() { return passed; }
+        public float getScore() { return score; }
+        public long getTimeMs() { return timeMs; }
+    }
+    
+    /**
+     * Pass-rate counters for one cascade, used to tune the gate threshold
+     */
+    public static class CascadeStats {
+        private final AtomicLong gateEvaluations = new AtomicLong();
+        private final AtomicLong gatePassed = new AtomicLong();
+        private final AtomicLong gateTimeMs = new AtomicLong();
+        private final AtomicLong fullRuns = new AtomicLong();
+        private final AtomicLong fullRunsWithDetections = new AtomicLong();
+        
+        void recordGate(GateDecision decision) {
+            gateEvaluations.incrementAndGet();
+            gateTimeMs.addAndGet(decision.getTimeMs());
+            if (decision.isPassed()) {
+                gatePassed.incrementAndGet();
+            }
+        }
+        
+        void recordFullRun(boolean foundSomething) {
+            fullRuns.incrementAndGet();
+            if (foundSomething) {
+                fullRunsWithDetections.incrementAndGet();
+            }
+        }
+        
+        public Map<String, Object> toMap() {
+            long evaluated = gateEvaluations.get();
+            long passed = gatePassed.get();
+            long full = fullRuns.get();
+            long useful = fullRunsWithDetections.get();
+            
+            Map<String, Object> map = new java.util.LinkedHashMap<>();
+            map.put("gateEvaluations", evaluated);
+            map.put("gatePassed", passed);
+            map.put("gatePassRate", evaluated > 0 ? (double) passed / evaluated : 0.0);
+            map.put("gateAvgTimeMs", evaluated > 0 ? (double) gateTimeMs.get() / evaluated : 0.0);
+            map.put("fullRuns", full);
+            map.put("fullRunsWithDetections", useful);
+            // Share of full runs that found nothing - high values mean the gate threshold is too permissive
+            map.put("fullStageEmptyRate", full > 0 ? (double) (full - useful) / full : 0.0);
+            return map;
+        }
+    }
       /**
      * Perform object detection using specified model
      */
     public DetectionResult detect(String modelName, MultipartFile imageFile, 
                                 String classNames, Float confThreshold) throws IOException {
+        return detect(modelName, imageFile, classNames, confThreshold, null);
+    }
+
+    /**
+     * Perform object detection, slicing the image into tiles when a tiling config is given
+     */
+    public DetectionResult detect(String modelName, MultipartFile imageFile,
+                                String classNames, Float confThreshold, TiledDetector.Config tiling) throws IOException {
+        
+        // Validate model exists before paying for the decode
+        if (!modelService.modelExists(modelName)) {
+            throw new IllegalArgumentException("Model '" + modelName + "' not found");
+        }
+        
+        // Repeated uploads are answered from the result cache; a cascade gate model is versioned with the model
+        CascadeConfig cascade = getCascadeConfig(modelName);
+        String params = "classNames=" + classNames + ",conf=" + confThreshold + ",tiling=" + (tiling == null ? null
+                : tiling.getTileSize() + "/" + tiling.getOverlap() + "/" + tiling.getMinVariance());
+        
+        return resultCache.getOrCompute("detection", imageFile, params, () -> {
+            // Probe the image header; pixels are decoded at the resolution detection needs
+            ImageLoader.DecodedImage decoded;
+            try {
+                decoded = ImageLoader.open(imageFile.getBytes());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid image file");
+            }
+            
+            return detect(modelName, decoded, imageFile.getOriginalFilename(), classNames, confThreshold, tiling);
+        }, modelName, cascade != null ? cascade.getGateModel() : null);
+    }
+    
+    /**
+     * Perform object detection on a probed image.
+     * Runs on a subsampled decode (longer side near detection.decode.max-size) and reports boxes in original
+     * coordinates; tiled detection needs the small details and decodes at full resolution.
+     */
+    public DetectionResult detect(String modelName, ImageLoader.DecodedImage decoded, String imageName,
+                                String classNames, Float confThreshold, TiledDetector.Config tiling) throws IOException {
+        BufferedImage image = tiling != null ? decoded.getFullImage() : decoded.getImage(detectionDecodeSize);
+        System.out.println("Image loaded successfully: " + image.getWidth() + "x" + image.getHeight()
+                + " (original " + decoded.getWidth() + "x" + decoded.getHeight() + ")");
+        
+        DetectionResult result = detect(modelName, image, imageName, classNames, confThreshold, tiling);
+        return scaleToOriginal(result, image, decoded.getWidth(), decoded.getHeight());
+    }
+    
+    /**
+     * Decode the variant detection runs on, so pipelines can decode ahead of the detector
+     */
+    public BufferedImage decodeForDetection(ImageLoader.DecodedImage decoded) throws IOException {
+        return decoded.getImage(detectionDecodeSize);
+    }
+    
+    /**
+     * Detect objects in several probed images with batched inference (one run per image when the model has a fixed
+     * batch size). Models with a cascade gate are run image by image so the gate still applies.
+     */
+    public List<DetectionResult> detectBatch(String modelName, List<ImageLoader.DecodedImage> decodedImages,
+                                             List<String> imageNames) throws IOException {
+        if (!modelService.modelExists(modelName)) {
+            throw new IllegalArgumentException("Model '" + modelName + "' not found");
+        }
+        
+        List<DetectionResult> results = new ArrayList<>();
+        if (getCascadeConfig(modelName) != null) {
+            for (int i = 0; i < decodedImages.size(); i++) {
+                results.add(detect(modelName, decodedImages.get(i), imageNames.get(i), null, null, null));
+            }
+            return results;
+        }
+        
+        List<BufferedImage> images = new ArrayList<>();
+        for (ImageLoader.DecodedImage decoded : decodedImages) {
+            images.add(decodeForDetection(decoded));
+        }
+        
+        long startTime = System.currentTimeMillis();
+        YOLOv8Detector.Detection[][] detections;
+        SharedModel<GenericYOLODetector> detector = getOrCreateDetector(modelName, null, null);
+        try {
+            detections = detector.get().detectBatch(images);
+        } finally {
+            detector.release();
+        }
+        long timePerImage = (System.currentTimeMillis() - startTime) / Math.max(1, images.size());
+        
+        for (int i = 0; i < images.size(); i++) {
+            List<DetectionResult.DetectionItem> items = new ArrayList<>();
+            for (YOLOv8Detector.Detection detection : detections[i]) {
+                items.add(new DetectionResult.DetectionItem(detection.x1, detection.y1, detection.x2, detection.y2,
+                    detection.confidence, detection.classId, detection.className));
+            }
+            BufferedImage image = images.get(i);
+            DetectionResult result = new DetectionResult(modelName, imageNames.get(i), image.getWidth(), image.getHeight(),
+                timePerImage, items);
+            results.add(scaleToOriginal(result, image, decodedImages.get(i).getWidth(), decodedImages.get(i).getHeight()));
+        }
+        System.out.println("Batch detection with " + modelName + ": " + images.size() + " images in "
+            + (System.currentTimeMillis() - startTime) + "ms");
+        return results;
+    }
+    
+    /**
+     * Map boxes found on a subsampled decode back to original image coordinates
+     */
+    private DetectionResult scaleToOriginal(DetectionResult result, BufferedImage image, int originalWidth, int originalHeight) {
+        if (image.getWidth() == originalWidth && image.getHeight() == originalHeight) {
+            return result;
+        }
+        
+        float scaleX = (float) originalWidth / image.getWidth();
+        float scaleY = (float) originalHeight / image.getHeight();
+        for (DetectionResult.DetectionItem item : result.getDetections()) {
+            item.setX1(item.getX1() * scaleX);
+            item.setY1(item.getY1() * scaleY);
+            item.setX2(Math.min(originalWidth, item.getX2() * scaleX));
+            item.setY2(Math.min(originalHeight, item.getY2() * scaleY));
+        }
+        result.setImageWidth(originalWidth);
+        result.setImageHeight(originalHeight);
+        return result;
+    }
+    
+    /**
+     * Perform object detection on an already decoded image, for callers that decode the upload once
+     */
+    public DetectionResult detect(String modelName, BufferedImage image, String imageName,
+                                String classNames, Float confThreshold, TiledDetector.Config tiling) {
         
         System.out.println("Starting detection with model: " + modelName);
         
@@ -38,23 +260,41 @@ public class DetectionService {
             throw new IllegalArgumentException("Model '" + modelName + "' not found");
         }
         
+        // Get or create detector, leased so a backend switch cannot close it mid-call
+        SharedModel<GenericYOLODetector> sharedDetector = getOrCreateDetector(modelName, classNames, confThreshold);
         try {
-            // Get or create detector
-            GenericYOLODetector detector = getOrCreateDetector(modelName, classNames, confThreshold);
+            GenericYOLODetector detector = sharedDetector.get();
             
-            // Read image
-            BufferedImage image = ImageIO.read(imageFile.getInputStream());
-            if (image == null) {
-                throw new IllegalArgumentException("Invalid image file");
+            // Run the cheap gate first when the model has a cascade configured
+            CascadeConfig cascade = getCascadeConfig(modelName);
+            if (cascade != null) {
+                GateDecision decision = evaluateGate(modelName, cascade, image);
+                if (!decision.isPassed()) {
+                    System.out.println("Cascade gate rejected image for model " + modelName
+                            + " (score " + String.format("%.3f", decision.getScore()) + ")");
+                    DetectionResult gatedResult = new DetectionResult(modelName, imageName,
+                            image.getWidth(), image.getHeight(), decision.getTimeMs(), new ArrayList<>());
+                    gatedResult.setGated(true);
+                    gatedResult.setGateScore(decision.getScore());
+                    return gatedResult;
+                }
             }
-            
-            System.out.println("Image loaded successfully: " + image.getWidth() + "x" + image.getHeight());
               // Perform detection
             long startTime = System.currentTimeMillis();
-            YOLOv8Detector.Detection[] detections = detector.detect(image);
+            YOLOv8Detector.Detection[] detections;
+            TiledDetector.Result tiledResult = null;
+            if (tiling != null) {
+                tiledResult = new TiledDetector(detector, tilingExecutor).detect(image, tiling);
+                detections = tiledResult.getDetections();
+            } else {
+                detections = detector.detect(image);
+            }
             long endTime = System.currentTimeMillis();
             
             System.out.println("Detection completed: " + detections.length + " objects found");
+            if (cascade != null) {
+                cascadeStats.computeIfAbsent(modelName, k -> new CascadeStats()).recordFullRun(detections.length > 0);
+            }
             
             // Log all detections for debugging
             for (int i = 0; i < detections.length; i++) {
@@ -82,12 +322,16 @@ public class DetectionService {
             
             DetectionResult result = new DetectionResult(
                 modelName,
-                imageFile.getOriginalFilename(),
+                imageName,
                 image.getWidth(),
                 image.getHeight(),
                 endTime - startTime,
                 detectionItems
             );
+            if (tiledResult != null) {
+                result.setTileCount(tiledResult.getTileCount());
+                result.setSkippedTiles(tiledResult.getSkippedTiles());
+            }
             
             System.out.println("Detection result created successfully");
             return result;
@@ -96,38 +340,200 @@ public class DetectionService {
             System.err.println("Detection failed with error: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Detection failed: " + e.getMessage(), e);
+        } finally {
+            sharedDetector.release();
         }
     }
       /**
-     * Get or create detector for model
+     * Get or create detector for model, leased: callers release it when done
      */
-    private GenericYOLODetector getOrCreateDetector(String modelName, String classNames, Float confThreshold) {
+    private SharedModel<GenericYOLODetector> getOrCreateDetector(String modelName, String classNames, Float confThreshold) {
         String cacheKey = modelName + "_" + (classNames != null ? classNames.hashCode() : "default") + 
                          "_" + (confThreshold != null ? confThreshold : "default");
-          return detectorCache.computeIfAbsent(cacheKey, k -> {
-            String modelPath = modelService.getModelPath(modelName);
-            GenericYOLODetector detector;
-            
-            // Use higher confidence threshold for better results
-            float finalConfThreshold = confThreshold != null ? confThreshold : 0.5f; // Increased from default 0.25f
-              if (confThreshold != null) {
-                detector = new GenericYOLODetector(modelPath, 640, 640, finalConfThreshold);
-            } else {
-                detector = new GenericYOLODetector(modelPath, 640, 640, finalConfThreshold);
+        return SharedModel.lease(detectorCache, cacheKey, k -> new SharedModel<>(
+            createDetector(modelName, classNames, confThreshold, modelService.getModelBackend(modelName)),
+            GenericYOLODetector::close));
+    }
+    
+    /**
+     * Create a detector for model on the given inference backend
+     */
+    private GenericYOLODetector createDetector(String modelName, String classNames, Float confThreshold, String backend) {
+        String modelPath = modelService.getModelPath(modelName);
+        
+        // Use higher confidence threshold for better results
+        float finalConfThreshold = confThreshold != null ? confThreshold : 0.5f; // Increased from default 0.25f
+        GenericYOLODetector detector = new GenericYOLODetector(modelPath, 640, 640, finalConfThreshold, backend);
+        
+        // Set class names if provided
+        if (classNames != null && !classNames.trim().isEmpty()) {
+            detector.setClassNamesFromString(classNames);
+        }
+        
+        // IMPORTANT: Reduce NMS threshold for CCCD models to preserve multiple text lines
+        // Default NMS threshold is 0.45, which may remove overlapping address lines
+        // Lower NMS threshold (higher value = less suppression) to keep more detections
+        detector.setNmsThreshold(0.3f); // Reduced from 0.45f to 0.3f
+        
+        System.out.println("Created new detector for model: " + modelName + " (backend: " + backend
+                + ") with NMS threshold: 0.3");
+        return detector;
+    }
+    
+    /**
+     * Benchmark every inference backend on the same image for a model.
+     * Detectors are created outside the cache so the benchmark does not disturb live traffic.
+     */
+    public List<BenchmarkResult> benchmarkBackends(String modelName, MultipartFile imageFile, int iterations) throws IOException {
+        if (!modelService.modelExists(modelName)) {
+            throw new IllegalArgumentException("Model '" + modelName + "' not found");
+        }
+        
+        BufferedImage image = ImageIO.read(imageFile.getInputStream());
+        if (image == null) {
+            throw new IllegalArgumentException("Invalid image file");
+        }
+        
+        int runs = Math.max(1, iterations);
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (String backend : List.of(InferenceBackend.ONNX_RUNTIME, InferenceBackend.OPENCV_DNN)) {
+            GenericYOLODetector detector = null;
+            try {
+                long loadStart = System.nanoTime();
+                detector = createDetector(modelName, null, null, backend);
+                long loadTime = System.nanoTime() - loadStart;
+                
+                // Warm-up run, not measured
+                YOLOv8Detector.Detection[] detections = detector.detect(image);
+                
+                long[] timings = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    detections = detector.detect(image);
+                    timings[i] = System.nanoTime() - start;
+                }
+                
+                BenchmarkResult result = BenchmarkResult.fromNanos(backend, timings)
+                    .detail("loadTimeMs", loadTime / 1_000_000)
+                    .detail("detections", detections.length);
+                results.add(result);
+                System.out.println("Benchmark " + modelName + ": " + result);
+                
+            } catch (Exception e) {
+                System.err.println("Benchmark failed for backend " + backend + ": " + e.getMessage());
+                results.add(new BenchmarkResult(backend).detail("error", e.getMessage()));
+            } finally {
+                if (detector != null) {
+                    detector.close();
+                }
             }
-            
-            // Set class names if provided
-            if (classNames != null && !classNames.trim().isEmpty()) {
-                detector.setClassNamesFromString(classNames);
+        }
+        return results;
+    }
+    
+    /**
+     * Get active cascade config for a model, null when the model runs without a gate
+     */
+    private CascadeConfig getCascadeConfig(String modelName) {
+        ModelInfo modelInfo = modelService.getModelInfo(modelName);
+        if (modelInfo == null || modelInfo.getCascade() == null || !modelInfo.getCascade().isEnabled()) {
+            return null;
+        }
+        return modelInfo.getCascade();
+    }
+    
+    /**
+     * Evaluate the model's configured gate on an image and record its pass rate
+     */
+    private GateDecision evaluateGate(String modelName, CascadeConfig cascade, BufferedImage image) {
+        String gateModel = cascade.getGateModel() != null ? cascade.getGateModel() : modelName;
+        return evaluateGate(modelName, gateModel, cascade.getGateInputSize(), cascade.getThreshold(), image);
+    }
+    
+    /**
+     * Run a gate model on an image. The gate score is the highest detection confidence.
+     * Stats are recorded under the pipeline name so streams and models can be tuned separately.
+     * Gate failures fail open so a broken gate never hides results.
+     */
+    public GateDecision evaluateGate(String pipeline, String gateModel, int inputSize, float threshold, BufferedImage image) {
+        long startTime = System.currentTimeMillis();
+        GateDecision decision;
+        try {
+            SharedModel<GenericYOLODetector> gate = getOrCreateGateDetector(gateModel, inputSize);
+            YOLOv8Detector.Detection[] candidates;
+            try {
+                candidates = gate.get().detect(image);
+            } finally {
+                gate.release();
             }
             
-            // IMPORTANT: Reduce NMS threshold for CCCD models to preserve multiple text lines
-            // Default NMS threshold is 0.45, which may remove overlapping address lines
-            // Lower NMS threshold (higher value = less suppression) to keep more detections
-            detector.setNmsThreshold(0.3f); // Reduced from 0.45f to 0.3f
-            
-            System.out.println("Created new detector for model: " + modelName + " with NMS threshold: 0.3");
-            return detector;
+            float score = 0f;
+            for (YOLOv8Detector.Detection candidate : candidates) {
+                score = Math.max(score, candidate.confidence);
+            }
+            decision = new GateDecision(score >= threshold, score, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            System.err.println("Gate evaluation failed for " + gateModel + ", passing through: " + e.getMessage());
+            decision = new GateDecision(true, 1f, System.currentTimeMillis() - startTime);
+        }
+        
+        CascadeStats stats = cascadeStats.computeIfAbsent(pipeline, k -> new CascadeStats());
+        stats.recordGate(decision);
+        System.out.println("Gate " + gateModel + " for " + pipeline + ": score=" + String.format("%.3f", decision.getScore())
+                + ", passed=" + decision.isPassed() + " (" + decision.getTimeMs() + "ms)");
+        return decision;
+    }
+    
+    /**
+     * Record that the expensive stage ran after a gate evaluated by {@link #evaluateGate}
+     */
+    public void recordCascadeFullRun(String pipeline, boolean foundSomething) {
+        cascadeStats.computeIfAbsent(pipeline, k -> new CascadeStats()).recordFullRun(foundSomething);
+    }
+    
+    /**
+     * Get cascade pass-rate statistics for all pipelines
+     */
+    public Map<String, Map<String, Object>> getCascadeStats() {
+        Map<String, Map<String, Object>> snapshot = new java.util.TreeMap<>();
+        cascadeStats.forEach((pipeline, stats) -> snapshot.put(pipeline, stats.toMap()));
+        return snapshot;
+    }
+    
+    /**
+     * Configure (or remove with null) the cascade gate for a model
+     */
+    public boolean updateModelCascade(String modelName, CascadeConfig cascade) {
+        ModelInfo modelInfo = modelService.updateModelCascade(modelName, cascade);
+        if (modelInfo == null) {
+            return false;
+        }
+        cascadeStats.remove(modelName);
+        return true;
+    }
+    
+    /**
+     * Reset cascade statistics, e.g. after changing a threshold
+     */
+    public void resetCascadeStats() {
+        cascadeStats.clear();
+    }
+    
+    /**
+     * Lease a gate detector, creating it when missing. When the gate is the full model itself this is a low-res pass.
+     */
+    private SharedModel<GenericYOLODetector> getOrCreateGateDetector(String gateModel, int inputSize) {
+        if (!modelService.modelExists(gateModel)) {
+            throw new IllegalArgumentException("Gate model '" + gateModel + "' not found");
+        }
+        
+        String cacheKey = gateModel + "_gate_" + inputSize;
+        return SharedModel.lease(gateDetectorCache, cacheKey, k -> {
+            GenericYOLODetector detector = new GenericYOLODetector(modelService.getModelPath(gateModel),
+                    inputSize, inputSize, GATE_DETECTOR_CONF, modelService.getModelBackend(gateModel));
+            System.out.println("Created gate detector for model: " + gateModel + " at "
+                    + detector.getTargetWidth() + "x" + detector.getTargetHeight());
+            return new SharedModel<>(detector, GenericYOLODetector::close);
         });
     }
     
@@ -135,7 +541,21 @@ public class DetectionService {
      * Clear detector cache for a specific model
      */
     public void clearDetectorCache(String modelName) {
-        detectorCache.entrySet().removeIf(entry -> entry.getKey().startsWith(modelName + "_"));
+        // Evicted detectors are closed once the requests still using them finish
+        detectorCache.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(modelName + "_")) {
+                entry.getValue().retire();
+                return true;
+            }
+            return false;
+        });
+        gateDetectorCache.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(modelName + "_gate_")) {
+                entry.getValue().retire();
+                return true;
+            }
+            return false;
+        });
         System.out.println("Cleared detector cache for model: " + modelName);
     }
     
@@ -143,17 +563,22 @@ public class DetectionService {
      * Clear all detector cache
      */
     public void clearAllDetectorCache() {
-        // Close all detectors before removing
-        detectorCache.values().forEach(detector -> {
-            try {
-                detector.close();
-            } catch (Exception e) {
-                System.err.println("Error closing detector: " + e.getMessage());
-            }
-        });
+        // Close all detectors once their in-flight calls finish
+        detectorCache.values().forEach(SharedModel::retire);
         detectorCache.clear();
+        gateDetectorCache.values().forEach(SharedModel::retire);
+        gateDetectorCache.clear();
         System.out.println("Cleared all detector cache");
     }
+
+    /**
+     * Stop tiling workers on shutdown
+     */
+    @PreDestroy
+    public void cleanup() {
+        tilingExecutor.shutdown();
+        System.out.println("Tiling ExecutorService shutdown");
+    }
     
     /**
      * Get available models for detection
@@ -174,6 +599,7 @@ public class DetectionService {
             
             // Clear existing detector cache for this model to force recreation with new class names
             clearDetectorCache(modelName);
+            resultCache.invalidateModel(modelName);
             
             // Store class names for future detector creation
             // For now, we'll store in memory. In production, this could be stored in database
@@ -0,0 +1,111 @@
+package com.spring.ai.restai.service;
+
+import boofcv.struct.image.GrayU8;
+import com.google.zxing.LuminanceSource;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * ZXing luminance over a grayscale byte buffer that is read in place: a BoofCV GrayU8 or the pixels of an
+ * OpenCV Mat copied once into a per-thread pooled array. Cropping shares the buffer.
+ */
+public class GrayLuminanceSource extends LuminanceSource {
+
+    // Reused by fromMat on each thread; a source made from it is valid until the next fromMat on that thread
+    private static final ThreadLocal<byte[]> MAT_BUFFER = ThreadLocal.withInitial(() -> new byte[0]);
+
+    private final byte[] data;
+    private final int offset;
+    private final int stride;
+
+    public GrayLuminanceSource(byte[] data, int offset, int stride, int width, int height) {
+        super(width, height);
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    /**
+     * Wraps the image buffer, including sub-images, without copying
+     */
+    public static GrayLuminanceSource of(GrayU8 gray) {
+        return new GrayLuminanceSource(gray.data, gray.startIndex, gray.stride, gray.width, gray.height);
+    }
+
+    /**
+     * Single-channel 8-bit Mat read into the calling thread's pooled buffer
+     */
+    public static GrayLuminanceSource fromMat(Mat mat) {
+        if (mat.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Expected a CV_8UC1 Mat, got " + CvType.typeToString(mat.type()));
+        }
+        int size = (int) mat.total();
+        byte[] buffer = MAT_BUFFER.get();
+        if (buffer.length < size) {
+            buffer = new byte[size];
+            MAT_BUFFER.set(buffer);
+        }
+        mat.get(0, 0, buffer);
+        return new GrayLuminanceSource(buffer, 0, mat.cols(), mat.cols(), mat.rows());
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        System.arraycopy(data, offset + y * stride, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        // The buffer is the matrix when it is exactly this image
+        if (offset == 0 && stride == width && data.length == width * height) {
+            return data;
+        }
+        byte[] matrix = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(data, offset + y * stride, matrix, y * width, width);
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new GrayLuminanceSource(data, offset + top * stride + left, stride, width, height);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    /**
+     * Copies: only used when TRY_HARDER retries 1D barcodes turned by 90 degrees
+     */
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] rotated = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            int rowStart = offset + y * stride;
+            for (int x = 0; x < width; x++) {
+                rotated[(width - 1 - x) * height + y] = data[rowStart + x];
+            }
+        }
+        return new GrayLuminanceSource(rotated, 0, height, height, width);
+    }
+}
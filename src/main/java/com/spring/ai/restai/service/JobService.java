@@ -0,0 +1,427 @@
+package com.spring.ai.restai.service;
+
+import com.spring.ai.restai.dto.Job;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous OCR, detection and barcode jobs.
+ * Each job type has a fixed worker pool fed by a bounded priority queue, so request threads return immediately and
+ * bursts queue up (or are rejected) instead of piling onto the compute pools. Finished jobs are kept for
+ * jobs.ttl-seconds so clients can poll for them.
+ */
+@Service
+public class JobService {
+
+    public static final String TYPE_OCR = "ocr";
+    public static final String TYPE_DETECTION = "detection";
+    public static final String TYPE_BARCODE = "barcode";
+
+    /**
+     * Work of a job, run on a worker with the stored upload
+     */
+    @FunctionalInterface
+    public interface JobWork {
+        Object run(MultipartFile file) throws Exception;
+    }
+
+    @Autowired
+    private OcrService ocrService;
+
+    @Autowired
+    private DetectionService detectionService;
+
+    @Autowired
+    private BarcodeService barcodeService;
+
+    @Value("${jobs.workers.ocr:2}")
+    private int ocrWorkers;
+
+    @Value("${jobs.workers.detection:2}")
+    private int detectionWorkers;
+
+    @Value("${jobs.workers.barcode:1}")
+    private int barcodeWorkers;
+
+    // Queued jobs per type; further submissions are rejected until workers catch up
+    @Value("${jobs.queue.capacity:100}")
+    private int queueCapacity;
+
+    @Value("${jobs.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    @Value("${jobs.sse-timeout-ms:600000}")
+    private long sseTimeoutMs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, JobTask> queuedTasks = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, ThreadPoolExecutor> executors = new TreeMap<>();
+    private final Map<String, TypeStats> stats = new TreeMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ScheduledExecutorService evictionExecutor;
+
+    /**
+     * Queued job ordered by priority (higher first), then submission order
+     */
+    private class JobTask implements Runnable, Comparable<JobTask> {
+        final Job job;
+        final StoredFile file;
+        final JobWork work;
+        final long seq = sequence.incrementAndGet();
+
+        JobTask(Job job, StoredFile file, JobWork work) {
+            this.job = job;
+            this.file = file;
+            this.work = work;
+        }
+
+        @Override
+        public int compareTo(JobTask other) {
+            int byPriority = Integer.compare(other.job.getPriority(), job.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public void run() {
+            execute(this);
+        }
+    }
+
+    /**
+     * Queue and timing counters of one job type
+     */
+    private static class TypeStats {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong totalWaitMs = new AtomicLong();
+        final AtomicLong maxWaitMs = new AtomicLong();
+        final AtomicLong totalRunMs = new AtomicLong();
+    }
+
+    @PostConstruct
+    public void init() {
+        createPool(TYPE_OCR, ocrWorkers);
+        createPool(TYPE_DETECTION, detectionWorkers);
+        createPool(TYPE_BARCODE, barcodeWorkers);
+
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor();
+        long period = Math.max(1, Math.min(60, ttlSeconds));
+        evictionExecutor.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.SECONDS);
+        System.out.println("Job workers: ocr=" + ocrWorkers + ", detection=" + detectionWorkers
+                + ", barcode=" + barcodeWorkers + ", queue capacity " + queueCapacity);
+    }
+
+    private void createPool(String type, int workers) {
+        int size = Math.max(1, workers);
+        executors.put(type, new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>()));
+        stats.put(type, new TypeStats());
+    }
+
+    /**
+     * OCR job with the same options as /api/ocr/detect
+     */
+    public Job submitOcr(MultipartFile file, int priority, String modelName, OcrOptions options,
+                         Map<String, String> params) throws IOException {
+        return submit(TYPE_OCR, file, priority, params, stored -> ocrService.performOcrDetection(stored, modelName, options));
+    }
+
+    public Job submitDetection(MultipartFile file, int priority, String modelName, String classNames,
+                               Float confThreshold, Map<String, String> params) throws IOException {
+        return submit(TYPE_DETECTION, file, priority, params,
+                stored -> detectionService.detect(modelName, stored, classNames, confThreshold));
+    }
+
+    public Job submitBarcode(MultipartFile file, int priority, String modelId, Map<String, String> params) throws IOException {
+        return submit(TYPE_BARCODE, file, priority, params, stored -> barcodeService.processDocument(stored, modelId));
+    }
+
+    /**
+     * Spool the upload to a temp file (the request's multipart data is gone once it returns) and queue the job.
+     * Throws IllegalStateException when the queue of this job type is full.
+     */
+    private Job submit(String type, MultipartFile file, int priority, Map<String, String> params,
+                       JobWork work) throws IOException {
+        ThreadPoolExecutor executor = executors.get(type);
+        TypeStats typeStats = stats.get(type);
+        // Cheap pre-check so a full queue does not cost a copy of the upload
+        if (executor.getQueue().size() >= queueCapacity) {
+            typeStats.rejected.incrementAndGet();
+            throw new IllegalStateException("Job queue for " + type + " is full (" + queueCapacity + " jobs), retry later");
+        }
+
+        StoredFile stored = StoredFile.spool(file);
+        Job job = new Job(UUID.randomUUID().toString(), type, priority, file.getOriginalFilename(), params);
+        JobTask task = new JobTask(job, stored, work);
+        synchronized (this) {
+            if (executor.getQueue().size() >= queueCapacity) {
+                typeStats.rejected.incrementAndGet();
+                stored.delete();
+                throw new IllegalStateException("Job queue for " + type + " is full (" + queueCapacity + " jobs), retry later");
+            }
+            jobs.put(job.getId(), job);
+            queuedTasks.put(job.getId(), task);
+            typeStats.submitted.incrementAndGet();
+            executor.execute(task);
+        }
+
+        System.out.println("Queued " + job + " (queue depth " + executor.getQueue().size() + ")");
+        return job;
+    }
+
+    private void execute(JobTask task) {
+        Job job = task.job;
+        TypeStats typeStats = stats.get(job.getType());
+        synchronized (job) {
+            if (queuedTasks.remove(job.getId()) == null) {
+                return; // Cancelled while queued
+            }
+            job.setStartedAt(System.currentTimeMillis());
+            job.setStatus("RUNNING");
+        }
+        long waitMs = job.getWaitTimeMs();
+        typeStats.started.incrementAndGet();
+        typeStats.totalWaitMs.addAndGet(waitMs);
+        typeStats.maxWaitMs.accumulateAndGet(waitMs, Math::max);
+        publish(job);
+
+        try {
+            Object result = task.work.run(task.file);
+            synchronized (job) {
+                job.setResult(result);
+                job.setStatus("SUCCEEDED");
+                job.setFinishedAt(System.currentTimeMillis());
+            }
+            typeStats.succeeded.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("Job " + job.getId() + " failed: " + e.getMessage());
+            synchronized (job) {
+                job.setError(e.getMessage() != null ? e.getMessage() : e.toString());
+                job.setStatus("FAILED");
+                job.setFinishedAt(System.currentTimeMillis());
+            }
+            typeStats.failed.incrementAndGet();
+        } finally {
+            task.file.delete();
+        }
+        typeStats.totalRunMs.addAndGet(job.getRunTimeMs());
+        publish(job);
+    }
+
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancel a job that has not started yet; returns false when it is unknown or already running
+     */
+    public boolean cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return false;
+        }
+        synchronized (job) {
+            JobTask task = queuedTasks.remove(id);
+            if (task == null) {
+                return false;
+            }
+            executors.get(job.getType()).remove(task);
+            task.file.delete();
+            job.setStatus("CANCELLED");
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+        stats.get(job.getType()).cancelled.incrementAndGet();
+        publish(job);
+        return true;
+    }
+
+    /**
+     * Server-sent events for a job: "status" on every transition and "result" with the finished job
+     */
+    public SseEmitter subscribe(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> jobListeners = listeners.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>());
+        jobListeners.add(emitter);
+        emitter.onCompletion(() -> jobListeners.remove(emitter));
+        emitter.onTimeout(() -> jobListeners.remove(emitter));
+        emitter.onError(e -> jobListeners.remove(emitter));
+        // Current state right away, so subscribing after a transition does not miss it
+        send(emitter, job);
+        return emitter;
+    }
+
+    private void publish(Job job) {
+        List<SseEmitter> jobListeners = listeners.get(job.getId());
+        if (jobListeners != null) {
+            jobListeners.forEach(emitter -> send(emitter, job));
+        }
+        if (job.isFinished()) {
+            listeners.remove(job.getId());
+        }
+    }
+
+    private void send(SseEmitter emitter, Job job) {
+        try {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("id", job.getId());
+            status.put("status", job.getStatus());
+            status.put("waitTimeMs", job.getWaitTimeMs());
+            status.put("runTimeMs", job.getRunTimeMs());
+            emitter.send(SseEmitter.event().name("status").data(status));
+            if (job.isFinished()) {
+                emitter.send(SseEmitter.event().name("result").data(job));
+                emitter.complete();
+            }
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * Queue depth, workers and wait/run times per job type
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((type, typeStats) -> {
+            ThreadPoolExecutor executor = executors.get(type);
+            long started = typeStats.started.get();
+            long finished = typeStats.succeeded.get() + typeStats.failed.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("workers", executor.getMaximumPoolSize());
+            map.put("running", executor.getActiveCount());
+            map.put("queueDepth", executor.getQueue().size());
+            map.put("queueCapacity", queueCapacity);
+            map.put("submitted", typeStats.submitted.get());
+            map.put("rejected", typeStats.rejected.get());
+            map.put("succeeded", typeStats.succeeded.get());
+            map.put("failed", typeStats.failed.get());
+            map.put("cancelled", typeStats.cancelled.get());
+            map.put("avgWaitMs", started > 0 ? (double) typeStats.totalWaitMs.get() / started : 0.0);
+            map.put("maxWaitMs", typeStats.maxWaitMs.get());
+            map.put("avgRunMs", finished > 0 ? (double) typeStats.totalRunMs.get() / finished : 0.0);
+            result.put(type, map);
+        });
+        result.put("retainedJobs", jobs.size());
+        return result;
+    }
+
+    /**
+     * Drop finished jobs past their TTL. Their uploads were already deleted when they ran or were cancelled.
+     */
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlSeconds * 1000;
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+        int evicted = before - jobs.size();
+        if (evicted > 0) {
+            System.out.println("Evicted " + evicted + " expired jobs");
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+        evictionExecutor.shutdownNow();
+        // Uploads of jobs that never ran
+        queuedTasks.values().forEach(task -> task.file.delete());
+        queuedTasks.clear();
+        System.out.println("Job executors shutdown");
+    }
+
+    /**
+     * Upload spooled to a temp file until its job has run or was cancelled
+     */
+    private static class StoredFile implements MultipartFile {
+        private final String name;
+        private final String originalFilename;
+        private final String contentType;
+        private final Path path;
+        private final long size;
+
+        StoredFile(String name, String originalFilename, String contentType, Path path, long size) {
+            this.name = name;
+            this.originalFilename = originalFilename;
+            this.contentType = contentType;
+            this.path = path;
+            this.size = size;
+        }
+
+        static StoredFile spool(MultipartFile file) throws IOException {
+            Path tempFile = Files.createTempFile("job-", ".upload");
+            try (InputStream in = file.getInputStream()) {
+                long size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                return new StoredFile(file.getName(), file.getOriginalFilename(), file.getContentType(), tempFile, size);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("Could not delete job upload " + path + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public String getOriginalFilename() { return originalFilename; }
+
+        @Override
+        public String getContentType() { return contentType; }
+
+        @Override
+        public boolean isEmpty() { return size == 0; }
+
+        @Override
+        public long getSize() { return size; }
+
+        @Override
+        public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+
+        @Override
+        public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
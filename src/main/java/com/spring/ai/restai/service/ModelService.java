@@ -1,10 +1,13 @@
 package com.spring.ai.restai.service;
 
+import com.spring.ai.plugins.InferenceBackend;
+import com.spring.ai.restai.dto.CascadeConfig;
 import com.spring.ai.restai.dto.ModelInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -26,6 +29,9 @@ public class ModelService {
       private final String REGISTRY_FILE = "model-registry.json";
     private final ObjectMapper objectMapper;
     
+    @Autowired
+    private ResultCache resultCache;
+    
     // In-memory cache loaded from JSON file
     private final Map<String, ModelInfo> modelRegistry = new ConcurrentHashMap<>();
       public ModelService() {
@@ -85,6 +91,19 @@ public class ModelService {
       /**
      * Upload ONNX model
      */    public ModelInfo uploadModel(MultipartFile file, String modelName, String modelType, String description) throws IOException {
+        return uploadModel(file, modelName, modelType, description, null);
+    }
+    
+    /**
+     * Upload ONNX model with a specific inference backend
+     */
+    public ModelInfo uploadModel(MultipartFile file, String modelName, String modelType, String description,
+                                 String backend) throws IOException {
+        
+        String backendName = InferenceBackend.normalizeName(backend);
+        if (backendName == null) {
+            throw new IllegalArgumentException("Unsupported inference backend: " + backend);
+        }
         
         // Validate model name
         if (modelName == null || modelName.trim().isEmpty()) {
@@ -128,9 +147,11 @@ public class ModelService {
             file.getSize(),
             modelType.trim()
         );
+        modelInfo.setBackend(backendName);
         
         // Register model using ID as key
         modelRegistry.put(modelId, modelInfo);
+        invalidateResults(modelInfo);
         
         // Save registry to JSON file
         saveModelRegistry();
@@ -188,9 +209,13 @@ public class ModelService {
                 if (Files.exists(filePath)) {
                     Files.delete(filePath);
                 }
+                if (modelInfo.getDictionaryPath() != null) {
+                    Files.deleteIfExists(Paths.get(modelInfo.getDictionaryPath()));
+                }
                 
                 // Remove from registry
                 modelRegistry.remove(modelId);
+                invalidateResults(modelInfo);
                 
                 // Save registry to JSON file
                 saveModelRegistry();
@@ -227,6 +252,100 @@ public class ModelService {
         return modelInfo != null ? modelInfo.getFilePath() : null;
     }
     
+    /**
+     * Get inference backend for a model, defaults to ONNX Runtime
+     */
+    public String getModelBackend(String identifier) {
+        ModelInfo modelInfo = getModelInfo(identifier);
+        String backend = modelInfo != null ? InferenceBackend.normalizeName(modelInfo.getBackend()) : null;
+        return backend != null ? backend : InferenceBackend.ONNX_RUNTIME;
+    }
+    
+    /**
+     * Change the inference backend used for a model
+     */
+    public ModelInfo updateModelBackend(String identifier, String backend) {
+        String backendName = InferenceBackend.normalizeName(backend);
+        if (backendName == null) {
+            throw new IllegalArgumentException("Unsupported inference backend: " + backend);
+        }
+        
+        ModelInfo modelInfo = getModelInfo(identifier);
+        if (modelInfo == null) {
+            return null;
+        }
+        
+        modelInfo.setBackend(backendName);
+        saveModelRegistry();
+        invalidateResults(modelInfo);
+        
+        System.out.println("Model " + modelInfo.getId() + " now uses backend: " + backendName);
+        return modelInfo;
+    }
+    
+    /**
+     * Store the character dictionary of a text recognition model, replacing any previous one
+     */
+    public ModelInfo uploadDictionary(String identifier, MultipartFile file) throws IOException {
+        ModelInfo modelInfo = getModelInfo(identifier);
+        if (modelInfo == null) {
+            return null;
+        }
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Dictionary file is empty");
+        }
+        
+        Path uploadPath = Paths.get(uploadDir);
+        if (!Files.exists(uploadPath)) {
+            Files.createDirectories(uploadPath);
+        }
+        Path dictionaryPath = uploadPath.resolve(modelInfo.getId() + "_dict.txt");
+        Files.copy(file.getInputStream(), dictionaryPath, StandardCopyOption.REPLACE_EXISTING);
+        
+        modelInfo.setDictionaryPath(dictionaryPath.toString());
+        saveModelRegistry();
+        invalidateResults(modelInfo);
+        
+        System.out.println("Dictionary uploaded for model " + modelInfo.getId() + ": " + dictionaryPath);
+        return modelInfo;
+    }
+    
+    /**
+     * Character dictionary path of a text recognition model, null when none was uploaded
+     */
+    public String getDictionaryPath(String identifier) {
+        ModelInfo modelInfo = getModelInfo(identifier);
+        return modelInfo != null ? modelInfo.getDictionaryPath() : null;
+    }
+    
+    /**
+     * Set or clear (null) the cascade gate for a model
+     */
+    public ModelInfo updateModelCascade(String identifier, CascadeConfig cascade) {
+        ModelInfo modelInfo = getModelInfo(identifier);
+        if (modelInfo == null) {
+            return null;
+        }
+        
+        if (cascade != null && cascade.getGateModel() != null && !modelExists(cascade.getGateModel())) {
+            throw new IllegalArgumentException("Gate model '" + cascade.getGateModel() + "' not found");
+        }
+        
+        modelInfo.setCascade(cascade);
+        saveModelRegistry();
+        invalidateResults(modelInfo);
+        
+        System.out.println("Model " + modelInfo.getId() + " cascade: " + cascade);
+        return modelInfo;
+    }
+    
+    /**
+     * Cached detection/OCR results were computed with the previous version of the model
+     */
+    private void invalidateResults(ModelInfo modelInfo) {
+        resultCache.invalidateModel(modelInfo.getId(), modelInfo.getName());
+    }
+    
     /**
      * Generate unique model ID from name
      */
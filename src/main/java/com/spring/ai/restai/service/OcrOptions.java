@@ -0,0 +1,75 @@
+package com.spring.ai.restai.service;
+
+import java.util.Locale;
+
+/**
+ * Per-request OCR settings. Null values fall back to the application defaults.
+ */
+public class OcrOptions {
+
+    /**
+     * Recognition engine for text fields
+     */
+    public enum Engine {
+        TESSERACT, ONNX;
+
+        /**
+         * Parse a request value; null or blank means the configured default
+         */
+        public static Engine parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported OCR engine: " + value + " (use tesseract or onnx)");
+            }
+        }
+    }
+
+    private OcrProfile.Tier tier = OcrProfile.Tier.FAST;
+    private OcrService.QrMode qrMode;     // null: ocr.qr-mode
+    private Engine engine;                // null: ocr.engine
+    private String recognizerModel;       // null: ocr.recognizer.model
+    private String template;              // Card template for the fast path; null: ocr.template, "none": off
+
+    public OcrOptions() {}
+
+    public OcrOptions(OcrProfile.Tier tier) {
+        this.tier = tier;
+    }
+
+    /**
+     * Options from request parameters, any of which may be null
+     */
+    public static OcrOptions parse(String tier, String qrMode, String engine, String recognizerModel, String template) {
+        OcrOptions options = new OcrOptions(OcrProfile.Tier.parse(tier));
+        options.setQrMode(OcrService.QrMode.parse(qrMode));
+        options.setEngine(Engine.parse(engine));
+        options.setRecognizerModel(recognizerModel);
+        options.setTemplate(template);
+        return options;
+    }
+
+    public OcrProfile.Tier getTier() { return tier; }
+    public void setTier(OcrProfile.Tier tier) { this.tier = tier; }
+
+    public OcrService.QrMode getQrMode() { return qrMode; }
+    public void setQrMode(OcrService.QrMode qrMode) { this.qrMode = qrMode; }
+
+    public Engine getEngine() { return engine; }
+    public void setEngine(Engine engine) { this.engine = engine; }
+
+    public String getRecognizerModel() { return recognizerModel; }
+    public void setRecognizerModel(String recognizerModel) { this.recognizerModel = recognizerModel; }
+
+    public String getTemplate() { return template; }
+    public void setTemplate(String template) { this.template = template; }
+
+    @Override
+    public String toString() {
+        return "OcrOptions{tier=" + tier + ", qrMode=" + qrMode + ", engine=" + engine
+                + ", recognizerModel=" + recognizerModel + ", template=" + template + "}";
+    }
+}
@@ -0,0 +1,122 @@
+package com.spring.ai.restai.service;
+
+import net.sourceforge.tess4j.ITessAPI;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tesseract settings for one kind of CCCD field.
+ * Numeric fields read with the small English model and a digit whitelist,
+ * text fields with the Vietnamese model in single-line mode.
+ */
+public class OcrProfile {
+
+    /**
+     * Speed tier, selects between traineddata variants (tessdata_fast / tessdata_best)
+     */
+    public enum Tier {
+        FAST, ACCURATE;
+
+        public static Tier parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return FAST;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported OCR tier: " + value + " (use fast or accurate)");
+            }
+        }
+    }
+
+    private static final String VIETNAMESE_WHITELIST =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+        "ÀÁÂÃÈÉÊÌÍÒÓÔÕÙÚÝàáâãèéêìíòóôõùúýĂăĐđĨĩŨũƠơƯưẠạẢảẤấẦầẨẩẪẫẬậẮắẰằẲẳẴẵẶặẸẹẺẻẼẽẾếỀềỂểỄễỆệỈỉỊịỌọỎỏỐốỒồỔổỖỗỘộỚớỜờỞởỠỡỢợỤụỦủỨứỪừỬửỮữỰự" +
+        "ỲỳỴỵỶỷỸỹ /-:.,()";
+
+    public static final OcrProfile DIGITS =
+        new OcrProfile("digits", "eng", ITessAPI.TessPageSegMode.PSM_SINGLE_LINE, "0123456789");
+    public static final OcrProfile DATE =
+        new OcrProfile("date", "eng", ITessAPI.TessPageSegMode.PSM_SINGLE_LINE, "0123456789/-");
+    public static final OcrProfile TEXT_LINE =
+        new OcrProfile("text", "vie", ITessAPI.TessPageSegMode.PSM_SINGLE_LINE, VIETNAMESE_WHITELIST);
+
+    // Address lines stitched into one strip, read as a block of lines
+    public static final OcrProfile ADDRESS_BLOCK =
+        new OcrProfile("address_block", "vie", ITessAPI.TessPageSegMode.PSM_SINGLE_BLOCK, VIETNAMESE_WHITELIST);
+
+    // Unknown classes keep the original single-word configuration
+    public static final OcrProfile DEFAULT =
+        new OcrProfile("default", "vie+eng", ITessAPI.TessPageSegMode.PSM_SINGLE_WORD, VIETNAMESE_WHITELIST);
+
+    private static final Map<String, OcrProfile> BY_CLASS = new HashMap<>();
+
+    static {
+        BY_CLASS.put("id", DIGITS);
+        BY_CLASS.put("id_number", DIGITS);
+        BY_CLASS.put("birth", DATE);
+        BY_CLASS.put("birth_date", DATE);
+        BY_CLASS.put("issue_date", DATE);
+        BY_CLASS.put("expiry", DATE);
+        BY_CLASS.put("expiry_date", DATE);
+        BY_CLASS.put("name", TEXT_LINE);
+        BY_CLASS.put("full_name", TEXT_LINE);
+        BY_CLASS.put("sex", TEXT_LINE);
+        BY_CLASS.put("gender", TEXT_LINE);
+        BY_CLASS.put("nationality", TEXT_LINE);
+        BY_CLASS.put("place_of_origin", TEXT_LINE);
+        BY_CLASS.put("place_of_residence", TEXT_LINE);
+    }
+
+    private final String name;
+    private final String language;
+    private final int pageSegMode;
+    private final String whitelist;
+
+    public OcrProfile(String name, String language, int pageSegMode, String whitelist) {
+        this.name = name;
+        this.language = language;
+        this.pageSegMode = pageSegMode;
+        this.whitelist = whitelist;
+    }
+
+    /**
+     * Profile for a detected class, DEFAULT when the class is not a known CCCD field
+     */
+    public static OcrProfile forClass(String className) {
+        return className != null ? BY_CLASS.getOrDefault(className, DEFAULT) : DEFAULT;
+    }
+
+    /**
+     * Languages used by any profile, loaded at startup
+     */
+    public static String[] languages() {
+        return new String[]{DEFAULT.language, TEXT_LINE.language, DIGITS.language};
+    }
+
+    /**
+     * Drop characters outside the whitelist, for engines that cannot restrict their output
+     */
+    public String filter(String text) {
+        if (text == null || whitelist == null || whitelist.isEmpty()) {
+            return text;
+        }
+        StringBuilder filtered = new StringBuilder(text.length());
+        text.codePoints()
+            .filter(codePoint -> whitelist.indexOf(codePoint) >= 0)
+            .forEach(filtered::appendCodePoint);
+        return filtered.toString();
+    }
+
+    public String getName() { return name; }
+    public String getLanguage() { return language; }
+    public int getPageSegMode() { return pageSegMode; }
+    public String getWhitelist() { return whitelist; }
+
+    @Override
+    public String toString() {
+        return "OcrProfile{" + name + ", " + language + ", psm=" + pageSegMode + "}";
+    }
+}
@@ -1,27 +1,42 @@
 package com.spring.ai.restai.service;
 
+import com.spring.ai.plugins.ImageLoader;
+import com.spring.ai.plugins.TextRecognizer;
+import com.spring.ai.restai.detector.CardAligner;
+import com.spring.ai.restai.dto.BenchmarkResult;
+import com.spring.ai.restai.dto.CardTemplate;
 import com.spring.ai.restai.dto.OcrResult;
 import com.spring.ai.restai.dto.OcrDetectionResponse;
 import com.spring.ai.restai.dto.DetectionResult;
 import com.spring.ai.restai.dto.CccdInfo;
-import net.sourceforge.tess4j.Tesseract;
+import com.spring.ai.restai.dto.QrCodeResult;
 import net.sourceforge.tess4j.TesseractException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -32,119 +47,355 @@ public class OcrService {
       @Autowired
     private DetectionService detectionService;
     
-    // Tạm thời comment out để test trước
-    // @Autowired
-    // private QrCodeService qrCodeService;
+    @Autowired
+    private QrCodeService qrCodeService;
     
-    private final Tesseract tesseract;
-    private final ExecutorService executorService;
+    /**
+     * How the card's QR code is used: not decoded, decoded to skip the fields it carries,
+     * or decoded alongside full OCR to check the two against each other
+     */
+    public enum QrMode {
+        OFF, FIRST, CROSS_CHECK;
+        
+        /**
+         * Parse a request value; null or blank means the configured default
+         */
+        public static QrMode parse(String value) {
+            if (value == null || value.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported QR mode: " + value + " (use off, first or cross-check)");
+            }
+        }
+    }
+    
+    @Value("${ocr.qr-mode:off}")
+    private String defaultQrMode;
+    
+    @Autowired
+    private CardTemplateService cardTemplateService;
+    
+    @Autowired
+    private ResultCache resultCache;
+    
+    // Longer side of the preview the card outline is searched in
+    @Value("${ocr.template.locate-size:1024}")
+    private int templateLocateSize;
+    
+    // Digits a template-read field must contain, otherwise the request falls back to the detector
+    private static final Map<String, Integer> TEMPLATE_DIGIT_CHECKS = Map.of(
+        "id", 12, "id_number", 12,
+        "birth", 8, "birth_date", 8,
+        "expiry", 8, "expiry_date", 8,
+        "issue_date", 8);
     
-    // Store configuration for reuse
-    private String configuredDatapath;
-    private String configuredLanguage;
+    @Autowired
+    private TesseractPool tesseractPool;
     
-    // Thread-local Tesseract instances for parallel processing
-    private final ThreadLocal<Tesseract> threadLocalTesseract = ThreadLocal.withInitial(() -> {
-        Tesseract instance = new Tesseract();
-        configureTesseractInstance(instance);
-        return instance;
-    });
+    // Line height crops are scaled to before OCR; LSTM models read best at roughly 30-40 px x-height
+    @Value("${ocr.preprocess.target-height:64}")
+    private int targetTextHeight;
     
-    public OcrService() {
-        this.tesseract = new Tesseract();
-        this.executorService = Executors.newFixedThreadPool(4); // Allow parallel OCR processing
-        configureTesseract();
-    }/**
-     * Configure Tesseract for Vietnamese OCR with optimized settings
+    // Parallel OCR tasks, sized to the Tesseract pool so tasks rarely wait for an engine
+    private ExecutorService executorService;
+    
+    // Upload the card once per engine and read fields by rectangle instead of one image per field
+    @Value("${ocr.document-mode:true}")
+    private boolean documentMode;
+    
+    // Read multi-line address fields as one stitched strip instead of one OCR call per line
+    @Value("${ocr.address.stitch:false}")
+    private boolean stitchAddressLines;
+    
+    @Autowired
+    private TextRecognitionService textRecognitionService;
+    
+    // Default text engine: tesseract, or onnx for the batched line recognizer (ocr.recognizer.model)
+    @Value("${ocr.engine:tesseract}")
+    private String defaultEngine;
+    
+    @PostConstruct
+    public void init() {
+        this.executorService = Executors.newFixedThreadPool(tesseractPool.getSize());
+    }
+      /**
+     * Perform OCR detection on uploaded image with optimizations
      */
-    private void configureTesseract() {
-        try {
-            // First try to detect Tesseract installation and set data path
-            String[] possibleDataPaths = {
-                System.getenv("TESSDATA_PREFIX"),
-                "C:/Program Files/Tesseract-OCR/tessdata",
-                "C:/Program Files (x86)/Tesseract-OCR/tessdata",
-                "/usr/share/tesseract-ocr/4.00/tessdata",
-                "/usr/share/tesseract-ocr/tessdata",
-                "/opt/homebrew/share/tessdata",
-                "./tessdata"
-            };
-              boolean dataPathSet = false;
-            for (String path : possibleDataPaths) {
-                if (path != null && java.nio.file.Files.exists(java.nio.file.Paths.get(path))) {
-                    tesseract.setDatapath(path);
-                    configuredDatapath = path; // Store for reuse
-                    dataPathSet = true;
-                    System.out.println("Tesseract data path set to: " + path);
-                    break;
-                }
+    public OcrDetectionResponse performOcrDetection(MultipartFile file, String modelName) throws IOException {
+        return performOcrDetection(file, modelName, OcrProfile.Tier.FAST);
+    }
+    
+    /**
+     * Perform OCR detection on uploaded image with the given speed tier
+     */
+    public OcrDetectionResponse performOcrDetection(MultipartFile file, String modelName, OcrProfile.Tier tier) throws IOException {
+        return performOcrDetection(file, modelName, new OcrOptions(tier));
+    }
+    
+    /**
+     * Perform OCR detection on uploaded image with per-request options (tier, QR mode, engine)
+     */
+    public OcrDetectionResponse performOcrDetection(MultipartFile file, String modelName, OcrOptions options) throws IOException {
+        // Repeated uploads are answered from the result cache, keyed by the settings that actually apply
+        String recognizerModel = resolveRecognizerModel(options);
+        CardTemplate template = cardTemplateService.resolve(options.getTemplate());
+        String params = "tier=" + options.getTier() + ",qr=" + resolveQrMode(options.getQrMode())
+            + ",recognizer=" + recognizerModel + ",template=" + (template != null ? template.getName() : null);
+        
+        return resultCache.getOrCompute("ocr", file, params, () -> {
+            // Probe the upload; pixels are decoded at detection size and full resolution only around the fields
+            ImageLoader.DecodedImage decoded = ImageLoader.open(file.getBytes());
+            return performOcrDetection(decoded, file.getOriginalFilename(), modelName, options);
+        }, modelName, recognizerModel);
+    }
+    
+    /**
+     * Perform OCR detection on a probed upload: detect on a subsampled decode,
+     * then OCR crops from one full-resolution decode of the region covering all text fields
+     */
+    public OcrDetectionResponse performOcrDetection(ImageLoader.DecodedImage decoded, String imageName, String modelName,
+                                                    OcrOptions options) throws IOException {
+        long startTime = System.currentTimeMillis();
+        
+        // Well-framed cards can skip field detection entirely
+        CardTemplate template = cardTemplateService.resolve(options.getTemplate());
+        if (template != null) {
+            OcrDetectionResponse templateResponse = performTemplateOcr(decoded, imageName, modelName, template, options, startTime);
+            if (templateResponse != null) {
+                return templateResponse;
             }
-            
-            if (!dataPathSet) {
-                System.out.println("Warning: Could not find tessdata directory. Using system default.");
+        }
+        
+        DetectionResult detectionResult = detectionService.detect(modelName, decoded, imageName, null, null, null);
+        return performOcrDetection(decoded, detectionResult, modelName, options, startTime);
+    }
+    
+    /**
+     * Template fast path: find the card (outline, or the QR as anchor), warp it to the template size and OCR
+     * the template's field rectangles. Returns null, so the caller falls back to the detector, when the card
+     * cannot be located or the OCR result fails the id/date sanity checks.
+     */
+    private OcrDetectionResponse performTemplateOcr(ImageLoader.DecodedImage decoded, String imageName, String modelName,
+                                                    CardTemplate template, OcrOptions options, long startTime) {
+        try {
+            BufferedImage preview = decoded.getImage(templateLocateSize);
+            org.opencv.core.Point[] corners = CardAligner.findCardCorners(preview, template.aspectRatio());
+            String anchor = "corners";
+            if (corners == null) {
+                corners = locateByQrAnchor(preview, template);
+                anchor = "qr";
             }
-              // Try Vietnamese + English first
-            try {
-                tesseract.setLanguage("vie+eng");
-                configuredLanguage = "vie+eng"; // Store for reuse
-                System.out.println("Tesseract configured for Vietnamese + English OCR");
-            } catch (Exception e) {
-                System.out.println("Vietnamese language not available, trying English only: " + e.getMessage());
-                try {
-                    tesseract.setLanguage("eng");
-                    configuredLanguage = "eng"; // Store for reuse
-                    System.out.println("Tesseract configured for English OCR only");
-                } catch (Exception ex) {
-                    System.err.println("Error configuring Tesseract language: " + ex.getMessage());
-                    configuredLanguage = "eng"; // Default fallback
-                    // Continue with default settings
-                }
+            if (corners == null) {
+                System.out.println("Template " + template.getName() + ": card not located, using detector");
+                return null;
             }
             
-            // PERFORMANCE OPTIMIZATIONS:
-            
-            // OCR Engine Mode: 1 = Neural networks LSTM engine (faster than default)
-            tesseract.setOcrEngineMode(1);
-            
-            // Page Segmentation Mode: 8 = Single word (faster for cropped regions)
-            // Alternative: 7 = Single text line
-            tesseract.setPageSegMode(8);
-            
-            // Set variables for faster processing
-            tesseract.setVariable("tessedit_char_whitelist", 
-                "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
-                "ÀÁÂÃÈÉÊÌÍÒÓÔÕÙÚÝàáâãèéêìíòóôõùúýĂăĐđĨĩŨũƠơƯưẠạẢảẤấẦầẨẩẪẫẬậẮắẰằẲẳẴẵẶặẸẹẺẻẼẽẾếỀềỂểỄễỆệỈỉỊịỌọỎỏỐốỒồỔổỖỗỘộỚớỜờỞởỠỡỢợỤụỦủỨứỪừỬửỮữỰự" +
-                "ỲỳỴỵỶỷỸỹ /-:.,()");
-            
-            // Optimize for speed over accuracy
-            tesseract.setVariable("tessedit_enable_doc_dict", "0");
-            tesseract.setVariable("tessedit_enable_bigram_correction", "0");
-            tesseract.setVariable("textord_really_old_xheight", "1");
-            tesseract.setVariable("textord_min_linesize", "0.25");
-            
-            System.out.println("Tesseract optimization completed successfully");
+            BufferedImage card = CardAligner.warp(decoded.getFullImage(),
+                CardAligner.scale(corners, (double) decoded.getWidth() / preview.getWidth()),
+                template.getWidth(), template.getHeight());
+            DetectionResult fields = cardTemplateService.toDetectionResult(template, modelName, imageName);
+            OcrDetectionResponse response = performOcrDetection(card, fields, modelName, options, startTime);
             
+            String failedCheck = templateSanityFailure(response);
+            if (failedCheck != null) {
+                System.out.println("Template " + template.getName() + " (" + anchor + ") failed check on "
+                    + failedCheck + ", using detector");
+                return null;
+            }
+            response.setImageInfo(decoded.getWidth() + "x" + decoded.getHeight());
+            response.setFieldSource("template:" + template.getName());
+            System.out.println("Template " + template.getName() + " (" + anchor + ") OCR in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+            return response;
         } catch (Exception e) {
-            System.err.println("Warning: Could not configure Tesseract properly: " + e.getMessage());
-            System.err.println("OCR may not work correctly. Please install Tesseract and Vietnamese language data.");
+            System.err.println("Template OCR failed, using detector: " + e.getMessage());
+            return null;
         }
     }
-      /**
-     * Perform OCR detection on uploaded image with optimizations
+    
+    /**
+     * Card corners from the QR code's box and the template's qr_code field
      */
-    public OcrDetectionResponse performOcrDetection(MultipartFile file, String modelName) throws IOException {
-        long startTime = System.currentTimeMillis();
+    private org.opencv.core.Point[] locateByQrAnchor(BufferedImage preview, CardTemplate template) {
+        CardTemplate.Field qrField = template.findField("qr_code");
+        if (qrField == null) {
+            return null;
+        }
+        List<QrCodeResult> qrCodes = qrCodeService.detectQrCodes(preview).getQrCodes();
+        if (qrCodes == null || qrCodes.isEmpty()) {
+            return null;
+        }
+        QrCodeResult.BoundingBox box = qrCodes.get(0).getBoundingBox();
+        Rectangle inImage = new Rectangle((int) box.getX(), (int) box.getY(), (int) box.getWidth(), (int) box.getHeight());
+        Rectangle inTemplate = new Rectangle(Math.round(qrField.getX1() * template.getWidth()),
+            Math.round(qrField.getY1() * template.getHeight()),
+            Math.round((qrField.getX2() - qrField.getX1()) * template.getWidth()),
+            Math.round((qrField.getY2() - qrField.getY1()) * template.getHeight()));
+        return CardAligner.cornersFromAnchor(inImage, inTemplate, template.getWidth(), template.getHeight());
+    }
+    
+    /**
+     * Name of the first field failing its format check, "no checked field" when nothing could be checked,
+     * or null when the template crops look right. Ids must have 12 digits and dates 8.
+     */
+    private String templateSanityFailure(OcrDetectionResponse response) {
+        int checked = 0;
+        for (OcrResult result : response.getResults()) {
+            Integer expectedDigits = TEMPLATE_DIGIT_CHECKS.get(result.getClassName());
+            if (expectedDigits == null) {
+                continue;
+            }
+            String digits = result.getText() != null ? result.getText().replaceAll("\\D", "") : "";
+            if (digits.length() != expectedDigits) {
+                return result.getClassName();
+            }
+            checked++;
+        }
+        return checked > 0 ? null : "no checked field";
+    }
+    
+    /**
+     * Perform OCR on the fields of an existing detection result for a probed upload
+     */
+    public OcrDetectionResponse performOcrDetection(ImageLoader.DecodedImage decoded, DetectionResult detectionResult,
+                                                    String modelName, OcrOptions options) throws IOException {
+        return performOcrDetection(decoded, detectionResult, modelName, options, System.currentTimeMillis());
+    }
+    
+    private OcrDetectionResponse performOcrDetection(ImageLoader.DecodedImage decoded, DetectionResult detectionResult,
+                                                     String modelName, OcrOptions options, long startTime) throws IOException {
+        QrMode qrMode = resolveQrMode(options.getQrMode());
         
-        // Load image
-        BufferedImage image = ImageIO.read(file.getInputStream());
-        if (image == null) {
-            throw new IOException("Could not read image file");
+        Rectangle qrRegion = null;
+        DetectionResult.DetectionItem qrDetection = findQrDetection(detectionResult);
+        if (qrMode != QrMode.OFF && qrDetection != null) {
+            qrRegion = qrRegion(qrDetection, decoded.getWidth(), decoded.getHeight());
+            if (qrRegion.isEmpty()) {
+                qrRegion = null;
+            }
         }
         
-        String imageInfo = image.getWidth() + "x" + image.getHeight();
+        // One full-resolution decode covering the QR and every field that may need OCR
+        Rectangle readRegion = qrRegion;
+        for (DetectionResult.DetectionItem detection : fieldsToRead(detectionResult, qrMode, null)) {
+            Rectangle box = new Rectangle((int) detection.getX1(), (int) detection.getY1(),
+                (int) Math.ceil(detection.getX2() - detection.getX1()) + 1, (int) Math.ceil(detection.getY2() - detection.getY1()) + 1);
+            readRegion = readRegion == null ? box : readRegion.union(box);
+        }
+        
+        BufferedImage source;
+        Point origin;
+        if (readRegion != null) {
+            source = decoded.readRegion(readRegion);
+            origin = readRegion.intersection(new Rectangle(0, 0, decoded.getWidth(), decoded.getHeight())).getLocation();
+        } else {
+            // Nothing to OCR, the crop source is never read
+            source = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+            origin = new Point(0, 0);
+        }
+        
+        // With QR_FIRST the QR decides which fields still need OCR
+        QrCodeResult qr = null;
+        if (qrRegion != null) {
+            qr = decodeCardQr(source.getSubimage(qrRegion.x - origin.x, qrRegion.y - origin.y,
+                qrRegion.width, qrRegion.height));
+        }
+        
+        return performOcrDetection(source, origin, decoded.getWidth() + "x" + decoded.getHeight(),
+            detectionResult, modelName, options, qrMode, qr, startTime);
+    }
+    
+    private OcrDetectionResponse performOcrDetection(BufferedImage image, DetectionResult detectionResult, String modelName,
+                                                     OcrOptions options, long startTime) {
+        QrMode qrMode = resolveQrMode(options.getQrMode());
+        QrCodeResult qr = null;
+        DetectionResult.DetectionItem qrDetection = findQrDetection(detectionResult);
+        if (qrMode != QrMode.OFF && qrDetection != null) {
+            Rectangle qrRegion = qrRegion(qrDetection, image.getWidth(), image.getHeight());
+            if (!qrRegion.isEmpty()) {
+                qr = decodeCardQr(image.getSubimage(qrRegion.x, qrRegion.y, qrRegion.width, qrRegion.height));
+            }
+        }
+        return performOcrDetection(image, new Point(0, 0), image.getWidth() + "x" + image.getHeight(),
+            detectionResult, modelName, options, qrMode, qr, startTime);
+    }
+    
+    private QrMode resolveQrMode(QrMode qrMode) {
+        if (qrMode != null) {
+            return qrMode;
+        }
+        QrMode configured = QrMode.parse(defaultQrMode);
+        return configured != null ? configured : QrMode.OFF;
+    }
+    
+    /**
+     * Most confident qr_code detection, or null
+     */
+    private DetectionResult.DetectionItem findQrDetection(DetectionResult detectionResult) {
+        return detectionResult.getDetections().stream()
+            .filter(d -> "qr_code".equals(d.getClassName()))
+            .max(Comparator.comparing(DetectionResult.DetectionItem::getConfidence))
+            .orElse(null);
+    }
+    
+    /**
+     * QR box grown by 10% per side for the quiet zone, clamped to the image
+     */
+    private Rectangle qrRegion(DetectionResult.DetectionItem detection, int imageWidth, int imageHeight) {
+        double padX = (detection.getX2() - detection.getX1()) * 0.1;
+        double padY = (detection.getY2() - detection.getY1()) * 0.1;
+        int x1 = (int) Math.max(0, Math.floor(detection.getX1() - padX));
+        int y1 = (int) Math.max(0, Math.floor(detection.getY1() - padY));
+        int x2 = (int) Math.min(imageWidth, Math.ceil(detection.getX2() + padX));
+        int y2 = (int) Math.min(imageHeight, Math.ceil(detection.getY2() + padY));
+        return new Rectangle(x1, y1, Math.max(0, x2 - x1), Math.max(0, y2 - y1));
+    }
+    
+    /**
+     * Decode the card's QR crop, preferring a result that parses as CCCD; null when nothing decodes
+     */
+    private QrCodeResult decodeCardQr(BufferedImage qrImage) {
+        long start = System.currentTimeMillis();
+        List<QrCodeResult> results = qrCodeService.detectQrCodesInRegion(qrImage, 0, 0, qrImage.getWidth(), qrImage.getHeight());
+        QrCodeResult qr = results.stream()
+            .filter(r -> r.getCccdInfo() != null)
+            .findFirst()
+            .orElse(results.isEmpty() ? null : results.get(0));
+        System.out.println("QR decode " + (qr != null ? "\"" + qr.getContent() + "\"" : "failed") + " in "
+            + (System.currentTimeMillis() - start) + "ms");
+        return qr;
+    }
+    
+    /**
+     * Text detections that need OCR: all of them, or only the fields the QR left blank when QR_FIRST decoded a CCCD
+     */
+    private List<DetectionResult.DetectionItem> fieldsToRead(DetectionResult detectionResult, QrMode qrMode, QrCodeResult qr) {
+        CccdInfo qrInfo = qrMode == QrMode.FIRST && qr != null ? qr.getCccdInfo() : null;
+        List<DetectionResult.DetectionItem> fields = new ArrayList<>();
+        for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
+            String className = detection.getClassName();
+            // Skip QR codes and portraits - they don't need OCR
+            if ("qr_code".equals(className) || "portrait".equals(className)) {
+                continue;
+            }
+            if (qrInfo == null || isBlank(qrValue(qrInfo, className))) {
+                fields.add(detection);
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * OCR the detected fields; image holds the pixels from origin onwards in detection coordinates
+     */
+    private OcrDetectionResponse performOcrDetection(BufferedImage image, Point origin, String imageInfo,
+                                                     DetectionResult detectionResult, String modelName,
+                                                     OcrOptions options, QrMode qrMode, QrCodeResult qr,
+                                                     long startTime) {
         System.out.println("Processing OCR for image: " + imageInfo);
-          // First, perform object detection
-        DetectionResult detectionResult = detectionService.detect(modelName, file, null, null);
         System.out.println("Detection completed: " + detectionResult.getDetections().size() + " objects found");
         
         // Log all detections with their classes
@@ -157,44 +408,22 @@ public class OcrService {
         }
         
         // Filter detections to only process text-containing regions
-        List<DetectionResult.DetectionItem> textDetections = new ArrayList<>();
-        for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
-            String className = detection.getClassName();
-            // Skip QR codes and portraits - they don't need OCR
-            if (!"qr_code".equals(className) && !"portrait".equals(className)) {
-                textDetections.add(detection);
-            }
-        }
-          System.out.println("Text detections to process: " + textDetections.size());
+        List<DetectionResult.DetectionItem> textDetections = fieldsToRead(detectionResult, qrMode, qr);
+        CccdInfo qrInfo = qr != null ? qr.getCccdInfo() : null;
+        System.out.println("Text detections to process: " + textDetections.size()
+            + (qrMode == QrMode.FIRST && qrInfo != null ? " (other fields filled from QR)" : ""));
         
         // Use new logic to process and merge detections
-        List<OcrResult> ocrResults = processAndMergeDetections(image, textDetections);        // Add non-text detections (qr_code, portrait) with special processing
+        List<OcrResult> ocrResults = processAndMergeDetections(image, origin, textDetections, options);
+        if (qrMode == QrMode.FIRST && qrInfo != null) {
+            ocrResults.addAll(qrFieldResults(detectionResult, textDetections, qrInfo));
+        }
+        
+        // Add non-text detections (qr_code, portrait) with special processing
         for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
             String className = detection.getClassName();            if ("qr_code".equals(className)) {
-                // Tạm thời disable QR code detection cho đến khi fix dependency
-                String qrContent = "[QR Code detected - decoding disabled]";
-                /*
-                // Try to decode QR code content
-                String qrContent = "";
-                try {
-                    List<com.spring.ai.restai.dto.QrCodeResult> qrResults = qrCodeService.detectQrCodesInRegion(
-                        image, 
-                        (int) detection.getX1(), 
-                        (int) detection.getY1(),
-                        (int) (detection.getX2() - detection.getX1()),
-                        (int) (detection.getY2() - detection.getY1())
-                    );
-                    
-                    if (!qrResults.isEmpty()) {
-                        qrContent = qrResults.get(0).getContent();
-                        System.out.println("QR Code decoded: \"" + qrContent + "\"");
-                    } else {
-                        System.out.println("QR Code detected but could not be decoded");
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error decoding QR code: " + e.getMessage());
-                }
-                */
+                String qrContent = qr != null ? qr.getContent()
+                    : qrMode == QrMode.OFF ? "[QR Code detected - decoding disabled]" : "[QR Code detected - could not decode]";
                 
                 OcrResult result = new OcrResult(
                     qrContent, // QR code content or placeholder
@@ -240,7 +469,18 @@ public class OcrService {
             System.out.println("CCCD information parsed successfully from OCR results");
         }
         
-        return new OcrDetectionResponse(
+        String cccdSource = "ocr";
+        List<String> qrMismatches = new ArrayList<>();
+        if (qrInfo != null) {
+            if (qrMode == QrMode.CROSS_CHECK) {
+                qrMismatches = crossCheck(qrInfo, cccdInfo);
+                System.out.println("QR cross-check mismatches: " + qrMismatches);
+            }
+            cccdInfo = mergeQrAndOcr(qrInfo, cccdInfo);
+            cccdSource = textDetections.isEmpty() ? "qr" : "qr+ocr";
+        }
+        
+        OcrDetectionResponse response = new OcrDetectionResponse(
             modelName,
             ocrResults.size(),
             ocrResults,
@@ -248,14 +488,165 @@ public class OcrService {
             imageInfo,
             cccdInfo
         );
+        response.setCccdSource(cccdSource);
+        response.setQrMismatches(qrMismatches);
+        return response;
+    }
+    
+    /**
+     * Per-field OCR latency (preprocessing plus recognition) for each target text height.
+     * Fields run one at a time on the calling thread so timings are not skewed by contention.
+     */
+    public List<BenchmarkResult> benchmarkOcr(MultipartFile file, String modelName, int[] targetHeights,
+                                              int iterations, OcrProfile.Tier tier) throws Exception {
+        ImageLoader.DecodedImage decoded = ImageLoader.open(file.getBytes());
+        DetectionResult detectionResult = detectionService.detect(modelName, decoded, file.getOriginalFilename(), null, null, null);
+        BufferedImage image = decoded.getFullImage();
+        Point origin = new Point(0, 0);
+        
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
+            String className = detection.getClassName();
+            if ("qr_code".equals(className) || "portrait".equals(className)) {
+                continue;
+            }
+            
+            OcrProfile profile = OcrProfile.forClass(className);
+            BufferedImage crop = cropImage(image, origin, detection);
+            for (int targetHeight : targetHeights) {
+                // Warm-up run, also gives the text read at this height
+                String text = performOcr(preprocessImageForOcr(crop, targetHeight), profile, tier);
+                
+                long[] timings = new long[iterations];
+                long preprocessNanos = 0;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    BufferedImage processed = preprocessImageForOcr(crop, targetHeight);
+                    long preprocessed = System.nanoTime();
+                    performOcr(processed, profile, tier);
+                    timings[i] = System.nanoTime() - start;
+                    preprocessNanos += preprocessed - start;
+                }
+                
+                results.add(BenchmarkResult.fromNanos(className + "@" + targetHeight + "px", timings)
+                    .detail("profile", profile.getName())
+                    .detail("tier", tier.name().toLowerCase())
+                    .detail("cropHeight", crop.getHeight())
+                    .detail("preprocessAvgMs", Math.round(preprocessNanos / (double) iterations / 10_000.0) / 100.0)
+                    .detail("text", text.trim()));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Latency and accuracy of reading multi-line address fields line by line versus as one stitched strip.
+     * Accuracy is character accuracy against the expected text when given, otherwise the two modes are
+     * compared with each other.
+     */
+    public List<BenchmarkResult> benchmarkAddressStitching(MultipartFile file, String modelName, int iterations,
+                                                           OcrProfile.Tier tier, Map<String, String> expected) throws Exception {
+        ImageLoader.DecodedImage decoded = ImageLoader.open(file.getBytes());
+        DetectionResult detectionResult = detectionService.detect(modelName, decoded, file.getOriginalFilename(), null, null, null);
+        BufferedImage image = decoded.getFullImage();
+        Point origin = new Point(0, 0);
+        
+        Map<String, List<DetectionResult.DetectionItem>> fields = new TreeMap<>();
+        for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
+            if (isMultiLineField(detection.getClassName())) {
+                fields.computeIfAbsent(detection.getClassName(), k -> new ArrayList<>()).add(detection);
+            }
+        }
+        
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (Map.Entry<String, List<DetectionResult.DetectionItem>> field : fields.entrySet()) {
+            String className = field.getKey();
+            List<DetectionResult.DetectionItem> lines = selectMergedFieldLines(className, field.getValue());
+            if (lines.isEmpty()) {
+                continue;
+            }
+            
+            String perLineText = null;
+            String stitchedText = null;
+            long[] perLineTimings = new long[iterations];
+            long[] stitchedTimings = new long[iterations];
+            // One extra leading run per mode as warm-up
+            for (int i = -1; i < iterations; i++) {
+                long start = System.nanoTime();
+                List<String> parts = new ArrayList<>();
+                for (DetectionResult.DetectionItem line : lines) {
+                    String text = performOcr(preprocessImageForOcr(cropImage(image, origin, line)),
+                        OcrProfile.forClass(className), tier).trim();
+                    if (!text.isEmpty()) {
+                        parts.add(text);
+                    }
+                }
+                long perLine = System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                String strip = performOcr(stitchLines(image, origin, lines), OcrProfile.ADDRESS_BLOCK, tier);
+                long stitched = System.nanoTime() - start;
+                
+                if (i < 0) {
+                    perLineText = String.join(" ", parts);
+                    stitchedText = String.join(" ", splitLines(strip));
+                } else {
+                    perLineTimings[i] = perLine;
+                    stitchedTimings[i] = stitched;
+                }
+            }
+            
+            String reference = expected != null ? expected.get(className) : null;
+            results.add(BenchmarkResult.fromNanos(className + "@per-line", perLineTimings)
+                .detail("lines", lines.size())
+                .detail("ocrCalls", lines.size())
+                .detail("charAccuracy", reference != null ? characterAccuracy(perLineText, reference) : null)
+                .detail("text", perLineText));
+            results.add(BenchmarkResult.fromNanos(className + "@stitched", stitchedTimings)
+                .detail("lines", lines.size())
+                .detail("ocrCalls", 1)
+                .detail("charAccuracy", reference != null ? characterAccuracy(stitchedText, reference) : null)
+                .detail("agreement", characterAccuracy(stitchedText, perLineText))
+                .detail("text", stitchedText));
+        }
+        return results;
+    }
+    
+    /**
+     * 1 - edit distance / reference length, ignoring case and repeated whitespace
+     */
+    private double characterAccuracy(String text, String reference) {
+        String a = text.trim().replaceAll("\\s+", " ").toLowerCase();
+        String b = reference.trim().replaceAll("\\s+", " ").toLowerCase();
+        if (b.isEmpty()) {
+            return a.isEmpty() ? 1.0 : 0.0;
+        }
+        
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        double accuracy = 1.0 - previous[b.length()] / (double) b.length();
+        return Math.round(Math.max(0.0, accuracy) * 1000) / 1000.0;
     }
     
     /**
      * Crop image to the specified bounding box
      */
-    private BufferedImage cropImage(BufferedImage originalImage, DetectionResult.DetectionItem detection) {
-        int x = Math.max(0, (int) detection.getX1());
-        int y = Math.max(0, (int) detection.getY1());
+    private BufferedImage cropImage(BufferedImage originalImage, Point origin, DetectionResult.DetectionItem detection) {
+        int x = Math.max(0, (int) detection.getX1() - origin.x);
+        int y = Math.max(0, (int) detection.getY1() - origin.y);
         int width = Math.min(originalImage.getWidth() - x, (int) (detection.getX2() - detection.getX1()));
         int height = Math.min(originalImage.getHeight() - y, (int) (detection.getY2() - detection.getY1()));
         
@@ -266,17 +657,188 @@ public class OcrService {
         return originalImage.getSubimage(x, y, width, height);
     }
       /**
-     * Perform OCR on a buffered image using thread-local Tesseract instance
+     * Perform OCR on a buffered image with the field's profile, using an engine borrowed from the pool
+     */
+    private String performOcr(BufferedImage image, OcrProfile profile, OcrProfile.Tier tier)
+            throws TesseractException, InterruptedException {
+        TesseractPool.Engine engine = tesseractPool.borrow(profile.getLanguage(), tier);
+        try {
+            engine.apply(profile);
+            return engine.recognize(image);
+        } finally {
+            tesseractPool.release(engine);
+        }
+    }
+    
+    /**
+     * Crop, preprocess and OCR one detected region on the OCR executor
+     */
+    private Future<String> submitOcr(BufferedImage image, Point origin, DetectionResult.DetectionItem detection,
+                                     OcrProfile.Tier tier) {
+        return executorService.submit(() -> {
+            BufferedImage croppedImage = cropImage(image, origin, detection);
+            BufferedImage processedImage = preprocessImageForOcr(croppedImage);
+            return performOcr(processedImage, OcrProfile.forClass(detection.getClassName()), tier);
+        });
+    }
+    
+    /**
+     * Document mode: preprocess the text region once, upload it once per engine language with SetImage,
+     * then read each field through SetRectangle with the field's PSM and whitelist.
+     * Each language's fields are split into batches so all pooled engines work in parallel; a batch reads its
+     * fields one after another on one engine after a single upload.
+     */
+    private Map<DetectionResult.DetectionItem, Future<String>> submitDocumentOcr(BufferedImage image, Point origin,
+                                                                                 List<DetectionResult.DetectionItem> detections,
+                                                                                 OcrProfile.Tier tier) {
+        Map<DetectionResult.DetectionItem, Future<String>> pending = new IdentityHashMap<>();
+        if (detections.isEmpty()) {
+            return pending;
+        }
+        
+        // One scale for the whole document, chosen so the median field reaches the target height
+        float[] heights = new float[detections.size()];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = detections.get(i).getY2() - detections.get(i).getY1();
+        }
+        Arrays.sort(heights);
+        float medianHeight = Math.max(1f, heights[heights.length / 2]);
+        float documentScale = Math.max(0.5f, Math.min(4f, targetTextHeight / medianHeight));
+        int scaledHeight = Math.max(1, Math.round(image.getHeight() * documentScale));
+        BufferedImage document = preprocessImageForOcr(image, scaledHeight);
+        double scale = (double) document.getHeight() / image.getHeight();
+        
+        Map<String, List<DetectionResult.DetectionItem>> byLanguage = new LinkedHashMap<>();
+        for (DetectionResult.DetectionItem detection : detections) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.put(detection, future);
+            byLanguage.computeIfAbsent(OcrProfile.forClass(detection.getClassName()).getLanguage(),
+                k -> new ArrayList<>()).add(detection);
+        }
+        
+        // About one batch per pooled engine across all languages
+        int batchSize = Math.max(1, (detections.size() + tesseractPool.getSize() - 1) / tesseractPool.getSize());
+        byLanguage.forEach((language, languageFields) -> {
+            for (int start = 0; start < languageFields.size(); start += batchSize) {
+                List<DetectionResult.DetectionItem> batch =
+                    languageFields.subList(start, Math.min(languageFields.size(), start + batchSize));
+                submitDocumentBatch(document, origin, scale, language, batch, tier, pending);
+            }
+        });
+        return pending;
+    }
+    
+    /**
+     * Read a batch of same-language fields on one engine after a single SetImage of the document
+     */
+    private void submitDocumentBatch(BufferedImage document, Point origin, double scale, String language,
+                                     List<DetectionResult.DetectionItem> fields, OcrProfile.Tier tier,
+                                     Map<DetectionResult.DetectionItem, Future<String>> pending) {
+        executorService.submit(() -> {
+            TesseractPool.Engine engine = null;
+            try {
+                engine = tesseractPool.borrow(language, tier);
+                engine.setImage(document);
+                for (DetectionResult.DetectionItem field : fields) {
+                    CompletableFuture<String> future = (CompletableFuture<String>) pending.get(field);
+                    try {
+                        int x = Math.max(0, (int) Math.floor((field.getX1() - origin.x) * scale));
+                        int y = Math.max(0, (int) Math.floor((field.getY1() - origin.y) * scale));
+                        int width = Math.min(document.getWidth() - x, (int) Math.ceil((field.getX2() - field.getX1()) * scale));
+                        int height = Math.min(document.getHeight() - y, (int) Math.ceil((field.getY2() - field.getY1()) * scale));
+                        if (width <= 0 || height <= 0) {
+                            throw new IllegalArgumentException("Field outside the OCR region");
+                        }
+                        engine.apply(OcrProfile.forClass(field.getClassName()));
+                        engine.setRectangle(x, y, width, height);
+                        future.complete(engine.getText());
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            } catch (Exception e) {
+                fields.forEach(field -> ((CompletableFuture<String>) pending.get(field)).completeExceptionally(e));
+            } finally {
+                tesseractPool.release(engine);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * ONNX recognizer model for a request, or null when Tesseract should be used.
+     * Falls back to Tesseract when the ONNX engine is selected but no usable model is configured.
+     */
+    private String resolveRecognizerModel(OcrOptions options) {
+        OcrOptions.Engine engine = options.getEngine() != null ? options.getEngine() : OcrOptions.Engine.parse(defaultEngine);
+        if (engine != OcrOptions.Engine.ONNX) {
+            return null;
+        }
+        String model = textRecognitionService.resolveModel(options.getRecognizerModel());
+        if (!textRecognitionService.isAvailable(model)) {
+            System.out.println("ONNX text recognizer '" + model + "' not available, using Tesseract");
+            return null;
+        }
+        return model;
+    }
+    
+    /**
+     * Recognize all selected fields in one batched run of the ONNX line recognizer.
+     * Characters outside a field's whitelist are dropped; if the run fails the fields are read with Tesseract.
+     */
+    private Map<DetectionResult.DetectionItem, Future<String>> submitRecognizerOcr(BufferedImage image, Point origin,
+                                                                                   List<DetectionResult.DetectionItem> detections,
+                                                                                   String recognizerModel, OcrProfile.Tier tier) {
+        Map<DetectionResult.DetectionItem, Future<String>> pending = new IdentityHashMap<>();
+        if (detections.isEmpty()) {
+            return pending;
+        }
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (DetectionResult.DetectionItem detection : detections) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.put(detection, future);
+            futures.add(future);
+        }
+        
+        executorService.submit(() -> {
+            List<BufferedImage> crops = new ArrayList<>();
+            for (DetectionResult.DetectionItem detection : detections) {
+                crops.add(cropImage(image, origin, detection));
+            }
+            try {
+                List<TextRecognizer.Recognition> recognitions = textRecognitionService.recognize(recognizerModel, crops);
+                for (int i = 0; i < detections.size(); i++) {
+                    OcrProfile profile = OcrProfile.forClass(detections.get(i).getClassName());
+                    futures.get(i).complete(profile.filter(recognitions.get(i).getText()));
+                }
+            } catch (Exception e) {
+                System.err.println("ONNX text recognition failed, falling back to Tesseract: " + e.getMessage());
+                for (int i = 0; i < detections.size(); i++) {
+                    try {
+                        futures.get(i).complete(performOcr(preprocessImageForOcr(crops.get(i)),
+                            OcrProfile.forClass(detections.get(i).getClassName()), tier));
+                    } catch (Exception fallbackError) {
+                        futures.get(i).completeExceptionally(fallbackError);
+                    }
+                }
+            }
+            return null;
+        });
+        return pending;
+    }
+    
+    /**
+     * Wait for an OCR task, unwrapping the task's own failure
      */
-    private String performOcr(BufferedImage image) throws TesseractException {
+    private String awaitOcr(Future<String> future) throws Exception {
         try {
-            // Use thread-local instance for better parallel performance
-            Tesseract threadInstance = threadLocalTesseract.get();
-            String result = threadInstance.doOCR(image);
-            return result != null ? result : "";
-        } catch (TesseractException e) {
-            System.err.println("Tesseract OCR error: " + e.getMessage());
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
             throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
         }
     }
     
@@ -284,51 +846,38 @@ public class OcrService {
      * Preprocess image for better OCR performance and accuracy
      */
     private BufferedImage preprocessImageForOcr(BufferedImage originalImage) {
+        return preprocessImageForOcr(originalImage, targetTextHeight);
+    }
+    
+    /**
+     * Scale the crop so its height matches targetHeight and convert to grayscale in one Java2D pass,
+     * then stretch contrast with a lookup table applied directly to the raster bytes
+     */
+    private BufferedImage preprocessImageForOcr(BufferedImage originalImage, int targetHeight) {
         try {
             int width = originalImage.getWidth();
             int height = originalImage.getHeight();
             
-            // Scale up small images for better OCR (minimum 200px height)
-            if (height < 200) {
-                double scaleFactor = 200.0 / height;
-                int newWidth = (int) (width * scaleFactor);
-                int newHeight = 200;
-                
-                BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-                Graphics2D g2d = scaledImage.createGraphics();
-                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-                g2d.dispose();
-                
-                originalImage = scaledImage;
-                System.out.println("Scaled image from " + width + "x" + height + " to " + newWidth + "x" + newHeight);
+            // Scale towards the target line height; crops already close to it are left alone
+            double scaleFactor = (double) targetHeight / height;
+            if (Math.abs(scaleFactor - 1.0) < 0.1) {
+                scaleFactor = 1.0;
             }
+            int newWidth = Math.max(1, (int) Math.round(width * scaleFactor));
+            int newHeight = Math.max(1, (int) Math.round(height * scaleFactor));
             
-            // Convert to grayscale for better OCR performance
-            BufferedImage grayImage = new BufferedImage(
-                originalImage.getWidth(), 
-                originalImage.getHeight(), 
-                BufferedImage.TYPE_BYTE_GRAY
-            );
-            
+            BufferedImage grayImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_BYTE_GRAY);
             Graphics2D g2d = grayImage.createGraphics();
-            g2d.drawImage(originalImage, 0, 0, null);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scaleFactor > 1.0
+                ? RenderingHints.VALUE_INTERPOLATION_BICUBIC : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
             g2d.dispose();
             
-            // Enhance contrast (simple method)
-            for (int y = 0; y < grayImage.getHeight(); y++) {
-                for (int x = 0; x < grayImage.getWidth(); x++) {
-                    int rgb = grayImage.getRGB(x, y);
-                    int gray = (rgb >> 16) & 0xFF; // Get red component (same as green and blue in grayscale)
-                    
-                    // Simple contrast enhancement
-                    gray = Math.min(255, Math.max(0, (int) ((gray - 128) * 1.2 + 128)));
-                    
-                    int newRgb = (gray << 16) | (gray << 8) | gray;
-                    grayImage.setRGB(x, y, newRgb);
-                }
+            byte[] pixels = ((DataBufferByte) grayImage.getRaster().getDataBuffer()).getData();
+            byte[] lut = contrastStretchTable(pixels);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = lut[pixels[i] & 0xFF];
             }
             
             return grayImage;
@@ -337,7 +886,42 @@ public class OcrService {
             System.err.println("Error preprocessing image: " + e.getMessage());
             return originalImage; // Return original if preprocessing fails
         }
-    }    /**
+    }
+    
+    /**
+     * Lookup table stretching the 1st..99th percentile of the crop to the full range.
+     * Low-contrast crops fall back to a fixed 1.2x contrast around mid-gray.
+     */
+    private byte[] contrastStretchTable(byte[] pixels) {
+        int[] histogram = new int[256];
+        for (byte pixel : pixels) {
+            histogram[pixel & 0xFF]++;
+        }
+        
+        int clip = pixels.length / 100;
+        int low = 0;
+        int clipped = histogram[0];
+        while (low < 255 && clipped <= clip) {
+            clipped += histogram[++low];
+        }
+        int high = 255;
+        clipped = histogram[255];
+        while (high > 0 && clipped <= clip) {
+            clipped += histogram[--high];
+        }
+        
+        byte[] lut = new byte[256];
+        boolean stretch = high - low >= 16;
+        for (int value = 0; value < 256; value++) {
+            int mapped = stretch
+                ? (value - low) * 255 / (high - low)
+                : (int) ((value - 128) * 1.2 + 128);
+            lut[value] = (byte) Math.min(255, Math.max(0, mapped));
+        }
+        return lut;
+    }
+    
+    /**
      * Cleanup resources
      */
     @PreDestroy
@@ -346,48 +930,19 @@ public class OcrService {
             executorService.shutdown();
             System.out.println("OCR ExecutorService shutdown");
         }
-        
-        // Clean up thread-local instances
-        threadLocalTesseract.remove();
-        System.out.println("OCR ThreadLocal instances cleaned up");
-    }
-      /**
-     * Configure a specific Tesseract instance with optimized settings
-     */
-    private void configureTesseractInstance(Tesseract instance) {
-        try {
-            // Use stored configuration
-            if (configuredDatapath != null) {
-                instance.setDatapath(configuredDatapath);
-            }
-            
-            if (configuredLanguage != null) {
-                instance.setLanguage(configuredLanguage);
-            }
-            
-            instance.setOcrEngineMode(1); // LSTM engine for speed
-            instance.setPageSegMode(8); // Single word for cropped regions
-            
-            // Set optimization variables
-            instance.setVariable("tessedit_char_whitelist", 
-                "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
-                "ÀÁÂÃÈÉÊÌÍÒÓÔÕÙÚÝàáâãèéêìíòóôõùúýĂăĐđĨĩŨũƠơƯưẠạẢảẤấẦầẨẩẪẫẬậẮắẰằẲẳẴẵẶặẸẹẺẻẼẽẾếỀềỂểỄễỆệỈỉỊịỌọỎỏỐốỒồỔổỖỗỘộỚớỜờỞởỠỡỢợỤụỦủỨứỪừỬửỮữỰự" +
-                "ỲỳỴỵỶỷỸỹ /-:.,()");
-            
-            instance.setVariable("tessedit_enable_doc_dict", "0");
-            instance.setVariable("tessedit_enable_bigram_correction", "0");
-            instance.setVariable("textord_really_old_xheight", "1");
-            instance.setVariable("textord_min_linesize", "0.25");
-            
-        } catch (Exception e) {
-            System.err.println("Error configuring Tesseract instance: " + e.getMessage());
-        }
     }
     
     /**
-     * Group and merge detections for multi-line fields like place_of_residence and place_of_origin
+     * Group and merge detections for multi-line fields like place_of_residence and place_of_origin.
+     * All field and line crops are submitted to the OCR executor up front, then collected in group order.
      */
-    private List<OcrResult> processAndMergeDetections(BufferedImage image, List<DetectionResult.DetectionItem> detections) {
+    private List<OcrResult> processAndMergeDetections(BufferedImage image, Point origin,
+                                                      List<DetectionResult.DetectionItem> detections, OcrOptions options) {
+        OcrProfile.Tier tier = options.getTier();
+        String recognizerModel = resolveRecognizerModel(options);
+        // The line recognizer reads single lines, so address lines are not stitched for it
+        boolean stitching = stitchAddressLines && recognizerModel == null;
+
         Map<String, List<DetectionResult.DetectionItem>> groupedDetections = new HashMap<>();
         
         // Group detections by className
@@ -396,53 +951,87 @@ public class OcrService {
             groupedDetections.computeIfAbsent(className, k -> new ArrayList<>()).add(detection);
         }
         
-        List<OcrResult> allResults = new ArrayList<>();
-        
+        // Select the regions to OCR per group
+        Map<String, List<DetectionResult.DetectionItem>> selectedDetections = new HashMap<>();
+        List<DetectionResult.DetectionItem> allSelected = new ArrayList<>();
         for (Map.Entry<String, List<DetectionResult.DetectionItem>> entry : groupedDetections.entrySet()) {
             String className = entry.getKey();
-            List<DetectionResult.DetectionItem> classDetections = entry.getValue();
+            List<DetectionResult.DetectionItem> selected;
             
-            if ("place_of_residence".equals(className) || "place_of_origin".equals(className)) {
+            if (isMultiLineField(className)) {
+                selected = selectMergedFieldLines(className, entry.getValue());
+            } else {
+                // For other fields, take the best detection
+                selected = new ArrayList<>();
+                entry.getValue().stream()
+                    .max(Comparator.comparing(DetectionResult.DetectionItem::getConfidence))
+                    .ifPresent(selected::add);
+            }
+            
+            selectedDetections.put(className, selected);
+            if (!isStitched(className, selected, stitching)) {
+                allSelected.addAll(selected);
+            }
+        }
+        
+        // Start OCR for all selected regions concurrently
+        Map<DetectionResult.DetectionItem, Future<String>> pending;
+        if (recognizerModel != null) {
+            pending = submitRecognizerOcr(image, origin, allSelected, recognizerModel, tier);
+        } else if (documentMode) {
+            pending = submitDocumentOcr(image, origin, allSelected, tier);
+        } else {
+            pending = new IdentityHashMap<>();
+            for (DetectionResult.DetectionItem detection : allSelected) {
+                pending.put(detection, submitOcr(image, origin, detection, tier));
+            }
+        }
+        Map<String, List<Future<String>>> pendingOcr = new HashMap<>();
+        selectedDetections.forEach((className, selected) -> pendingOcr.put(className, isStitched(className, selected, stitching)
+            ? List.of(submitStitchedOcr(image, origin, selected, tier))
+            : selected.stream().map(pending::get).collect(Collectors.toList())));
+        
+        List<OcrResult> allResults = new ArrayList<>();
+        
+        for (String className : groupedDetections.keySet()) {
+            List<DetectionResult.DetectionItem> selected = selectedDetections.get(className);
+            List<Future<String>> futures = pendingOcr.get(className);
+            
+            if (isMultiLineField(className)) {
                 // Special handling for multi-line fields
-                OcrResult mergedResult = processMergedField(image, className, classDetections);
+                OcrResult mergedResult = isStitched(className, selected, stitching)
+                    ? processStitchedField(className, selected, futures.get(0))
+                    : processMergedField(className, selected, futures);
                 if (mergedResult != null) {
                     allResults.add(mergedResult);
                 }
-            } else {
-                // For other fields, take the best detection
-                DetectionResult.DetectionItem bestDetection = classDetections.stream()
-                    .max(Comparator.comparing(DetectionResult.DetectionItem::getConfidence))
-                    .orElse(null);
-                
-                if (bestDetection != null) {
-                    try {
-                        BufferedImage croppedImage = cropImage(image, bestDetection);
-                        BufferedImage processedImage = preprocessImageForOcr(croppedImage);
-                        String extractedText = performOcr(processedImage);
-                        
-                        System.out.println("OCR for " + bestDetection.getClassName() + ": \"" + extractedText.trim() + "\"");
-                          OcrResult result = new OcrResult(
-                            extractedText.trim(),
-                            bestDetection.getConfidence(),
-                            new OcrResult.BoundingBox(bestDetection.getX1(), bestDetection.getY1(), 
-                                                    bestDetection.getX2(), bestDetection.getY2()),
-                            bestDetection.getClassName(),
-                            bestDetection.getClassId()
-                        );
-                        allResults.add(result);
-                        
-                    } catch (Exception e) {
-                        System.err.println("Error processing OCR for " + bestDetection.getClassName() + ": " + e.getMessage());
-                          OcrResult errorResult = new OcrResult(
-                            "[OCR Error]",
-                            bestDetection.getConfidence(),
-                            new OcrResult.BoundingBox(bestDetection.getX1(), bestDetection.getY1(), 
-                                                    bestDetection.getX2(), bestDetection.getY2()),
-                            bestDetection.getClassName(),
-                            bestDetection.getClassId()
-                        );
-                        allResults.add(errorResult);
-                    }
+            } else if (!selected.isEmpty()) {
+                DetectionResult.DetectionItem bestDetection = selected.get(0);
+                try {
+                    String extractedText = awaitOcr(futures.get(0));
+                    
+                    System.out.println("OCR for " + bestDetection.getClassName() + ": \"" + extractedText.trim() + "\"");
+                      OcrResult result = new OcrResult(
+                        extractedText.trim(),
+                        bestDetection.getConfidence(),
+                        new OcrResult.BoundingBox(bestDetection.getX1(), bestDetection.getY1(), 
+                                                bestDetection.getX2(), bestDetection.getY2()),
+                        bestDetection.getClassName(),
+                        bestDetection.getClassId()
+                    );
+                    allResults.add(result);
+                    
+                } catch (Exception e) {
+                    System.err.println("Error processing OCR for " + bestDetection.getClassName() + ": " + e.getMessage());
+                      OcrResult errorResult = new OcrResult(
+                        "[OCR Error]",
+                        bestDetection.getConfidence(),
+                        new OcrResult.BoundingBox(bestDetection.getX1(), bestDetection.getY1(), 
+                                                bestDetection.getX2(), bestDetection.getY2()),
+                        bestDetection.getClassName(),
+                        bestDetection.getClassId()
+                    );
+                    allResults.add(errorResult);
                 }
             }
         }
@@ -450,10 +1039,110 @@ public class OcrService {
         return allResults;
     }
     
+    private boolean isMultiLineField(String className) {
+        return "place_of_residence".equals(className) || "place_of_origin".equals(className);
+    }
+    
+    private boolean isStitched(String className, List<DetectionResult.DetectionItem> lines, boolean stitching) {
+        return stitching && isMultiLineField(className) && lines.size() > 1;
+    }
+    
     /**
-     * Process and merge multi-line fields (place_of_residence, place_of_origin)
+     * Compose the line crops of a multi-line field top to bottom into one strip.
+     * Every line is scaled to the target text height and contrast-stretched on its own,
+     * then placed left-aligned on a white background with half a line of spacing.
+     */
+    private BufferedImage stitchLines(BufferedImage image, Point origin, List<DetectionResult.DetectionItem> lines) {
+        List<BufferedImage> processedLines = new ArrayList<>();
+        int width = 0;
+        for (DetectionResult.DetectionItem line : lines) {
+            BufferedImage processed = preprocessImageForOcr(cropImage(image, origin, line));
+            processedLines.add(processed);
+            width = Math.max(width, processed.getWidth());
+        }
+        
+        int spacing = Math.max(4, targetTextHeight / 2);
+        int height = spacing;
+        for (BufferedImage processed : processedLines) {
+            height += processed.getHeight() + spacing;
+        }
+        
+        BufferedImage strip = new BufferedImage(width + 2 * spacing, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = strip.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, strip.getWidth(), strip.getHeight());
+        int y = spacing;
+        for (BufferedImage processed : processedLines) {
+            g2d.drawImage(processed, spacing, y, null);
+            y += processed.getHeight() + spacing;
+        }
+        g2d.dispose();
+        return strip;
+    }
+    
+    /**
+     * Stitch the lines of a multi-line field and OCR the strip once on the OCR executor
+     */
+    private Future<String> submitStitchedOcr(BufferedImage image, Point origin, List<DetectionResult.DetectionItem> lines,
+                                             OcrProfile.Tier tier) {
+        return executorService.submit(() -> performOcr(stitchLines(image, origin, lines), OcrProfile.ADDRESS_BLOCK, tier));
+    }
+    
+    /**
+     * Lines of a stitched OCR result, empty lines dropped
+     */
+    private List<String> splitLines(String text) {
+        return Arrays.stream(text.split("\\R"))
+            .map(String::trim)
+            .filter(line -> !line.isEmpty())
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Build the merged result of a multi-line field read as one stitched strip
+     */
+    private OcrResult processStitchedField(String className, List<DetectionResult.DetectionItem> lines,
+                                           Future<String> stripOcr) {
+        List<String> textParts;
+        try {
+            textParts = splitLines(awaitOcr(stripOcr));
+        } catch (Exception e) {
+            System.err.println("Error processing stitched OCR for " + className + ": " + e.getMessage());
+            return null;
+        }
+        if (textParts.isEmpty()) {
+            System.out.println("No text extracted for " + className);
+            return null;
+        }
+        
+        double totalConfidence = 0;
+        double minX1 = Double.MAX_VALUE, minY1 = Double.MAX_VALUE;
+        double maxX2 = Double.MIN_VALUE, maxY2 = Double.MIN_VALUE;
+        for (DetectionResult.DetectionItem line : lines) {
+            totalConfidence += line.getConfidence();
+            minX1 = Math.min(minX1, line.getX1());
+            minY1 = Math.min(minY1, line.getY1());
+            maxX2 = Math.max(maxX2, line.getX2());
+            maxY2 = Math.max(maxY2, line.getY2());
+        }
+        
+        String combinedText = String.join(" ", textParts);
+        double averageConfidence = totalConfidence / lines.size();
+        System.out.println("Stitched " + className + " (" + lines.size() + " lines, " + textParts.size() + " read): \"" 
+            + combinedText + "\"");
+        return new OcrResult(
+            combinedText,
+            (float) averageConfidence,
+            new OcrResult.BoundingBox((float) minX1, (float) minY1, (float) maxX2, (float) maxY2),
+            className,
+            lines.get(0).getClassId()
+        );
+    }
+    
+    /**
+     * Lines of a multi-line field worth reading, in reading order
      */
-    private OcrResult processMergedField(BufferedImage image, String className, List<DetectionResult.DetectionItem> detections) {
+    private List<DetectionResult.DetectionItem> selectMergedFieldLines(String className, List<DetectionResult.DetectionItem> detections) {
         System.out.println("Processing merged field: " + className + " with " + detections.size() + " detections");
         
         // Filter detections with good confidence (>= 0.5)
@@ -461,11 +1150,6 @@ public class OcrService {
             .filter(d -> d.getConfidence() >= 0.5)
             .collect(Collectors.toList());
         
-        if (goodDetections.isEmpty()) {
-            System.out.println("No good detections found for " + className);
-            return null;
-        }
-        
         // Sort by position: top to bottom, then left to right
         goodDetections.sort((d1, d2) -> {
             double y1 = d1.getY1();
@@ -477,18 +1161,29 @@ public class OcrService {
             }
             return Double.compare(y1, y2);
         });
+        return goodDetections;
+    }
+    
+    /**
+     * Process and merge multi-line fields (place_of_residence, place_of_origin)
+     */
+    private OcrResult processMergedField(String className, List<DetectionResult.DetectionItem> goodDetections,
+                                         List<Future<String>> lineOcr) {
+        if (goodDetections.isEmpty()) {
+            System.out.println("No good detections found for " + className);
+            return null;
+        }
         
-        // Perform OCR on each detection and combine results
+        // Combine the OCR result of each line
         List<String> textParts = new ArrayList<>();
         double totalConfidence = 0;
         double minX1 = Double.MAX_VALUE, minY1 = Double.MAX_VALUE;
         double maxX2 = Double.MIN_VALUE, maxY2 = Double.MIN_VALUE;
         
-        for (DetectionResult.DetectionItem detection : goodDetections) {
+        for (int i = 0; i < goodDetections.size(); i++) {
+            DetectionResult.DetectionItem detection = goodDetections.get(i);
             try {
-                BufferedImage croppedImage = cropImage(image, detection);
-                BufferedImage processedImage = preprocessImageForOcr(croppedImage);
-                String extractedText = performOcr(processedImage).trim();
+                String extractedText = awaitOcr(lineOcr.get(i)).trim();
                 
                 if (!extractedText.isEmpty() && !"[OCR Error]".equals(extractedText)) {
                     textParts.add(extractedText);
@@ -527,6 +1222,123 @@ public class OcrService {
         );
     }
     
+    /**
+     * Results for the fields filled from the QR instead of OCR, one per class with the union of its boxes
+     */
+    private List<OcrResult> qrFieldResults(DetectionResult detectionResult, List<DetectionResult.DetectionItem> ocrFields,
+                                           CccdInfo qrInfo) {
+        Map<String, List<DetectionResult.DetectionItem>> skipped = new LinkedHashMap<>();
+        for (DetectionResult.DetectionItem detection : detectionResult.getDetections()) {
+            String className = detection.getClassName();
+            if (!"qr_code".equals(className) && !"portrait".equals(className) && !ocrFields.contains(detection)) {
+                skipped.computeIfAbsent(className, k -> new ArrayList<>()).add(detection);
+            }
+        }
+        
+        List<OcrResult> results = new ArrayList<>();
+        skipped.forEach((className, detections) -> {
+            String text = qrValue(qrInfo, className);
+            if (text == null) {
+                return;
+            }
+            float confidence = 0;
+            float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE, x2 = -Float.MAX_VALUE, y2 = -Float.MAX_VALUE;
+            for (DetectionResult.DetectionItem detection : detections) {
+                confidence = Math.max(confidence, detection.getConfidence());
+                x1 = Math.min(x1, detection.getX1());
+                y1 = Math.min(y1, detection.getY1());
+                x2 = Math.max(x2, detection.getX2());
+                y2 = Math.max(y2, detection.getY2());
+            }
+            results.add(new OcrResult(text, confidence, new OcrResult.BoundingBox(x1, y1, x2, y2),
+                className, detections.get(0).getClassId()));
+        });
+        return results;
+    }
+    
+    /**
+     * QR value for a detected class, null for classes the QR does not carry
+     */
+    private String qrValue(CccdInfo qrInfo, String className) {
+        switch (className) {
+            case "id":
+            case "id_number":
+                return qrInfo.getId();
+            case "name":
+            case "full_name":
+                return qrInfo.getName();
+            case "birth":
+            case "birth_date":
+                return qrInfo.getBirth();
+            case "sex":
+            case "gender":
+                return qrInfo.getSex();
+            case "place_of_residence":
+                return qrInfo.getPlace_of_residence();
+            case "issue_date":
+                return qrInfo.getIssueDate();
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * QR values completed with OCR for every field the QR left blank
+     */
+    private CccdInfo mergeQrAndOcr(CccdInfo qrInfo, CccdInfo ocrInfo) {
+        if (ocrInfo != null) {
+            qrInfo.setId(preferQr(qrInfo.getId(), ocrInfo.getId()));
+            qrInfo.setName(preferQr(qrInfo.getName(), ocrInfo.getName()));
+            qrInfo.setBirth(preferQr(qrInfo.getBirth(), ocrInfo.getBirth()));
+            qrInfo.setSex(preferQr(qrInfo.getSex(), ocrInfo.getSex()));
+            qrInfo.setPlace_of_residence(preferQr(qrInfo.getPlace_of_residence(), ocrInfo.getPlace_of_residence()));
+            qrInfo.setIssueDate(preferQr(qrInfo.getIssueDate(), ocrInfo.getIssueDate()));
+            qrInfo.setPlace_of_origin(preferQr(qrInfo.getPlace_of_origin(), ocrInfo.getPlace_of_origin()));
+            qrInfo.setExpiry(preferQr(qrInfo.getExpiry(), ocrInfo.getExpiry()));
+            qrInfo.setNationality(preferQr(qrInfo.getNationality(), ocrInfo.getNationality()));
+        }
+        return qrInfo;
+    }
+    
+    private String preferQr(String qrValue, String ocrValue) {
+        return isBlank(qrValue) ? ocrValue : qrValue;
+    }
+    
+    /**
+     * Fields present in both the QR and the OCR result whose values differ.
+     * Compared case-insensitively on letters and digits only, so date separators and spacing are ignored.
+     */
+    private List<String> crossCheck(CccdInfo qrInfo, CccdInfo ocrInfo) {
+        List<String> mismatches = new ArrayList<>();
+        if (ocrInfo == null) {
+            return mismatches;
+        }
+        compareField(mismatches, "id", qrInfo.getId(), ocrInfo.getId());
+        compareField(mismatches, "name", qrInfo.getName(), ocrInfo.getName());
+        compareField(mismatches, "birth", qrInfo.getBirth(), ocrInfo.getBirth());
+        compareField(mismatches, "sex", qrInfo.getSex(), ocrInfo.getSex());
+        compareField(mismatches, "place_of_residence", qrInfo.getPlace_of_residence(), ocrInfo.getPlace_of_residence());
+        compareField(mismatches, "issue_date", qrInfo.getIssueDate(), ocrInfo.getIssueDate());
+        return mismatches;
+    }
+    
+    private void compareField(List<String> mismatches, String field, String qrValue, String ocrValue) {
+        if (isBlank(qrValue) || isBlank(ocrValue)) {
+            return;
+        }
+        if (!normalizeForCompare(qrValue).equals(normalizeForCompare(ocrValue))) {
+            mismatches.add(field);
+        }
+    }
+    
+    private String normalizeForCompare(String value) {
+        return value.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+    }
+    
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
     /**
      * Parse CCCD information from OCR results
      */
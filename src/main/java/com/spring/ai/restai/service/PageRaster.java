@@ -0,0 +1,267 @@
+package com.spring.ai.restai.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * One page of a document that can be read at a low detection resolution, in regions at decode resolution, or whole.
+ * Region coordinates are pixels of the full-resolution page. PDF documents and TIFF readers are not thread-safe,
+ * so reads of pages sharing one are serialized on it.
+ */
+public interface PageRaster {
+
+    // Assumed resolution of images that do not record one
+    double DEFAULT_DPI = 300;
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Resolution of the full-resolution page in pixels per inch
+     */
+    double getDpi();
+
+    /**
+     * Whole page at roughly 1/factor of the full resolution
+     */
+    BufferedImage readCoarse(double factor) throws IOException;
+
+    BufferedImage readRegion(Rectangle region) throws IOException;
+
+    BufferedImage readFull() throws IOException;
+
+    /**
+     * Decoded full-resolution image this page keeps in memory, if any
+     */
+    default BufferedImage getHeldImage() {
+        return null;
+    }
+
+    static PageRaster ofImage(BufferedImage image, double dpi) {
+        return new ImagePage(image, dpi);
+    }
+
+    static PageRaster ofPdf(PDDocument document, PDFRenderer renderer, int pageIndex, float dpi) {
+        return new PdfPage(document, renderer, pageIndex, dpi);
+    }
+
+    static PageRaster ofTiff(ImageReader reader, int pageIndex) throws IOException {
+        synchronized (reader) {
+            return new TiffPage(reader, pageIndex, reader.getWidth(pageIndex), reader.getHeight(pageIndex),
+                    readDpi(reader, pageIndex));
+        }
+    }
+
+    /**
+     * Horizontal resolution from the image metadata, DEFAULT_DPI when it is not recorded
+     */
+    private static double readDpi(ImageReader reader, int pageIndex) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(pageIndex);
+            if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+                return DEFAULT_DPI;
+            }
+            Node root = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+            for (Node dimension = root.getFirstChild(); dimension != null; dimension = dimension.getNextSibling()) {
+                if (!"Dimension".equals(dimension.getNodeName())) {
+                    continue;
+                }
+                for (Node child = dimension.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    NamedNodeMap attributes = child.getAttributes();
+                    if ("HorizontalPixelSize".equals(child.getNodeName()) && attributes.getNamedItem("value") != null) {
+                        // Millimeters per pixel
+                        double size = Double.parseDouble(attributes.getNamedItem("value").getNodeValue());
+                        return size > 0 ? 25.4 / size : DEFAULT_DPI;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read resolution of page " + (pageIndex + 1) + ": " + e.getMessage());
+        }
+        return DEFAULT_DPI;
+    }
+
+    /**
+     * Page already decoded in memory, e.g. the embedded scan of a PDF page
+     */
+    class ImagePage implements PageRaster {
+        private final BufferedImage image;
+        private final double dpi;
+
+        ImagePage(BufferedImage image, double dpi) {
+            this.image = image;
+            this.dpi = dpi;
+        }
+
+        @Override
+        public int getWidth() { return image.getWidth(); }
+
+        @Override
+        public int getHeight() { return image.getHeight(); }
+
+        @Override
+        public double getDpi() { return dpi; }
+
+        @Override
+        public BufferedImage readCoarse(double factor) {
+            int width = Math.max(1, (int) Math.round(image.getWidth() / factor));
+            int height = Math.max(1, (int) Math.round(image.getHeight() / factor));
+            BufferedImage coarse = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = coarse.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(image, 0, 0, width, height, null);
+            g2d.dispose();
+            return coarse;
+        }
+
+        @Override
+        public BufferedImage readRegion(Rectangle region) {
+            return image.getSubimage(region.x, region.y, region.width, region.height);
+        }
+
+        @Override
+        public BufferedImage readFull() { return image; }
+
+        @Override
+        public BufferedImage getHeldImage() { return image; }
+    }
+
+    /**
+     * PDF page rendered on demand; the first region or full read renders the page once at full DPI and later reads
+     * crop from that render
+     */
+    class PdfPage implements PageRaster {
+        private final PDDocument document;
+        private final PDFRenderer renderer;
+        private final int pageIndex;
+        private final float dpi;
+        private final int width;
+        private final int height;
+        // Full-DPI render shared by region and full reads, guarded by this
+        private BufferedImage rendered;
+
+        PdfPage(PDDocument document, PDFRenderer renderer, int pageIndex, float dpi) {
+            this.document = document;
+            this.renderer = renderer;
+            this.pageIndex = pageIndex;
+            this.dpi = dpi;
+            // Same page size as PDFRenderer.renderImageWithDPI
+            PDRectangle cropBox;
+            int rotation;
+            synchronized (document) {
+                PDPage page = document.getPage(pageIndex);
+                cropBox = page.getCropBox();
+                rotation = page.getRotation();
+            }
+            float scale = dpi / 72f;
+            int w = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+            int h = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+            boolean sideways = rotation == 90 || rotation == 270;
+            this.width = sideways ? h : w;
+            this.height = sideways ? w : h;
+        }
+
+        @Override
+        public int getWidth() { return width; }
+
+        @Override
+        public int getHeight() { return height; }
+
+        @Override
+        public double getDpi() { return dpi; }
+
+        @Override
+        public BufferedImage readCoarse(double factor) throws IOException {
+            synchronized (document) {
+                return renderer.renderImageWithDPI(pageIndex, (float) (dpi / factor));
+            }
+        }
+
+        @Override
+        public BufferedImage readRegion(Rectangle region) throws IOException {
+            BufferedImage page = readFull();
+            Rectangle bounds = region.intersection(new Rectangle(page.getWidth(), page.getHeight()));
+            return page.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+        }
+
+        @Override
+        public synchronized BufferedImage readFull() throws IOException {
+            if (rendered == null) {
+                synchronized (document) {
+                    rendered = renderer.renderImageWithDPI(pageIndex, dpi);
+                }
+            }
+            return rendered;
+        }
+    }
+
+    /**
+     * TIFF page read through the shared reader: subsampled for the coarse pass, source regions for decoding
+     */
+    class TiffPage implements PageRaster {
+        private final ImageReader reader;
+        private final int pageIndex;
+        private final int width;
+        private final int height;
+        private final double dpi;
+
+        TiffPage(ImageReader reader, int pageIndex, int width, int height, double dpi) {
+            this.reader = reader;
+            this.pageIndex = pageIndex;
+            this.width = width;
+            this.height = height;
+            this.dpi = dpi;
+        }
+
+        @Override
+        public int getWidth() { return width; }
+
+        @Override
+        public int getHeight() { return height; }
+
+        @Override
+        public double getDpi() { return dpi; }
+
+        @Override
+        public BufferedImage readCoarse(double factor) throws IOException {
+            ImageReadParam param = reader.getDefaultReadParam();
+            int step = Math.max(1, (int) Math.round(factor));
+            param.setSourceSubsampling(step, step, 0, 0);
+            synchronized (reader) {
+                return reader.read(pageIndex, param);
+            }
+        }
+
+        @Override
+        public BufferedImage readRegion(Rectangle region) throws IOException {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            synchronized (reader) {
+                return reader.read(pageIndex, param);
+            }
+        }
+
+        @Override
+        public BufferedImage readFull() throws IOException {
+            synchronized (reader) {
+                return reader.read(pageIndex);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.spring.ai.restai.service;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.contentstream.operator.text.SetTextRenderingMode;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the page image of scanned PDFs directly instead of rasterizing the page.
+ * Only pages whose content is a single axis-aligned image covering the page, with at most invisible text over it and
+ * no annotations, qualify; the image is decoded at its native resolution and the placement (flips, quarter turns,
+ * page rotation) is applied, so the result looks like a rendered page. Anything else returns null and the caller
+ * renders the page.
+ */
+public class PdfPageImageExtractor {
+
+    // Share of the crop box the image has to cover to count as the whole page
+    private static final double MIN_PAGE_COVERAGE = 0.95;
+
+    // Fill and stroke operators: vector content drawn over the scan would be lost
+    private static final Set<String> PATH_PAINTING_OPERATORS = Set.of("S", "s", "f", "F", "f*", "B", "B*", "b", "b*", "sh");
+
+    // Text showing operators; only invisible text (OCR layers of searchable scans) leaves the page image unchanged
+    private static final Set<String> TEXT_SHOWING_OPERATORS = Set.of("Tj", "TJ", "'", "\"");
+
+    private PdfPageImageExtractor() {}
+
+    /**
+     * Page image at native resolution in TYPE_INT_RGB, or null when the page needs rendering
+     */
+    public static BufferedImage extract(PDPage page) {
+        try {
+            // Stamps, form fields and markup are drawn over the scan when rendering
+            if (!page.getAnnotations().isEmpty()) {
+                return null;
+            }
+            ImageLocator locator = new ImageLocator();
+            locator.processPage(page);
+            if (locator.unsupportedContent || locator.images.size() != 1) {
+                return null;
+            }
+
+            PlacedImage placed = locator.images.get(0);
+            PDImageXObject xobject = placed.image;
+            if (xobject.isStencil() || xobject.getSoftMask() != null || xobject.getMask() != null) {
+                return null;
+            }
+            AffineTransform pixelToPage = pixelToPage(placed.ctm, xobject.getWidth(), xobject.getHeight());
+            if (pixelToPage == null || !coversPage(placed.ctm, page.getCropBox())) {
+                return null;
+            }
+
+            return toPageOrientation(xobject.getImage(), pixelToPage, page.getCropBox(), page.getRotation());
+
+        } catch (IOException | RuntimeException e) {
+            // Unsupported filters (e.g. JPX without a plugin) or broken content streams: render instead
+            System.err.println("Embedded page image not usable, rendering page: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Image pixel space to page space, null when the image is skewed or rotated by other than quarter turns
+     */
+    private static AffineTransform pixelToPage(Matrix ctm, int width, int height) {
+        float a = ctm.getScaleX(), b = ctm.getShearY(), c = ctm.getShearX(), d = ctm.getScaleY();
+        boolean upright = isZero(b) && isZero(c) && !isZero(a) && !isZero(d);
+        boolean quarterTurn = isZero(a) && isZero(d) && !isZero(b) && !isZero(c);
+        if (!upright && !quarterTurn) {
+            return null;
+        }
+        // Image row 0 is the top of the unit square the CTM places on the page
+        AffineTransform transform = new AffineTransform(a, b, c, d, ctm.getTranslateX(), ctm.getTranslateY());
+        transform.concatenate(new AffineTransform(1.0 / width, 0, 0, -1.0 / height, 0, 1));
+        return transform;
+    }
+
+    private static boolean coversPage(Matrix ctm, PDRectangle cropBox) {
+        float e = ctm.getTranslateX(), f = ctm.getTranslateY();
+        float a = ctm.getScaleX(), b = ctm.getShearY(), c = ctm.getShearX(), d = ctm.getScaleY();
+        double minX = Math.min(Math.min(e, e + a), Math.min(e + c, e + a + c));
+        double maxX = Math.max(Math.max(e, e + a), Math.max(e + c, e + a + c));
+        double minY = Math.min(Math.min(f, f + b), Math.min(f + d, f + b + d));
+        double maxY = Math.max(Math.max(f, f + b), Math.max(f + d, f + b + d));
+
+        double overlapW = Math.min(maxX, cropBox.getUpperRightX()) - Math.max(minX, cropBox.getLowerLeftX());
+        double overlapH = Math.min(maxY, cropBox.getUpperRightY()) - Math.max(minY, cropBox.getLowerLeftY());
+        double pageArea = (double) cropBox.getWidth() * cropBox.getHeight();
+        return overlapW > 0 && overlapH > 0 && pageArea > 0 && overlapW * overlapH >= MIN_PAGE_COVERAGE * pageArea;
+    }
+
+    /**
+     * Draw the image the way the page is displayed, at the image's own resolution
+     */
+    private static BufferedImage toPageOrientation(BufferedImage image, AffineTransform pixelToPage,
+                                                   PDRectangle cropBox, int rotation) {
+        float pageWidth = cropBox.getWidth(), pageHeight = cropBox.getHeight();
+
+        // Pixels per page unit of the scan; the sharper axis wins when the scan DPI is not square
+        double unitsPerPixelX = Math.hypot(pixelToPage.getScaleX(), pixelToPage.getShearY());
+        double unitsPerPixelY = Math.hypot(pixelToPage.getShearX(), pixelToPage.getScaleY());
+        double scale = 1.0 / Math.min(unitsPerPixelX, unitsPerPixelY);
+
+        // Page space to display space (y down), then the page's clockwise /Rotate
+        AffineTransform display;
+        boolean swapSides = false;
+        switch (((rotation % 360) + 360) % 360) {
+            case 90:
+                display = new AffineTransform(0, 1, -1, 0, pageHeight, 0);
+                swapSides = true;
+                break;
+            case 180:
+                display = new AffineTransform(-1, 0, 0, -1, pageWidth, pageHeight);
+                break;
+            case 270:
+                display = new AffineTransform(0, -1, 1, 0, 0, pageWidth);
+                swapSides = true;
+                break;
+            default:
+                display = new AffineTransform();
+        }
+        AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+        transform.concatenate(display);
+        transform.concatenate(new AffineTransform(1, 0, 0, -1, -cropBox.getLowerLeftX(), cropBox.getUpperRightY()));
+        transform.concatenate(pixelToPage);
+
+        int outWidth = (int) Math.round((swapSides ? pageHeight : pageWidth) * scale);
+        int outHeight = (int) Math.round((swapSides ? pageWidth : pageHeight) * scale);
+
+        // Common scanner output: upright image exactly on the page, nothing to redraw
+        boolean identity = Math.abs(transform.getScaleX() - 1) < 1e-6 && Math.abs(transform.getScaleY() - 1) < 1e-6
+                && Math.abs(transform.getShearX()) < 1e-6 && Math.abs(transform.getShearY()) < 1e-6
+                && Math.abs(transform.getTranslateX()) < 0.5 && Math.abs(transform.getTranslateY()) < 0.5;
+        if (image.getType() == BufferedImage.TYPE_INT_RGB && identity
+                && outWidth == image.getWidth() && outHeight == image.getHeight()) {
+            return image;
+        }
+
+        BufferedImage page = new BufferedImage(Math.max(1, outWidth), Math.max(1, outHeight), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = page.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, page.getWidth(), page.getHeight());
+            // Flips and quarter turns map pixels one to one; only non-square scan DPI needs resampling
+            boolean squarePixels = Math.abs(unitsPerPixelX - unitsPerPixelY) < 1e-6 * unitsPerPixelX;
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, squarePixels
+                    ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+                    : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return page;
+    }
+
+    private static boolean isZero(float value) {
+        return Math.abs(value) < 1e-4f;
+    }
+
+    private static class PlacedImage {
+        final PDImageXObject image;
+        final Matrix ctm;
+
+        PlacedImage(PDImageXObject image, Matrix ctm) {
+            this.image = image;
+            this.ctm = ctm;
+        }
+    }
+
+    /**
+     * Walks the content stream (and form XObjects) recording drawn images with their transform
+     */
+    private static class ImageLocator extends PDFStreamEngine {
+        final List<PlacedImage> images = new ArrayList<>();
+        boolean unsupportedContent;
+
+        ImageLocator() {
+            addOperator(new Concatenate());
+            addOperator(new DrawObject());
+            addOperator(new SetGraphicsStateParameters());
+            addOperator(new Save());
+            addOperator(new Restore());
+            addOperator(new SetMatrix());
+            addOperator(new SetTextRenderingMode());
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            String name = operator.getName();
+            if ("Do".equals(name) && !operands.isEmpty() && operands.get(0) instanceof COSName) {
+                PDXObject xobject = getResources().getXObject((COSName) operands.get(0));
+                if (xobject instanceof PDImageXObject) {
+                    images.add(new PlacedImage((PDImageXObject) xobject,
+                            getGraphicsState().getCurrentTransformationMatrix().clone()));
+                    return;
+                }
+            } else if ("BI".equals(name) || PATH_PAINTING_OPERATORS.contains(name)) {
+                unsupportedContent = true;
+            } else if (TEXT_SHOWING_OPERATORS.contains(name)
+                    && getGraphicsState().getTextState().getRenderingMode() != RenderingMode.NEITHER) {
+                unsupportedContent = true;
+            }
+            super.processOperator(operator, operands);
+        }
+    }
+}
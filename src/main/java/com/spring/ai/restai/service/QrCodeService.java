@@ -10,6 +10,7 @@ import com.spring.ai.restai.dto.QrCodeResult;
 import com.spring.ai.restai.dto.CccdInfo;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.shapes.Polygon2D_F64;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -25,11 +26,16 @@ import java.util.List;
 @Service
 public class QrCodeService {
     
-    private final QrCodeDetector<GrayU8> detector;
+    // BoofCV detectors keep per-call state, so each request thread gets its own
+    private final ThreadLocal<QrCodeDetector<GrayU8>> detectors =
+        ThreadLocal.withInitial(() -> FactoryFiducial.qrcode(null, GrayU8.class));
+    
+    @Autowired
+    private ResultCache resultCache;
       public QrCodeService() {
         try {
             // Initialize BoofCV QR Code detector
-            this.detector = FactoryFiducial.qrcode(null, GrayU8.class);
+            detectors.get();
             System.out.println("QrCodeService initialized successfully with BoofCV");
         } catch (Exception e) {
             System.err.println("Error initializing QrCodeService: " + e.getMessage());
@@ -42,14 +48,24 @@ public class QrCodeService {
      * Detect QR codes in the uploaded image
      */
     public QrCodeDetectionResponse detectQrCodes(MultipartFile file) throws IOException {
+        // Repeated uploads are answered from the result cache
+        return resultCache.getOrCompute("qrcode", file, "", () -> {
+            // Load image
+            BufferedImage bufferedImage = ImageIO.read(file.getInputStream());
+            if (bufferedImage == null) {
+                throw new IOException("Could not read image file");
+            }
+            
+            return detectQrCodes(bufferedImage);
+        });
+    }
+    
+    /**
+     * Detect QR codes in an already decoded image
+     */
+    public QrCodeDetectionResponse detectQrCodes(BufferedImage bufferedImage) {
         long startTime = System.currentTimeMillis();
         
-        // Load image
-        BufferedImage bufferedImage = ImageIO.read(file.getInputStream());
-        if (bufferedImage == null) {
-            throw new IOException("Could not read image file");
-        }
-        
         String imageInfo = bufferedImage.getWidth() + "x" + bufferedImage.getHeight();
         System.out.println("Processing QR Code detection for image: " + imageInfo);
         
@@ -57,6 +73,7 @@ public class QrCodeService {
         GrayU8 grayImage = ConvertBufferedImage.convertFrom(bufferedImage, (GrayU8) null);
         
         // Process the image
+        QrCodeDetector<GrayU8> detector = detectors.get();
         detector.process(grayImage);
         
         // Extract results
@@ -80,16 +97,7 @@ public class QrCodeService {
                 QrCodeResult result = new QrCodeResult(content, boundingBox, confidence);
                 
                 // Try to parse as CCCD information
-                CccdInfo cccdInfo = parseCccdFromQrCode(content);
-                if (cccdInfo != null && cccdInfo.isValid()) {
-                    result.setType("CCCD");
-                    result.setCccdInfo(cccdInfo);
-                    System.out.println("CCCD information detected and parsed successfully");
-                } else if (content.startsWith("http://") || content.startsWith("https://")) {
-                    result.setType("URL");
-                } else {
-                    result.setType("TEXT");
-                }
+                classify(result);
                 
                 qrCodeResults.add(result);
                 
@@ -138,6 +146,23 @@ public class QrCodeService {
         );
     }
     
+    /**
+     * Set the result type from its content, attaching parsed CCCD information when the content is a CCCD record
+     */
+    private void classify(QrCodeResult result) {
+        String content = result.getContent();
+        CccdInfo cccdInfo = parseCccdFromQrCode(content);
+        if (cccdInfo != null && cccdInfo.isValid()) {
+            result.setType("CCCD");
+            result.setCccdInfo(cccdInfo);
+            System.out.println("CCCD information detected and parsed successfully");
+        } else if (content != null && (content.startsWith("http://") || content.startsWith("https://"))) {
+            result.setType("URL");
+        } else {
+            result.setType("TEXT");
+        }
+    }
+    
     /**
      * Detect QR codes in a specific region of the image
      */
@@ -155,6 +180,7 @@ public class QrCodeService {
             GrayU8 grayImage = ConvertBufferedImage.convertFrom(croppedImage, (GrayU8) null);
             
             // Process the cropped image
+            QrCodeDetector<GrayU8> detector = detectors.get();
             detector.process(grayImage);
             
             List<QrCodeResult> results = new ArrayList<>();
@@ -173,6 +199,7 @@ public class QrCodeService {
                     boundingBox.setY(boundingBox.getY() + y);
                     
                     QrCodeResult result = new QrCodeResult(content, boundingBox, 1.0);
+                    classify(result);
                     results.add(result);
                     
                 } catch (Exception e) {
@@ -0,0 +1,279 @@
+package com.spring.ai.restai.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Results of detection, OCR and QR requests keyed by upload content, endpoint, model versions and effective parameters.
+ * Identical requests arriving while the first is still running wait for its result instead of computing it again.
+ * Entries expire after a TTL, the least recently used ones are evicted above the size bound, and entries of a model
+ * are dropped when ModelService changes it. Results are stored as JSON snapshots and every caller but the one that
+ * computed a result gets its own copy, so responses modified by one request never leak into another.
+ */
+@Service
+public class ResultCache {
+
+    /**
+     * Computation of a cacheable result
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    @Value("${results.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${results.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${results.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> modelVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Serialized result and its type
+     */
+    private static class Snapshot {
+        final Class<?> type;
+        final byte[] json;
+
+        Snapshot(Class<?> type, byte[] json) {
+            this.type = type;
+            this.json = json;
+        }
+    }
+
+    private static class Entry {
+        final String endpoint;
+        final List<String> models;
+        final long createdAt;
+        volatile long lastAccess;
+        final CompletableFuture<Snapshot> result = new CompletableFuture<>();
+
+        Entry(String endpoint, List<String> models, long now) {
+            this.endpoint = endpoint;
+            this.models = models;
+            this.createdAt = now;
+            this.lastAccess = now;
+        }
+
+        // Running computations never expire, their waiters need the result
+        boolean isExpired(long now, long ttlMillis) {
+            return result.isDone() && now - createdAt > ttlMillis;
+        }
+    }
+
+    /**
+     * Cached result for this upload, or the result of loader, computed once for all concurrent identical requests.
+     * Failures are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(String endpoint, MultipartFile file, String params, Loader<T> loader,
+                              String... models) throws IOException {
+        if (!enabled) {
+            return loader.load();
+        }
+
+        List<String> modelNames = Arrays.stream(models).filter(Objects::nonNull).collect(Collectors.toList());
+        String key = endpoint + "|" + contentHash(file) + "|" + modelVersionKey(modelNames) + "|" + params;
+
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlSeconds * 1000;
+        Entry fresh = new Entry(endpoint, modelNames, now);
+        Entry entry = entries.compute(key, (k, existing) ->
+                existing == null || existing.isExpired(now, ttlMillis) ? fresh : existing);
+
+        if (entry != fresh) {
+            (entry.result.isDone() ? hits : coalesced).incrementAndGet();
+            entry.lastAccess = now;
+            return (T) copyOf(await(entry.result));
+        }
+
+        misses.incrementAndGet();
+        evictIfFull();
+        try {
+            T value = loader.load();
+            // The computing caller keeps the original; changes it makes later do not reach the snapshot
+            entry.result.complete(snapshot(value));
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drop cached results computed with any of the given models (ids or names) and version them past in-flight work
+     */
+    public void invalidateModel(String... identifiers) {
+        List<String> changed = Arrays.stream(identifiers).filter(Objects::nonNull).collect(Collectors.toList());
+        changed.forEach(id -> modelVersions.merge(id, 1L, Long::sum));
+        int removed = removeIf(entry -> entry.models.stream().anyMatch(changed::contains));
+        System.out.println("Result cache invalidated for model " + changed + ": " + removed + " entries");
+    }
+
+    /**
+     * Drop all cached results of one endpoint, e.g. after OCR settings such as card templates changed
+     */
+    public void invalidateEndpoint(String endpoint) {
+        int removed = removeIf(entry -> entry.endpoint.equals(endpoint));
+        System.out.println("Result cache invalidated for " + endpoint + ": " + removed + " entries");
+    }
+
+    public void clear() {
+        int removed = removeIf(entry -> true);
+        System.out.println("Result cache cleared: " + removed + " entries");
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get() + coalesced.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hits.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private Snapshot snapshot(Object value) throws IOException {
+        return value == null ? null : new Snapshot(value.getClass(), objectMapper.writeValueAsBytes(value));
+    }
+
+    private Object copyOf(Snapshot snapshot) throws IOException {
+        return snapshot == null ? null : objectMapper.readValue(snapshot.json, snapshot.type);
+    }
+
+    private Snapshot await(CompletableFuture<Snapshot> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Remove expired entries, then the least recently used ones until the cache is at 90% of its bound
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlSeconds * 1000;
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now, ttlMillis);
+            if (expired) {
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+
+        int target = Math.max(0, maxEntries * 9 / 10);
+        int excess = entries.size() - target;
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .filter(e -> e.getValue().result.isDone())
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+                .forEach(key -> {
+                    if (entries.remove(key) != null) {
+                        evictions.incrementAndGet();
+                    }
+                });
+    }
+
+    private int removeIf(Predicate<Entry> condition) {
+        int[] removed = {0};
+        entries.entrySet().removeIf(e -> {
+            boolean match = condition.test(e.getValue());
+            if (match) {
+                removed[0]++;
+            }
+            return match;
+        });
+        invalidations.addAndGet(removed[0]);
+        return removed[0];
+    }
+
+    private String modelVersionKey(List<String> models) {
+        return models.stream()
+                .map(model -> model + "@" + modelVersions.getOrDefault(model, 0L))
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * SHA-256 of the upload, streamed so large files are not copied into memory for hashing
+     */
+    private String contentHash(MultipartFile file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) != -1) {
+                    // Reading updates the digest
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.spring.ai.restai.service;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Native model session (ONNX detector, recognizer) shared through a cache by concurrent requests.
+ * Callers lease it around each use; once retired (evicted from its cache) it is closed when the last
+ * in-flight lease is released, so a backend switch never closes a session another request is running.
+ */
+public class SharedModel<T> {
+
+    private final T model;
+    private final Consumer<T> closer;
+    private int leases;
+    private boolean retired;
+    private boolean closed;
+
+    public SharedModel(T model, Consumer<T> closer) {
+        this.model = model;
+        this.closer = closer;
+    }
+
+    /**
+     * Lease the cached model for key, creating it when missing. Retries when the cached instance was retired
+     * between the lookup and the lease.
+     */
+    public static <K, T> SharedModel<T> lease(Map<K, SharedModel<T>> cache, K key, Function<K, SharedModel<T>> factory) {
+        while (true) {
+            SharedModel<T> shared = cache.computeIfAbsent(key, factory);
+            if (shared.tryLease()) {
+                return shared;
+            }
+            cache.remove(key, shared);
+        }
+    }
+
+    public T get() {
+        return model;
+    }
+
+    private synchronized boolean tryLease() {
+        if (retired) {
+            return false;
+        }
+        leases++;
+        return true;
+    }
+
+    public void release() {
+        boolean close;
+        synchronized (this) {
+            leases--;
+            close = retired && leases == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            closeModel();
+        }
+    }
+
+    /**
+     * Stop handing out this instance; closes it now when idle, otherwise when the last lease is released
+     */
+    public void retire() {
+        boolean close;
+        synchronized (this) {
+            retired = true;
+            close = leases == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            closeModel();
+        }
+    }
+
+    private void closeModel() {
+        try {
+            closer.accept(model);
+        } catch (Exception e) {
+            System.err.println("Error closing model: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.spring.ai.restai.service;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import com.sun.jna.Pointer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed pools of native Tesseract engines, one per traineddata directory and language.
+ * Each engine loads its traineddata once and is reused across requests,
+ * so memory does not grow with the servlet thread count and the first OCR call is not slow.
+ */
+@Component
+public class TesseractPool {
+
+    // LSTM engine; page segmentation and whitelist come from the field profile
+    private static final int OCR_ENGINE_MODE = ITessAPI.TessOcrEngineMode.OEM_LSTM_ONLY;
+
+    @Value("${tesseract.pool.size:4}")
+    private int poolSize;
+
+    @Value("${tesseract.pool.borrow-timeout-ms:10000}")
+    private long borrowTimeoutMs;
+
+    @Value("${tesseract.datapath:}")
+    private String datapathProperty;
+
+    // Optional traineddata variants per tier, e.g. tessdata_fast and tessdata_best checkouts
+    @Value("${tesseract.datapath.fast:}")
+    private String fastDatapathProperty;
+
+    @Value("${tesseract.datapath.accurate:}")
+    private String accurateDatapathProperty;
+
+    // Pools are built outside the map so loading one tier does not block lookups of others
+    private final Map<String, CompletableFuture<EnginePool>> pools = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    private String defaultDatapath;
+
+    /**
+     * One native TessBaseAPI handle; only used by the thread that borrowed it
+     */
+    public static class Engine {
+        private final TessAPI api;
+        private final ITessAPI.TessBaseAPI handle;
+        private final EnginePool pool;
+        private int pageSegMode = -1;
+        private String whitelist;
+
+        Engine(TessAPI api, ITessAPI.TessBaseAPI handle, EnginePool pool) {
+            this.api = api;
+            this.handle = handle;
+            this.pool = pool;
+        }
+
+        /**
+         * Apply a field profile; settings already in place are not sent again
+         */
+        public void apply(OcrProfile profile) {
+            setPageSegMode(profile.getPageSegMode());
+            if (!profile.getWhitelist().equals(whitelist)) {
+                setVariable("tessedit_char_whitelist", profile.getWhitelist());
+                whitelist = profile.getWhitelist();
+            }
+        }
+
+        /**
+         * Language actually loaded, may differ from the requested one when traineddata is missing
+         */
+        public String getLanguage() {
+            return pool.language;
+        }
+
+        public void setPageSegMode(int mode) {
+            if (mode != pageSegMode) {
+                api.TessBaseAPISetPageSegMode(handle, mode);
+                pageSegMode = mode;
+            }
+        }
+
+        public void setVariable(String name, String value) {
+            api.TessBaseAPISetVariable(handle, name, value);
+        }
+
+        /**
+         * Recognize the whole image
+         */
+        public String recognize(BufferedImage image) {
+            setImage(image);
+            return getText();
+        }
+
+        /**
+         * Hand an image to the engine; grayscale 8-bit is passed without conversion
+         */
+        public void setImage(BufferedImage image) {
+            BufferedImage gray = image;
+            if (image.getType() != BufferedImage.TYPE_BYTE_GRAY || image.getRaster().getParent() != null) {
+                gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+                Graphics2D g2d = gray.createGraphics();
+                g2d.drawImage(image, 0, 0, null);
+                g2d.dispose();
+            }
+            ByteBuffer buffer = ImageIOHelper.convertImageData(gray);
+            int bytesPerLine = ((ComponentSampleModel) gray.getSampleModel()).getScanlineStride();
+            api.TessBaseAPISetImage(handle, buffer, gray.getWidth(), gray.getHeight(), 1, bytesPerLine);
+        }
+
+        /**
+         * Restrict recognition to a rectangle of the current image; the image itself is not uploaded again
+         */
+        public void setRectangle(int left, int top, int width, int height) {
+            api.TessBaseAPISetRectangle(handle, left, top, width, height);
+        }
+
+        /**
+         * Text of the current image (or rectangle)
+         */
+        public String getText() {
+            Pointer text = api.TessBaseAPIGetUTF8Text(handle);
+            if (text == null) {
+                return "";
+            }
+            try {
+                return text.getString(0, StandardCharsets.UTF_8.name());
+            } finally {
+                api.TessDeleteText(text);
+            }
+        }
+
+        /**
+         * Mean word confidence (0-100) of the last recognition
+         */
+        public int meanConfidence() {
+            return api.TessBaseAPIMeanTextConf(handle);
+        }
+
+        void clear() {
+            api.TessBaseAPIClear(handle);
+        }
+
+        void destroy() {
+            api.TessBaseAPIEnd(handle);
+            api.TessBaseAPIDelete(handle);
+        }
+    }
+
+    /**
+     * Engines for one traineddata directory and language
+     */
+    private class EnginePool {
+        final String datapath;
+        final String requestedLanguage;
+        volatile String language;
+        final BlockingQueue<Engine> available = new ArrayBlockingQueue<>(getSize());
+        final List<Engine> engines = new ArrayList<>();
+        volatile String failure;
+
+        // Borrow metrics
+        final AtomicLong borrows = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        EnginePool(String datapath, String language) {
+            this.datapath = datapath;
+            this.requestedLanguage = language;
+        }
+
+        void fill() {
+            long startTime = System.currentTimeMillis();
+            try {
+                TessAPI api = TessAPI.INSTANCE;
+                for (int i = 0; i < getSize(); i++) {
+                    Engine engine = createEngine(api, this);
+                    if (engine == null) {
+                        break;
+                    }
+                    engines.add(engine);
+                    available.add(engine);
+                }
+            } catch (Throwable e) {
+                // Missing native library or broken traineddata must not prevent startup; only this pool is affected
+                failure = e.getMessage();
+                System.err.println("Warning: Tesseract engines for " + requestedLanguage + " (datapath " + datapath
+                        + ") not available: " + e.getMessage());
+                return;
+            }
+            if (engines.isEmpty()) {
+                failure = "no engine could be initialized";
+                return;
+            }
+
+            System.out.println("Tesseract pool ready: " + engines.size() + " engines (" + language + ", datapath "
+                    + datapath + ") in " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+
+        Map<String, Object> stats() {
+            long count = borrows.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("datapath", datapath);
+            stats.put("language", language);
+            stats.put("size", engines.size());
+            stats.put("available", available.size());
+            stats.put("borrows", count);
+            stats.put("timeouts", timeouts.get());
+            stats.put("avgWaitMs", count > 0 ? totalWaitNanos.get() / count / 1_000_000.0 : 0.0);
+            stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+            return stats;
+        }
+    }
+
+    /**
+     * Create and warm the fast-tier engines for every profile language at startup;
+     * accurate-tier engines are loaded on first use
+     */
+    @PostConstruct
+    public void init() {
+        this.defaultDatapath = resolveDatapath();
+        for (String language : OcrProfile.languages()) {
+            getPool(language, OcrProfile.Tier.FAST);
+        }
+    }
+
+    private String datapathFor(OcrProfile.Tier tier) {
+        String configured = tier == OcrProfile.Tier.ACCURATE ? accurateDatapathProperty : fastDatapathProperty;
+        return configured != null && !configured.trim().isEmpty() ? configured.trim() : defaultDatapath;
+    }
+
+    private EnginePool getPool(String language, OcrProfile.Tier tier) {
+        String datapath = datapathFor(tier);
+        // Tiers without their own traineddata share the default pool
+        String key = datapath + "|" + language;
+        CompletableFuture<EnginePool> created = new CompletableFuture<>();
+        CompletableFuture<EnginePool> existing = pools.putIfAbsent(key, created);
+        if (existing != null) {
+            // Another request is loading this pool, or already has
+            return existing.join();
+        }
+
+        EnginePool pool = new EnginePool(datapath, language);
+        try {
+            pool.fill();
+        } finally {
+            // Empty pools are not cached, the next request tries again
+            if (pool.engines.isEmpty()) {
+                pools.remove(key, created);
+            }
+            created.complete(pool);
+        }
+        synchronized (this) {
+            if (closed) {
+                Engine engine;
+                while ((engine = pool.available.poll()) != null) {
+                    engine.destroy();
+                }
+            }
+        }
+        return pool;
+    }
+
+    private Engine createEngine(TessAPI api, EnginePool pool) {
+        ITessAPI.TessBaseAPI handle = api.TessBaseAPICreate();
+
+        // Requested language first, English only when its traineddata is missing
+        String[] languages = pool.language != null ? new String[]{pool.language} : new String[]{pool.requestedLanguage, "eng"};
+        for (String candidate : languages) {
+            if (api.TessBaseAPIInit2(handle, pool.datapath, candidate, OCR_ENGINE_MODE) == 0) {
+                pool.language = candidate;
+                Engine engine = new Engine(api, handle, pool);
+                configure(engine);
+                warmUp(engine);
+                return engine;
+            }
+            System.out.println("Tesseract language " + candidate + " not available in " + pool.datapath);
+        }
+
+        System.err.println("Warning: Could not initialize Tesseract. Please install Tesseract and Vietnamese language data.");
+        api.TessBaseAPIDelete(handle);
+        return null;
+    }
+
+    private void configure(Engine engine) {
+        engine.apply(OcrProfile.DEFAULT);
+
+        // Optimize for speed over accuracy
+        engine.setVariable("tessedit_enable_doc_dict", "0");
+        engine.setVariable("tessedit_enable_bigram_correction", "0");
+        engine.setVariable("textord_really_old_xheight", "1");
+        engine.setVariable("textord_min_linesize", "0.25");
+    }
+    /**
+     * The LSTM model is loaded lazily on the first recognition; run it once on a blank image
+     */
+    private void warmUp(Engine engine) {
+        BufferedImage blank = new BufferedImage(64, 32, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2d = blank.createGraphics();
+        g2d.fillRect(0, 0, blank.getWidth(), blank.getHeight());
+        g2d.dispose();
+        engine.recognize(blank);
+        engine.clear();
+    }
+
+    private String resolveDatapath() {
+        if (datapathProperty != null && !datapathProperty.trim().isEmpty()) {
+            return datapathProperty.trim();
+        }
+
+        String[] possibleDataPaths = {
+            System.getenv("TESSDATA_PREFIX"),
+            "C:/Program Files/Tesseract-OCR/tessdata",
+            "C:/Program Files (x86)/Tesseract-OCR/tessdata",
+            "/usr/share/tesseract-ocr/4.00/tessdata",
+            "/usr/share/tesseract-ocr/5/tessdata",
+            "/usr/share/tesseract-ocr/tessdata",
+            "/opt/homebrew/share/tessdata",
+            "./tessdata"
+        };
+        for (String path : possibleDataPaths) {
+            if (path != null && Files.exists(Paths.get(path))) {
+                return path;
+            }
+        }
+
+        System.out.println("Warning: Could not find tessdata directory. Using system default.");
+        return null;
+    }
+
+    /**
+     * Borrow a default-language engine from the fast tier
+     */
+    public Engine borrow() throws TesseractException, InterruptedException {
+        return borrow(OcrProfile.DEFAULT.getLanguage(), OcrProfile.Tier.FAST);
+    }
+
+    /**
+     * Borrow an engine for a language and tier, waiting up to the configured timeout
+     */
+    public Engine borrow(String language, OcrProfile.Tier tier) throws TesseractException, InterruptedException {
+        if (closed) {
+            throw new TesseractException("Tesseract is not available");
+        }
+        EnginePool pool = getPool(language, tier);
+        if (pool.engines.isEmpty()) {
+            throw new TesseractException("Tesseract is not available for language " + language
+                    + (pool.failure != null ? ": " + pool.failure : ""));
+        }
+
+        long start = System.nanoTime();
+        Engine engine = pool.available.poll(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        long waited = System.nanoTime() - start;
+
+        if (engine == null) {
+            pool.timeouts.incrementAndGet();
+            throw new TesseractException("No Tesseract engine available within " + borrowTimeoutMs + "ms");
+        }
+
+        pool.borrows.incrementAndGet();
+        pool.totalWaitNanos.addAndGet(waited);
+        pool.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        return engine;
+    }
+
+    /**
+     * Return an engine to its pool, dropping the image it still holds
+     */
+    public synchronized void release(Engine engine) {
+        if (engine == null) {
+            return;
+        }
+        if (closed) {
+            engine.destroy();
+            return;
+        }
+        engine.clear();
+        engine.pool.available.offer(engine);
+    }
+
+    /**
+     * Engines per language and tier
+     */
+    public int getSize() {
+        return Math.max(1, poolSize);
+    }
+
+    /**
+     * Size, availability and borrow wait statistics per engine pool
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        pools.forEach((key, pool) -> {
+            // Pools still loading are left out
+            if (pool.isDone()) {
+                stats.put(key, pool.join().stats());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Release native engines; borrowed ones are destroyed when returned
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        closed = true;
+        int destroyed = 0;
+        int total = 0;
+        for (CompletableFuture<EnginePool> future : pools.values()) {
+            // Pools still loading destroy their engines when they see the closed flag
+            EnginePool pool = future.getNow(null);
+            if (pool == null) {
+                continue;
+            }
+            total += pool.engines.size();
+            Engine engine;
+            while ((engine = pool.available.poll()) != null) {
+                engine.destroy();
+                destroyed++;
+            }
+        }
+        System.out.println("Tesseract pool shutdown, released " + destroyed + " of " + total + " engines");
+    }
+}
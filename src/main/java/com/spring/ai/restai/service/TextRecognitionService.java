@@ -0,0 +1,104 @@
+package com.spring.ai.restai.service;
+
+import com.spring.ai.plugins.CtcTextRecognizer;
+import com.spring.ai.plugins.TextRecognizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ONNX text line recognition for uploaded CRNN/SVTR models.
+ * Recognizers are loaded on first use and cached per model, like detectors in DetectionService.
+ */
+@Service
+public class TextRecognitionService {
+
+    @Autowired
+    private ModelService modelService;
+
+    // Model used when a request selects the ONNX engine without naming a model
+    @Value("${ocr.recognizer.model:}")
+    private String defaultModel;
+
+    @Value("${ocr.recognizer.max-batch:32}")
+    private int maxBatchSize;
+
+    @Value("${ocr.recognizer.max-width:1280}")
+    private int maxWidth;
+
+    private final Map<String, SharedModel<TextRecognizer>> recognizerCache = new ConcurrentHashMap<>();
+
+    /**
+     * Model to use for a request, falling back to ocr.recognizer.model; null when neither is set
+     */
+    public String resolveModel(String modelName) {
+        if (modelName != null && !modelName.trim().isEmpty()) {
+            return modelName.trim();
+        }
+        return defaultModel != null && !defaultModel.trim().isEmpty() ? defaultModel.trim() : null;
+    }
+
+    /**
+     * Whether the model exists and has a character dictionary
+     */
+    public boolean isAvailable(String modelName) {
+        return modelName != null && modelService.modelExists(modelName) && modelService.getDictionaryPath(modelName) != null;
+    }
+
+    /**
+     * Recognize all line crops in as few model runs as the model allows
+     */
+    public List<TextRecognizer.Recognition> recognize(String modelName, List<BufferedImage> lines) throws Exception {
+        if (!isAvailable(modelName)) {
+            throw new IllegalArgumentException("Text recognition model '" + modelName + "' not found or has no dictionary");
+        }
+        long startTime = System.currentTimeMillis();
+        SharedModel<TextRecognizer> recognizer = getOrCreateRecognizer(modelName);
+        List<TextRecognizer.Recognition> results;
+        try {
+            results = recognizer.get().recognize(lines);
+        } finally {
+            recognizer.release();
+        }
+        System.out.println("Recognized " + lines.size() + " lines with " + modelName + " in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        return results;
+    }
+
+    /**
+     * Lease the model's recognizer, creating it when missing
+     */
+    private SharedModel<TextRecognizer> getOrCreateRecognizer(String modelName) {
+        return SharedModel.lease(recognizerCache, modelName, k -> {
+            CtcTextRecognizer recognizer = new CtcTextRecognizer(modelService.getModelPath(modelName),
+                    modelService.getDictionaryPath(modelName), modelService.getModelBackend(modelName));
+            recognizer.setMaxBatchSize(maxBatchSize);
+            recognizer.setMaxWidth(maxWidth);
+            return new SharedModel<>(recognizer, TextRecognizer::close);
+        });
+    }
+
+    /**
+     * Drop the cached recognizer of a model, e.g. after its dictionary or backend changed
+     */
+    public void clearRecognizerCache(String modelName) {
+        SharedModel<TextRecognizer> recognizer = recognizerCache.remove(modelName);
+        if (recognizer != null) {
+            // Closed once the requests still using it finish
+            recognizer.retire();
+            System.out.println("Cleared text recognizer cache for model: " + modelName);
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        recognizerCache.values().forEach(SharedModel::retire);
+        recognizerCache.clear();
+    }
+}
@@ -2,13 +2,12 @@ package com.spring.ai.restai.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.plugins.ImageLoader;
 import com.spring.ai.restai.dto.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -128,11 +127,17 @@ public class WorkflowService {
         System.out.println("Starting workflow execution: " + executionId + " for workflow: " + workflowId);
         
         try {
-            // Load and validate input image
-            BufferedImage image = ImageIO.read(imageFile.getInputStream());
-            if (image == null) {
+            // Probe and validate input image; steps decode it at the resolution they need
+            ImageLoader.DecodedImage image;
+            try {
+                image = ImageLoader.open(imageFile.getBytes());
+            } catch (IOException e) {
                 throw new RuntimeException("Invalid image file");
             }
+            String imageName = imageFile.getOriginalFilename();
+            
+            // Detection results per model, reused by later OCR steps on the same model
+            Map<String, DetectionResult> detectionsByModel = new HashMap<>();
             
             // Sort steps by order
             List<WorkflowStep> sortedSteps = workflow.getSteps().stream()
@@ -160,7 +165,7 @@ public class WorkflowService {
                     stepExecution.setInput(getDataSummary(currentData));
                     
                     // Execute the step
-                    Object stepOutput = executeWorkflowStep(step, currentData, imageFile);
+                    Object stepOutput = executeWorkflowStep(step, currentData, image, imageName, detectionsByModel);
                     
                     // Validate output data
                     if (!validateStepOutput(step, stepOutput)) {
@@ -212,18 +217,19 @@ public class WorkflowService {
     /**
      * Execute a single workflow step
      */
-    private Object executeWorkflowStep(WorkflowStep step, Object inputData, MultipartFile originalImage) throws Exception {
+    private Object executeWorkflowStep(WorkflowStep step, Object inputData, ImageLoader.DecodedImage image, String imageName,
+                                       Map<String, DetectionResult> detectionsByModel) throws Exception {
         System.out.println("Executing step: " + step.getId() + " (" + step.getType() + ")");
         
         switch (step.getType()) {
             case "DETECTION":
-                return executeDetectionStep(step, originalImage);
+                return executeDetectionStep(step, image, imageName, detectionsByModel);
                 
             case "OCR":
-                return executeOcrStep(step, originalImage);
+                return executeOcrStep(step, image, imageName, detectionsByModel);
                 
             case "QR_CODE":
-                return executeQrCodeStep(step, originalImage);
+                return executeQrCodeStep(step, image);
                 
             case "IMAGE_PREPROCESSING":
                 return executeImagePreprocessingStep(step, inputData);
@@ -238,7 +244,8 @@ public class WorkflowService {
       /**
      * Execute detection step
      */
-    private Object executeDetectionStep(WorkflowStep step, MultipartFile imageFile) throws Exception {
+    private Object executeDetectionStep(WorkflowStep step, ImageLoader.DecodedImage image, String imageName,
+                                        Map<String, DetectionResult> detectionsByModel) throws Exception {
         Map<String, Object> params = step.getParameters();
         String modelName = (String) params.get("modelName");
         
@@ -246,13 +253,16 @@ public class WorkflowService {
             throw new RuntimeException("Model name is required for detection step");
         }
         
-        return detectionService.detect(modelName, imageFile, null, null);
+        DetectionResult detectionResult = detectionService.detect(modelName, image, imageName, null, null, null);
+        detectionsByModel.put(modelName, detectionResult);
+        return detectionResult;
     }
     
     /**
      * Execute OCR step  
      */
-    private Object executeOcrStep(WorkflowStep step, MultipartFile imageFile) throws Exception {
+    private Object executeOcrStep(WorkflowStep step, ImageLoader.DecodedImage image, String imageName,
+                                  Map<String, DetectionResult> detectionsByModel) throws Exception {
         Map<String, Object> params = step.getParameters();
         String modelName = (String) params.get("modelName");
         
@@ -260,14 +270,23 @@ public class WorkflowService {
             throw new RuntimeException("Model name is required for OCR step");
         }
         
-        return ocrService.performOcrDetection(imageFile, modelName);
+        OcrOptions options = OcrOptions.parse((String) params.get("tier"), (String) params.get("qrMode"),
+            (String) params.get("engine"), (String) params.get("recognizerModel"), (String) params.get("template"));
+        
+        // Reuse an earlier detection step on the same model instead of detecting again
+        DetectionResult previousDetection = detectionsByModel.get(modelName);
+        if (previousDetection != null) {
+            return ocrService.performOcrDetection(image, previousDetection, modelName, options);
+        }
+        return ocrService.performOcrDetection(image, imageName, modelName, options);
     }
     
     /**
      * Execute QR code step
      */
-    private Object executeQrCodeStep(WorkflowStep step, MultipartFile imageFile) throws Exception {
-        return qrCodeService.detectQrCodes(imageFile);
+    private Object executeQrCodeStep(WorkflowStep step, ImageLoader.DecodedImage image) throws Exception {
+        // Small QR modules need every pixel
+        return qrCodeService.detectQrCodes(image.getFullImage());
     }
     
     /**
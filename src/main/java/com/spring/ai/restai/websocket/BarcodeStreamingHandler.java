@@ -2,6 +2,7 @@ package com.spring.ai.restai.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spring.ai.restai.service.BarcodeService;
+import com.spring.ai.restai.service.DetectionService;
 import com.spring.ai.restai.dto.DetailedBarcodeResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -9,71 +10,61 @@ import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
-import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class BarcodeStreamingHandler extends AbstractWebSocketHandler {
 
+    private static final String PIPELINE = "/ws/barcode-stream";
+
     @Autowired
     private BarcodeService barcodeService;
 
+    @Autowired
+    private DetectionService detectionService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        StreamGate.init(session);
+    }
+
     @Override
     public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
         byte[] imageData = message.getPayload().array();
 
         try {
-            // Create a custom MultipartFile implementation
-            MultipartFile multipartFile = new MultipartFile() {
-                @Override
-                public String getName() {
-                    return "image";
+            BufferedImage frame = ImageIO.read(new ByteArrayInputStream(imageData));
+            if (frame == null) {
+                throw new IllegalArgumentException("Could not decode frame");
+            }
+
+            // Skip the region scan entirely for frames the gate model considers empty
+            StreamGate gate = StreamGate.of(session);
+            if (gate != null) {
+                DetectionService.GateDecision decision = detectionService.evaluateGate(
+                    PIPELINE, gate.model, gate.inputSize, gate.threshold, frame);
+                if (!decision.isPassed()) {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+                        "success", true,
+                        "gated", true,
+                        "gateScore", decision.getScore(),
+                        "totalBarcodes", 0,
+                        "results", List.of()
+                    ))));
+                    return;
                 }
-
-                @Override
-                public String getOriginalFilename() {
-                    return "stream.jpg";
-                }
-
-                @Override
-                public String getContentType() {
-                    return "image/jpeg";
-                }
-
-                @Override
-                public boolean isEmpty() {
-                    return imageData.length == 0;
-                }
-
-                @Override
-                public long getSize() {
-                    return imageData.length;
-                }
-
-                @Override
-                public byte[] getBytes() {
-                    return imageData;
-                }
-
-                @Override
-                public InputStream getInputStream() {
-                    return new ByteArrayInputStream(imageData);
-                }
-
-                @Override
-                public void transferTo(java.io.File dest) throws java.io.IOException {
-                    throw new UnsupportedOperationException("transferTo() is not supported");
-                }
-            };
+            }
 
             // Process barcode detection
-            List<DetailedBarcodeResult> results = barcodeService.processDocument(multipartFile);
+            List<DetailedBarcodeResult> results = List.of(
+                barcodeService.processImage(frame, StreamGate.param(session, "model")));
 
             // Filter valid results
             List<DetailedBarcodeResult> validResults = results.stream()
@@ -84,6 +75,10 @@ public class BarcodeStreamingHandler extends AbstractWebSocketHandler {
                 .mapToInt(result -> result.getBarcodes().size())
                 .sum();
 
+            if (gate != null) {
+                detectionService.recordCascadeFullRun(PIPELINE, totalBarcodes > 0);
+            }
+
             // Send results back
             Map<String, Object> response = Map.of(
                 "success", true,
@@ -97,7 +92,7 @@ public class BarcodeStreamingHandler extends AbstractWebSocketHandler {
         } catch (Exception e) {
             session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
                 "success", false,
-                "error", e.getMessage()
+                "error", String.valueOf(e.getMessage())
             ))));
         }
     }
@@ -0,0 +1,71 @@
+package com.spring.ai.restai.websocket;
+
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Cascade gate settings for a streaming session, taken from the connect URL:
+ * {@code /ws/barcode-stream?gate=<model>&gateThreshold=0.3&gateSize=320}
+ */
+class StreamGate {
+    private static final String ATTRIBUTE = "streamGate";
+
+    final String model;
+    final float threshold;
+    final int inputSize;
+
+    private StreamGate(String model, float threshold, int inputSize) {
+        this.model = model;
+        this.threshold = threshold;
+        this.inputSize = inputSize;
+    }
+
+    /**
+     * Parse gate settings once per session and keep them in the session attributes
+     */
+    static void init(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return;
+        }
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String model = params.getFirst("gate");
+        if (model == null || model.trim().isEmpty()) {
+            return;
+        }
+
+        float threshold = 0.3f;
+        int inputSize = 320;
+        try {
+            if (params.getFirst("gateThreshold") != null) {
+                threshold = Float.parseFloat(params.getFirst("gateThreshold"));
+            }
+            if (params.getFirst("gateSize") != null) {
+                inputSize = Integer.parseInt(params.getFirst("gateSize"));
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid gate parameters, using defaults: " + e.getMessage());
+        }
+
+        session.getAttributes().put(ATTRIBUTE, new StreamGate(model.trim(), threshold, inputSize));
+        System.out.println("Stream session " + session.getId() + " gated by model " + model
+                + " (threshold " + threshold + ", size " + inputSize + ")");
+    }
+
+    /**
+     * Gate for the session, null when frames go straight to the full pipeline
+     */
+    static StreamGate of(WebSocketSession session) {
+        return (StreamGate) session.getAttributes().get(ATTRIBUTE);
+    }
+
+    /**
+     * Single query parameter from the connect URL
+     */
+    static String param(WebSocketSession session, String name) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(name);
+    }
+}
@@ -1,6 +1,7 @@
 package com.spring.ai.restai.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.restai.service.DetectionService;
 import com.spring.ai.restai.service.QrCodeService;
 import com.spring.ai.restai.dto.QrCodeDetectionResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,70 +10,61 @@ import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.AbstractWebSocketHandler;
-import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.util.Map;
 
 @Component
 public class StreamingDetectionHandler extends AbstractWebSocketHandler {
 
+    private static final String PIPELINE = "/ws/detect-stream";
+
     @Autowired
     private QrCodeService qrCodeService;
 
+    @Autowired
+    private DetectionService detectionService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        StreamGate.init(session);
+    }
+
     @Override
     public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
         byte[] imageData = message.getPayload().array();
 
-        // Create a custom MultipartFile implementation
-        MultipartFile multipartFile = new MultipartFile() {
-            @Override
-            public String getName() {
-                return "image";
-            }
-
-            @Override
-            public String getOriginalFilename() {
-                return "stream.jpg";
-            }
-
-            @Override
-            public String getContentType() {
-                return "image/jpeg";
-            }
-
-            @Override
-            public boolean isEmpty() {
-                return imageData.length == 0;
-            }
-
-            @Override
-            public long getSize() {
-                return imageData.length;
-            }
-
-            @Override
-            public byte[] getBytes() {
-                return imageData;
-            }
-
-            @Override
-            public InputStream getInputStream() {
-                return new ByteArrayInputStream(imageData);
+        try {
+            // Decode the frame once for the gate and the QR detector
+            BufferedImage frame = ImageIO.read(new ByteArrayInputStream(imageData));
+            if (frame == null) {
+                throw new java.io.IOException("Could not read image file");
             }
 
-            @Override
-            public void transferTo(java.io.File dest) throws java.io.IOException {
-                throw new UnsupportedOperationException("transferTo() is not supported");
+            // Skip QR decoding for frames the gate model considers empty
+            StreamGate gate = StreamGate.of(session);
+            if (gate != null) {
+                DetectionService.GateDecision decision = detectionService.evaluateGate(
+                    PIPELINE, gate.model, gate.inputSize, gate.threshold, frame);
+                if (!decision.isPassed()) {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
+                        "success", true,
+                        "gated", true,
+                        "gateScore", decision.getScore()
+                    ))));
+                    return;
+                }
             }
-        };
 
-        try {
             // Process QR code detection
-            QrCodeDetectionResponse response = qrCodeService.detectQrCodes(multipartFile);
+            QrCodeDetectionResponse response = qrCodeService.detectQrCodes(frame);
+            if (gate != null) {
+                detectionService.recordCascadeFullRun(PIPELINE, response.getTotalQrCodes() > 0);
+            }
             
             // Send results back
             session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of(
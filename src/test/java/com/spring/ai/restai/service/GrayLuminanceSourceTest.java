@@ -0,0 +1,90 @@
+package com.spring.ai.restai.service;
+
+import boofcv.io.image.ConvertBufferedImage;
+import boofcv.struct.image.GrayU8;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GrayLuminanceSourceTest {
+
+	private static final int WIDTH = 37;
+	private static final int HEIGHT = 23;
+
+	// Reference: ZXing's own source over the same grayscale pixels
+	private final BufferedImage image = randomGrayImage(WIDTH, HEIGHT);
+	private final GrayU8 gray = ConvertBufferedImage.convertFrom(image, (GrayU8) null);
+
+	@Test
+	void matchesReferenceImage() {
+		assertSame(new BufferedImageLuminanceSource(image), GrayLuminanceSource.of(gray));
+	}
+
+	@Test
+	void cropMatchesReference() {
+		assertSame(new BufferedImageLuminanceSource(image).crop(5, 3, 20, 11),
+				GrayLuminanceSource.of(gray).crop(5, 3, 20, 11));
+	}
+
+	@Test
+	void nestedCropOfSubImageMatchesReference() {
+		GrayU8 subImage = gray.subimage(4, 2, 34, 21);
+		LuminanceSource expected = new BufferedImageLuminanceSource(image).crop(4, 2, 30, 19).crop(3, 1, 12, 9);
+		assertSame(expected, GrayLuminanceSource.of(subImage).crop(3, 1, 12, 9));
+	}
+
+	@Test
+	void rotationMatchesReference() {
+		LuminanceSource expected = new BufferedImageLuminanceSource(image).rotateCounterClockwise();
+		LuminanceSource rotated = GrayLuminanceSource.of(gray).rotateCounterClockwise();
+		assertEquals(HEIGHT, rotated.getWidth());
+		assertEquals(WIDTH, rotated.getHeight());
+		assertSame(expected, rotated);
+	}
+
+	@Test
+	void rotationOfCropMatchesReference() {
+		LuminanceSource expected = new BufferedImageLuminanceSource(image).crop(6, 4, 15, 10).rotateCounterClockwise();
+		assertSame(expected, GrayLuminanceSource.of(gray).crop(6, 4, 15, 10).rotateCounterClockwise());
+	}
+
+	@Test
+	void fullTurnRestoresOriginal() {
+		LuminanceSource source = GrayLuminanceSource.of(gray).crop(2, 1, 30, 20);
+		LuminanceSource turned = source;
+		for (int i = 0; i < 4; i++) {
+			turned = turned.rotateCounterClockwise();
+		}
+		assertSame(source, turned);
+	}
+
+	private static void assertSame(LuminanceSource expected, LuminanceSource actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertArrayEquals(expected.getMatrix(), actual.getMatrix());
+		for (int y = 0; y < expected.getHeight(); y++) {
+			assertArrayEquals(expected.getRow(y, null), actual.getRow(y, null), "row " + y);
+		}
+		// Rows are written into a caller buffer larger than needed
+		byte[] row = new byte[expected.getWidth() + 8];
+		assertArrayEquals(expected.getRow(0, null), Arrays.copyOf(actual.getRow(0, row), expected.getWidth()));
+	}
+
+	private static BufferedImage randomGrayImage(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		Random random = new Random(42);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.getRaster().setSample(x, y, 0, random.nextInt(256));
+			}
+		}
+		return image;
+	}
+}
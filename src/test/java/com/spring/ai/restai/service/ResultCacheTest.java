@@ -0,0 +1,215 @@
+package com.spring.ai.restai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.ai.restai.dto.CccdInfo;
+import com.spring.ai.restai.dto.DetectionResult;
+import com.spring.ai.restai.dto.OcrDetectionResponse;
+import com.spring.ai.restai.dto.OcrResult;
+import com.spring.ai.restai.dto.QrCodeDetectionResponse;
+import com.spring.ai.restai.dto.QrCodeResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+
+	private static final MockMultipartFile UPLOAD = new MockMultipartFile("file", "card.jpg", "image/jpeg",
+			new byte[] { 1, 2, 3, 4 });
+
+	private ResultCache cache;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		cache = new ResultCache();
+		ReflectionTestUtils.setField(cache, "enabled", true);
+		ReflectionTestUtils.setField(cache, "maxEntries", 100);
+		ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+		executor = Executors.newFixedThreadPool(8);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentIdenticalRequestsComputeOnce() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<String>> callers = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			callers.add(executor.submit(() -> cache.getOrCompute("detect", UPLOAD, "", () -> {
+				loads.incrementAndGet();
+				awaitQuietly(release);
+				return "result";
+			}, "model")));
+		}
+		// Let every caller reach the cache before the computation finishes
+		waitUntil(() -> ((Number) cache.getStats().get("coalesced")).intValue() == 7);
+		release.countDown();
+
+		for (Future<String> caller : callers) {
+			assertEquals("result", caller.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1L, cache.getStats().get("misses"));
+	}
+
+	@Test
+	void failuresAreNotCached() throws Exception {
+		assertThrows(IOException.class, () -> cache.getOrCompute("detect", UPLOAD, "", () -> {
+			throw new IOException("model failed");
+		}, "model"));
+
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("retried", cache.getOrCompute("detect", UPLOAD, "", () -> {
+			loads.incrementAndGet();
+			return "retried";
+		}, "model"));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStats().get("size"));
+	}
+
+	@Test
+	void waitersSeeTheFailureOfTheComputationTheyJoined() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> first = executor.submit(() -> cache.getOrCompute("detect", UPLOAD, "", () -> {
+			awaitQuietly(release);
+			throw new IOException("model failed");
+		}, "model"));
+		waitUntil(() -> ((Number) cache.getStats().get("misses")).intValue() == 1);
+		Future<String> waiter = executor.submit(() -> cache.getOrCompute("detect", UPLOAD, "", () -> "unused", "model"));
+		waitUntil(() -> ((Number) cache.getStats().get("coalesced")).intValue() == 1);
+		release.countDown();
+
+		assertTrue(assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS)).getCause() instanceof IOException);
+		assertTrue(assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause() instanceof IOException);
+		assertEquals(0, cache.getStats().get("size"));
+	}
+
+	@Test
+	void invalidationDuringComputationIsNotServedStaleResults() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> inFlight = executor.submit(() -> cache.getOrCompute("detect", UPLOAD, "", () -> {
+			started.countDown();
+			awaitQuietly(release);
+			return "old model";
+		}, "model"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		cache.invalidateModel("model");
+
+		// Requests after the model changed do not join the old computation
+		assertEquals("new model", cache.getOrCompute("detect", UPLOAD, "", () -> "new model", "model"));
+		release.countDown();
+		assertEquals("old model", inFlight.get(5, TimeUnit.SECONDS));
+
+		// The finished old computation does not replace the new result
+		assertEquals("new model", cache.getOrCompute("detect", UPLOAD, "", () -> "recomputed", "model"));
+	}
+
+	@Test
+	void otherModelsSurviveInvalidation() throws Exception {
+		cache.getOrCompute("detect", UPLOAD, "", () -> "a", "model-a");
+		cache.getOrCompute("detect", UPLOAD, "", () -> "b", "model-b");
+
+		cache.invalidateModel("model-a");
+
+		assertEquals("a2", cache.getOrCompute("detect", UPLOAD, "", () -> "a2", "model-a"));
+		assertEquals("b", cache.getOrCompute("detect", UPLOAD, "", () -> "b2", "model-b"));
+	}
+
+	@Test
+	void callersGetIndependentCopies() throws Exception {
+		OcrDetectionResponse computed = cache.getOrCompute("ocr", UPLOAD, "", ResultCacheTest::ocrResponse, "model");
+		// The computing request changes its response after the fact
+		computed.getCccdInfo().setName("CHANGED");
+		computed.getResults().clear();
+
+		OcrDetectionResponse first = cache.getOrCompute("ocr", UPLOAD, "", () -> null, "model");
+		OcrDetectionResponse second = cache.getOrCompute("ocr", UPLOAD, "", () -> null, "model");
+		assertNotSame(first, second);
+		assertEquals("NGUYEN VAN A", first.getCccdInfo().getName());
+		assertEquals(1, first.getResults().size());
+
+		first.getCccdInfo().setName("CHANGED");
+		assertEquals("NGUYEN VAN A", second.getCccdInfo().getName());
+	}
+
+	@Test
+	void copiesSerializeLikeTheOriginal() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		Object[] originals = { ocrResponse(), detectionResult(), qrResponse() };
+		for (Object original : originals) {
+			cache.clear();
+			cache.getOrCompute("any", UPLOAD, "", () -> original, "model");
+			Object copy = cache.getOrCompute("any", UPLOAD, "", () -> null, "model");
+			assertNotSame(original, copy);
+			assertArrayEquals(mapper.writeValueAsBytes(original), mapper.writeValueAsBytes(copy),
+					original.getClass().getSimpleName());
+		}
+	}
+
+	private static OcrDetectionResponse ocrResponse() {
+		CccdInfo info = new CccdInfo();
+		info.setId("001099000001");
+		info.setName("NGUYEN VAN A");
+		List<OcrResult> results = new ArrayList<>(List.of(new OcrResult("NGUYEN VAN A", 0.9f,
+				new OcrResult.BoundingBox(10, 20, 110, 40), "name", 3)));
+		OcrDetectionResponse response = new OcrDetectionResponse("model", 1, results, 120, "800x500", info);
+		response.setCccdSource("qr+ocr");
+		return response;
+	}
+
+	private static DetectionResult detectionResult() {
+		List<DetectionResult.DetectionItem> items = new ArrayList<>(List.of(
+				new DetectionResult.DetectionItem(1, 2, 30, 40, 0.8f, 0, "qr_code")));
+		DetectionResult result = new DetectionResult("model", "card.jpg", 800, 500, 35, items);
+		result.setGated(true);
+		return result;
+	}
+
+	private static QrCodeDetectionResponse qrResponse() {
+		QrCodeResult qr = new QrCodeResult("https://example.com", new QrCodeResult.BoundingBox(1, 2, 3, 4), 1.0);
+		qr.setType("URL");
+		return new QrCodeDetectionResponse("800x500", 1, new ArrayList<>(List.of(qr)), 12);
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for callers");
+			Thread.sleep(5);
+		}
+	}
+}